@@ -0,0 +1,416 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.janelia.saalfeldlab.n5.KeyValueAccess.ListEntry;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+import org.janelia.saalfeldlab.n5.shard.ShardIndex;
+
+/**
+ * A compact bitmap of the blocks that exist in a dataset, one bit per
+ * position of the block grid. Positions are enumerated in the order of the
+ * block grid with the first dimension changing fastest.
+ * <p>
+ * Writers maintain the index of datasets whose
+ * {@link DatasetAttributes#hasBlockIndex()} is set, under the key
+ * {@link #BLOCK_INDEX_FILE} of the dataset, and update it in place for every
+ * written or deleted block. Readers then enumerate the
+ * existing blocks with a single read, instead of listing or probing the
+ * block keys. Blocks outside of the block grid are not indexed.
+ */
+public class BlockIndex {
+
+	public static final String BLOCK_INDEX_FILE = "blocks.idx";
+
+	/* "N5BI" */
+	private static final int MAGIC = 0x4e354249;
+
+	private static final int VERSION = 1;
+
+	private final long[] gridDimensions;
+
+	private final long[] words;
+
+	/**
+	 * Create an empty index.
+	 *
+	 * @param gridDimensions
+	 *            the number of blocks in each dimension
+	 */
+	public BlockIndex(final long[] gridDimensions) {
+
+		this.gridDimensions = gridDimensions.clone();
+		long numBlocks = 1;
+		for (final long n : gridDimensions)
+			numBlocks = Math.multiplyExact(numBlocks, n);
+		final long numWords = (numBlocks + 63) >>> 6;
+		if (numWords > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Block grid " + Arrays.toString(gridDimensions) + " is too large for a block index.");
+		words = new long[(int)numWords];
+	}
+
+	/**
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @return the number of blocks in each dimension of the dataset
+	 */
+	public static long[] gridDimensions(final DatasetAttributes datasetAttributes) {
+
+		final long[] dimensions = datasetAttributes.getDimensions();
+		final int[] blockSize = datasetAttributes.getBlockSize();
+		final long[] gridDimensions = new long[dimensions.length];
+		for (int d = 0; d < dimensions.length; ++d)
+			gridDimensions[d] = (dimensions[d] + blockSize[d] - 1) / blockSize[d];
+		return gridDimensions;
+	}
+
+	public long[] getGridDimensions() {
+
+		return gridDimensions.clone();
+	}
+
+	/**
+	 * @return the bit of a grid position, or -1 if it is outside of the grid
+	 */
+	private long bit(final long... gridPosition) {
+
+		return bit(gridDimensions, gridPosition);
+	}
+
+	private static long bit(final long[] gridDimensions, final long... gridPosition) {
+
+		if (gridPosition.length != gridDimensions.length)
+			return -1;
+
+		long bit = 0;
+		for (int d = gridDimensions.length - 1; d >= 0; --d) {
+			if (gridPosition[d] < 0 || gridPosition[d] >= gridDimensions[d])
+				return -1;
+			bit = bit * gridDimensions[d] + gridPosition[d];
+		}
+		return bit;
+	}
+
+	/**
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @return true if the block exists
+	 */
+	public boolean exists(final long... gridPosition) {
+
+		final long bit = bit(gridPosition);
+		return bit >= 0 && (words[(int)(bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Marks a block as existing.
+	 *
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @return true if the index changed
+	 */
+	public boolean set(final long... gridPosition) {
+
+		final long bit = bit(gridPosition);
+		if (bit < 0)
+			return false;
+
+		final int i = (int)(bit >>> 6);
+		final long word = words[i];
+		words[i] |= 1L << bit;
+		return word != words[i];
+	}
+
+	/**
+	 * Marks a block as not existing.
+	 *
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @return true if the index changed
+	 */
+	public boolean clear(final long... gridPosition) {
+
+		final long bit = bit(gridPosition);
+		if (bit < 0)
+			return false;
+
+		final int i = (int)(bit >>> 6);
+		final long word = words[i];
+		words[i] &= ~(1L << bit);
+		return word != words[i];
+	}
+
+	/**
+	 * @return the number of existing blocks
+	 */
+	public long count() {
+
+		long count = 0;
+		for (final long word : words)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @return the grid positions of all existing blocks
+	 */
+	public List<long[]> getGridPositions() {
+
+		final ArrayList<long[]> gridPositions = new ArrayList<>();
+		for (int i = 0; i < words.length; ++i) {
+			for (long word = words[i]; word != 0; word &= word - 1) {
+				long bit = ((long)i << 6) + Long.numberOfTrailingZeros(word);
+				final long[] gridPosition = new long[gridDimensions.length];
+				for (int d = 0; d < gridDimensions.length; ++d) {
+					gridPosition[d] = bit % gridDimensions[d];
+					bit /= gridDimensions[d];
+				}
+				gridPositions.add(gridPosition);
+			}
+		}
+		return gridPositions;
+	}
+
+	/**
+	 * Create a copy of this index for a resized block grid. Blocks outside of
+	 * the new grid are dropped.
+	 *
+	 * @param gridDimensions
+	 *            the new number of blocks in each dimension
+	 * @return the resized index
+	 */
+	public BlockIndex resize(final long[] gridDimensions) {
+
+		final BlockIndex resized = new BlockIndex(gridDimensions);
+		for (final long[] gridPosition : getGridPositions())
+			resized.set(gridPosition);
+		return resized;
+	}
+
+	/**
+	 * @return the number of bytes before the first word of a serialized index
+	 */
+	private static long headerLength(final int numDimensions) {
+
+		return 12 + 8L * numDimensions;
+	}
+
+	/**
+	 * Marks a block as existing or not existing in a serialized index in
+	 * place. Only the header and the word of the block are read, and only
+	 * that word is written if it changed.
+	 *
+	 * @param channel
+	 *            the locked index
+	 * @param gridDimensions
+	 *            the number of blocks in each dimension
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @param exists
+	 *            whether the block exists
+	 * @return false if the channel does not contain an index for
+	 *         {@code gridDimensions}, e.g. because it is empty or the
+	 *         dataset was resized, and nothing was written
+	 * @throws IOException
+	 *             if the index cannot be read or written
+	 */
+	public static boolean update(
+			final LockedChannel channel,
+			final long[] gridDimensions,
+			final long[] gridPosition,
+			final boolean exists) throws IOException {
+
+		final long headerLength = headerLength(gridDimensions.length);
+		ReadData data = channel.newReadData();
+		if (data.length() < 0)
+			data = data.materialize();
+		if (data.length() < headerLength)
+			return false;
+
+		try (final DataInputStream dis = new DataInputStream(data.slice(0, headerLength).inputStream())) {
+			if (dis.readInt() != MAGIC || dis.readInt() != VERSION || dis.readInt() != gridDimensions.length)
+				return false;
+			for (final long n : gridDimensions)
+				if (dis.readLong() != n)
+					return false;
+		}
+
+		final long bit = bit(gridDimensions, gridPosition);
+		if (bit < 0)
+			return true;
+
+		final long offset = headerLength + 8 * (bit >>> 6);
+		final long word = ByteBuffer.wrap(data.slice(offset, 8).allBytes()).getLong();
+		final long updated = exists ? word | 1L << bit : word & ~(1L << bit);
+		if (updated != word)
+			channel.write(offset, ReadData.from(ByteBuffer.allocate(8).putLong(0, updated)));
+		return true;
+	}
+
+	public void writeTo(final OutputStream out) throws IOException {
+
+		final DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(MAGIC);
+		dos.writeInt(VERSION);
+		dos.writeInt(gridDimensions.length);
+		for (final long n : gridDimensions)
+			dos.writeLong(n);
+		for (final long word : words)
+			dos.writeLong(word);
+		dos.flush();
+	}
+
+	public static BlockIndex read(final ReadData readData) throws IOException {
+
+		try (final DataInputStream dis = new DataInputStream(readData.inputStream())) {
+			if (dis.readInt() != MAGIC)
+				throw new IOException("Not a block index.");
+			final int version = dis.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported block index version " + version + ".");
+			final long[] gridDimensions = new long[dis.readInt()];
+			for (int d = 0; d < gridDimensions.length; ++d)
+				gridDimensions[d] = dis.readLong();
+			final BlockIndex index = new BlockIndex(gridDimensions);
+			for (int i = 0; i < index.words.length; ++i)
+				index.words[i] = dis.readLong();
+			return index;
+		}
+	}
+
+	/**
+	 * Lists the grid positions of all blocks stored in a dataset by walking
+	 * its keys, one listing per directory. Blocks stored in shards are
+	 * enumerated from the index of each shard.
+	 *
+	 * @param keyValueAccess
+	 *            the key value access
+	 * @param uri
+	 *            the URI of the container
+	 * @param normalPath
+	 *            the normalized path of the dataset
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @return the grid positions of all existing blocks
+	 * @throws IOException
+	 *             if the dataset cannot be listed
+	 */
+	public static List<long[]> listBlocks(
+			final KeyValueAccess keyValueAccess,
+			final URI uri,
+			final String normalPath,
+			final DatasetAttributes datasetAttributes) throws IOException {
+
+		final ArrayList<long[]> keys = new ArrayList<>();
+		listKeys(keyValueAccess, uri, normalPath, new long[datasetAttributes.getNumDimensions()], 0, keys::add);
+		if (!datasetAttributes.isSharded())
+			return keys;
+
+		final int numBlocks = datasetAttributes.getNumBlocksPerShard();
+		final int[] blocksPerShard = datasetAttributes.getBlocksPerShard();
+		final ArrayList<long[]> gridPositions = new ArrayList<>();
+		for (final long[] shardPosition : keys) {
+			final ShardIndex index;
+			try (final LockedChannel channel = keyValueAccess.lockForReading(
+					keyValueAccess.compose(uri, components(normalPath, shardPosition, shardPosition.length)),
+					0,
+					ShardIndex.numBytes(numBlocks))) {
+				final ReadData indexData = channel.newReadData().materialize();
+				if (indexData.length() < ShardIndex.numBytes(numBlocks))
+					/* a new or a removed shard */
+					continue;
+				index = ShardIndex.read(indexData, numBlocks);
+			} catch (final N5Exception.N5NoSuchKeyException e) {
+				/* deleted while listing */
+				continue;
+			}
+
+			for (int i = 0; i < numBlocks; ++i) {
+				if (index.exists(i)) {
+					final long[] gridPosition = new long[shardPosition.length];
+					for (int d = 0, r = i; d < gridPosition.length; ++d) {
+						gridPosition[d] = shardPosition[d] * blocksPerShard[d] + r % blocksPerShard[d];
+						r /= blocksPerShard[d];
+					}
+					gridPositions.add(gridPosition);
+				}
+			}
+		}
+		return gridPositions;
+	}
+
+	/**
+	 * @return the path components of the first {@code n} dimensions of a
+	 *         grid position in a dataset
+	 */
+	private static String[] components(final String normalPath, final long[] position, final int n) {
+
+		final String[] components = new String[n + 1];
+		components[0] = normalPath;
+		for (int d = 0; d < n; ++d)
+			components[d + 1] = Long.toString(position[d]);
+		return components;
+	}
+
+	private static void listKeys(
+			final KeyValueAccess keyValueAccess,
+			final URI uri,
+			final String normalPath,
+			final long[] position,
+			final int d,
+			final Consumer<long[]> keys) throws IOException {
+
+		final boolean leaf = d == position.length - 1;
+		final String path = keyValueAccess.compose(uri, components(normalPath, position, d));
+		for (final ListEntry entry : keyValueAccess.listEntries(path)) {
+			if (entry.isDirectory() == leaf)
+				continue;
+			try {
+				position[d] = Long.parseLong(entry.getName());
+			} catch (final NumberFormatException e) {
+				continue;
+			}
+			if (leaf)
+				keys.accept(position.clone());
+			else
+				listKeys(keyValueAccess, uri, normalPath, position, d + 1, keys);
+		}
+	}
+}
@@ -0,0 +1,313 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.codec.DataBlockCodec;
+import org.janelia.saalfeldlab.n5.codec.DataBlockCodec.DecompressedBlock;
+import org.janelia.saalfeldlab.n5.codec.DataPool;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * Reads many blocks of a dataset in a pipeline of four stages that run on
+ * separate, independently sized groups of threads:
+ * <ol>
+ * <li>fetch the encoded block into memory
+ * ({@link N5Reader#readRawBlock(String, DatasetAttributes, long...)}),</li>
+ * <li>decompress it ({@link DataBlockCodec#decompress(ReadData)}),</li>
+ * <li>deserialize it into a {@link DataBlock}
+ * ({@link DataBlockCodec#deserialize(DecompressedBlock, long[], DataPool)}),</li>
+ * <li>pass it to a {@link BlockConsumer}.</li>
+ * </ol>
+ * Consecutive stages are connected by bounded queues, so I/O bound fetching
+ * does not wait for CPU bound decompression unless the queue is full, and a
+ * slow consumer limits the number of blocks held in memory.
+ * <p>
+ * Blocks are consumed in the order in which they are ready, not in the order
+ * of the requested grid positions. Blocks that do not exist are skipped. If
+ * any stage fails, the remaining work is abandoned and the failure is thrown
+ * by {@link #read(N5Reader, String, Iterable, BlockConsumer)}.
+ */
+public class BlockReadPipeline {
+
+	/**
+	 * Receives the blocks read by a {@link BlockReadPipeline}. If the
+	 * pipeline has more than one consumer thread, implementations must be
+	 * thread safe.
+	 *
+	 * @param <T>
+	 *            type of the data contained in the blocks
+	 */
+	@FunctionalInterface
+	public interface BlockConsumer<T> {
+
+		void accept(DataBlock<T> dataBlock) throws IOException;
+	}
+
+	/* marks the end of the items in a queue */
+	private static final Object END = new Object();
+
+	private final int fetchThreads;
+	private final int decompressThreads;
+	private final int deserializeThreads;
+	private final int consumerThreads;
+	private final int queueCapacity;
+
+	/**
+	 * @param fetchThreads
+	 *            number of threads that fetch encoded blocks
+	 * @param decompressThreads
+	 *            number of threads that decompress blocks
+	 * @param deserializeThreads
+	 *            number of threads that deserialize blocks
+	 * @param consumerThreads
+	 *            number of threads that call the consumer
+	 * @param queueCapacity
+	 *            maximum number of blocks waiting between two stages
+	 */
+	public BlockReadPipeline(
+			final int fetchThreads,
+			final int decompressThreads,
+			final int deserializeThreads,
+			final int consumerThreads,
+			final int queueCapacity) {
+
+		if (fetchThreads < 1 || decompressThreads < 1 || deserializeThreads < 1 || consumerThreads < 1)
+			throw new IllegalArgumentException("every stage needs at least one thread");
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("queueCapacity must be positive");
+
+		this.fetchThreads = fetchThreads;
+		this.decompressThreads = decompressThreads;
+		this.deserializeThreads = deserializeThreads;
+		this.consumerThreads = consumerThreads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Reads the blocks at the given grid positions and passes them to the
+	 * consumer. Returns when all blocks have been consumed.
+	 *
+	 * @param n5
+	 *            the reader
+	 * @param pathName
+	 *            dataset path
+	 * @param gridPositions
+	 *            the grid positions of the blocks to read
+	 * @param consumer
+	 *            receives the blocks
+	 * @param <T>
+	 *            type of the data contained in the blocks
+	 * @throws N5Exception
+	 *             if a block could not be read or consumed
+	 */
+	public <T> void read(
+			final N5Reader n5,
+			final String pathName,
+			final Iterable<long[]> gridPositions,
+			final BlockConsumer<T> consumer) throws N5Exception {
+
+		read(n5, pathName, gridPositions, null, consumer);
+	}
+
+	/**
+	 * Reads the blocks at the given grid positions and passes them to the
+	 * consumer. The data arrays of the blocks are acquired from
+	 * {@code pool}, so that consumers can release them for reuse.
+	 *
+	 * @param n5
+	 *            the reader
+	 * @param pathName
+	 *            dataset path
+	 * @param gridPositions
+	 *            the grid positions of the blocks to read
+	 * @param pool
+	 *            source of the data arrays, may be {@code null}
+	 * @param consumer
+	 *            receives the blocks
+	 * @param <T>
+	 *            type of the data contained in the blocks
+	 * @throws N5Exception
+	 *             if a block could not be read or consumed
+	 */
+	public <T> void read(
+			final N5Reader n5,
+			final String pathName,
+			final Iterable<long[]> gridPositions,
+			final DataPool<T> pool,
+			final BlockConsumer<T> consumer) throws N5Exception {
+
+		final String normalPath = N5URI.normalizeGroupPath(pathName);
+		final DatasetAttributes datasetAttributes = n5.getDatasetAttributes(normalPath);
+		if (datasetAttributes == null)
+			throw new N5Exception(pathName + " is not a dataset");
+
+		final DataBlockCodec<T> codec = datasetAttributes.getDataBlockCodec();
+		final Iterator<long[]> positions = gridPositions.iterator();
+
+		final BlockingQueue<Object> fetched = new ArrayBlockingQueue<>(queueCapacity);
+		final BlockingQueue<Object> decompressed = new ArrayBlockingQueue<>(queueCapacity);
+		final BlockingQueue<Object> deserialized = new ArrayBlockingQueue<>(queueCapacity);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(fetchThreads + decompressThreads + deserializeThreads + consumerThreads);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		final AtomicInteger fetchWorkers = new AtomicInteger(fetchThreads);
+		for (int i = 0; i < fetchThreads; ++i) {
+			executor.execute(() -> {
+				try {
+					while (true) {
+						final long[] gridPosition;
+						synchronized (positions) {
+							if (!positions.hasNext())
+								break;
+							gridPosition = positions.next();
+						}
+						final ReadData blockData = n5.readRawBlock(normalPath, datasetAttributes, gridPosition);
+						if (blockData != null)
+							fetched.put(new Item(gridPosition, blockData));
+					}
+					if (fetchWorkers.decrementAndGet() == 0)
+						fetched.put(END);
+				} catch (final Throwable e) {
+					fail(executor, failure, e);
+				}
+			});
+		}
+		stage(executor, failure, decompressThreads, fetched, decompressed, item -> new Item(
+				item.gridPosition,
+				codec.decompress((ReadData)item.value)));
+		stage(executor, failure, deserializeThreads, decompressed, deserialized, item -> new Item(
+				item.gridPosition,
+				codec.deserialize((DecompressedBlock)item.value, item.gridPosition, pool)));
+		stage(executor, failure, consumerThreads, deserialized, null, item -> {
+			@SuppressWarnings("unchecked")
+			final DataBlock<T> dataBlock = (DataBlock<T>)item.value;
+			consumer.accept(dataBlock);
+			return null;
+		});
+		executor.shutdown();
+
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS));
+		} catch (final InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new N5IOException("Interrupted while reading blocks from " + pathName, new InterruptedIOException());
+		}
+
+		final Throwable cause = failure.get();
+		if (cause == null)
+			return;
+		if (cause instanceof N5Exception)
+			throw (N5Exception)cause;
+		if (cause instanceof IOException || cause instanceof UncheckedIOException)
+			throw new N5IOException("Failed to read blocks from " + pathName, cause);
+		throw new N5Exception("Failed to read blocks from " + pathName, cause);
+	}
+
+	private interface Step {
+
+		/**
+		 * @return the item for the next stage, or {@code null} at the last
+		 *         stage
+		 */
+		Item apply(Item item) throws IOException;
+	}
+
+	/**
+	 * Starts the workers of a stage. The last worker to see the end of its
+	 * input passes the end on to the next stage.
+	 */
+	private static void stage(
+			final ExecutorService executor,
+			final AtomicReference<Throwable> failure,
+			final int threads,
+			final BlockingQueue<Object> in,
+			final BlockingQueue<Object> out,
+			final Step step) {
+
+		final AtomicInteger workers = new AtomicInteger(threads);
+		for (int i = 0; i < threads; ++i) {
+			executor.execute(() -> {
+				try {
+					while (true) {
+						final Object next = in.take();
+						if (next == END) {
+							/* for the other workers of this stage */
+							in.put(END);
+							break;
+						}
+						final Item result = step.apply((Item)next);
+						if (out != null)
+							out.put(result);
+					}
+					if (workers.decrementAndGet() == 0 && out != null)
+						out.put(END);
+				} catch (final Throwable e) {
+					fail(executor, failure, e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Records the first failure and stops all workers. Workers that are
+	 * interrupted because of an earlier failure do not replace it.
+	 */
+	private static void fail(final ExecutorService executor, final AtomicReference<Throwable> failure, final Throwable e) {
+
+		if (failure.compareAndSet(null, e))
+			executor.shutdownNow();
+	}
+
+	private static class Item {
+
+		private final long[] gridPosition;
+		private final Object value;
+
+		Item(final long[] gridPosition, final Object value) {
+
+			this.gridPosition = gridPosition;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes {@link DataBlock DataBlocks} of one dataset in parallel.
+ * <p>
+ * Blocks passed to {@link #put(DataBlock)} are encoded and written by tasks
+ * submitted to an {@link Executor}. The number of bytes held by blocks that
+ * have been accepted but not yet written is limited by a byte budget:
+ * {@link #put(DataBlock)} blocks the calling thread until enough pending
+ * writes have completed to fit the new block into the budget. A single block
+ * larger than the budget is accepted when nothing else is pending.
+ * <p>
+ * The first failure of a write task is rethrown by the next call to
+ * {@link #put(DataBlock)} or {@link #flush()}, and by {@link #close()} if
+ * it has not been thrown before. Blocks are not accepted after a failure.
+ *
+ * @param <T>
+ *            the data block data type
+ */
+public class BlockWriteQueue<T> implements AutoCloseable {
+
+	/**
+	 * Default budget of bytes held by pending writes.
+	 */
+	public static final long DEFAULT_MAX_BYTES_IN_FLIGHT = 256L << 20;
+
+	private final N5Writer n5;
+
+	private final String datasetPath;
+
+	private final DatasetAttributes datasetAttributes;
+
+	private final Executor executor;
+
+	private final long maxBytesInFlight;
+
+	private long bytesInFlight = 0;
+
+	private int numPending = 0;
+
+	private N5Exception failure = null;
+
+	private boolean failureThrown = false;
+
+	/**
+	 * @param n5
+	 *            the writer
+	 * @param datasetPath
+	 *            the dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param executor
+	 *            executor that encodes and writes the blocks
+	 * @param maxBytesInFlight
+	 *            budget of bytes held by accepted but not yet written blocks
+	 */
+	public BlockWriteQueue(
+			final N5Writer n5,
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes,
+			final Executor executor,
+			final long maxBytesInFlight) {
+
+		if (maxBytesInFlight <= 0)
+			throw new IllegalArgumentException("maxBytesInFlight must be positive.");
+
+		this.n5 = n5;
+		this.datasetPath = datasetPath;
+		this.datasetAttributes = datasetAttributes;
+		this.executor = executor;
+		this.maxBytesInFlight = maxBytesInFlight;
+	}
+
+	public BlockWriteQueue(
+			final N5Writer n5,
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes,
+			final Executor executor) {
+
+		this(n5, datasetPath, datasetAttributes, executor, DEFAULT_MAX_BYTES_IN_FLIGHT);
+	}
+
+	/**
+	 * Submits a {@link DataBlock} for writing. Waits until the block fits into
+	 * the byte budget. The block must not be modified until it is written,
+	 * i.e. until {@link #flush()} returns.
+	 *
+	 * @param dataBlock
+	 *            the data block
+	 * @throws N5Exception
+	 *             if a previously submitted block could not be written
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for pending writes
+	 */
+	public void put(final DataBlock<T> dataBlock) throws N5Exception, InterruptedException {
+
+		final long numBytes = DataBlock.numBytes(dataBlock);
+		synchronized (this) {
+			while (failure == null && numPending > 0 && bytesInFlight + numBytes > maxBytesInFlight)
+				wait();
+			if (failure != null)
+				throw thrownFailure();
+			bytesInFlight += numBytes;
+			++numPending;
+		}
+		try {
+			executor.execute(() -> write(dataBlock, numBytes));
+		} catch (final RejectedExecutionException e) {
+			completed(numBytes, new N5Exception("Failed to submit block " + gridPositionString(dataBlock), e));
+			synchronized (this) {
+				throw thrownFailure();
+			}
+		}
+	}
+
+	/**
+	 * Waits until all submitted blocks are written.
+	 *
+	 * @throws N5Exception
+	 *             if a submitted block could not be written
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for pending writes
+	 */
+	public synchronized void flush() throws N5Exception, InterruptedException {
+
+		while (numPending > 0)
+			wait();
+		if (failure != null)
+			throw thrownFailure();
+	}
+
+	/**
+	 * Returns the number of bytes held by blocks that are submitted but not yet
+	 * written.
+	 *
+	 * @return bytes in flight
+	 */
+	public synchronized long getBytesInFlight() {
+
+		return bytesInFlight;
+	}
+
+	/**
+	 * Waits until all submitted blocks are written. Does not shut down the
+	 * executor. An interrupt does not stop the wait, the interrupt status is
+	 * restored when all blocks are written.
+	 *
+	 * @throws N5Exception
+	 *             if a submitted block could not be written and the failure
+	 *             has not been thrown by {@link #put(DataBlock)} or
+	 *             {@link #flush()}
+	 */
+	@Override
+	public synchronized void close() throws N5Exception {
+
+		boolean interrupted = false;
+		while (numPending > 0) {
+			try {
+				wait();
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure != null && !failureThrown)
+			throw thrownFailure();
+	}
+
+	/**
+	 * Must be called while holding the lock.
+	 */
+	private N5Exception thrownFailure() {
+
+		failureThrown = true;
+		return failure;
+	}
+
+	private void write(final DataBlock<T> dataBlock, final long numBytes) {
+
+		N5Exception exception = null;
+		try {
+			n5.writeBlock(datasetPath, datasetAttributes, dataBlock);
+		} catch (final N5Exception e) {
+			exception = e;
+		} catch (final RuntimeException e) {
+			exception = new N5Exception("Failed to write block " + gridPositionString(dataBlock), e);
+		} catch (final Error e) {
+			/* record it, close() must not report success for a missing block */
+			exception = new N5Exception("Failed to write block " + gridPositionString(dataBlock), e);
+			throw e;
+		} finally {
+			completed(numBytes, exception);
+		}
+	}
+
+	private synchronized void completed(final long numBytes, final N5Exception exception) {
+
+		bytesInFlight -= numBytes;
+		--numPending;
+		if (failure == null)
+			failure = exception;
+		notifyAll();
+	}
+
+	private static String gridPositionString(final DataBlock<?> dataBlock) {
+
+		return Arrays.toString(dataBlock.getGridPosition());
+	}
+}
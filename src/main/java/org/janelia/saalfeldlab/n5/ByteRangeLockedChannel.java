@@ -0,0 +1,191 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * A read-only {@link LockedChannel} on a byte range of another
+ * {@link LockedChannel}. Streams are created by skipping to the start of the
+ * range in the wrapped channel's {@link InputStream}.
+ */
+class ByteRangeLockedChannel implements LockedChannel {
+
+	private final LockedChannel channel;
+
+	private final long startByte;
+
+	private final long size;
+
+	/**
+	 * @param channel
+	 *            the wrapped channel
+	 * @param startByte
+	 *            the first byte of the range
+	 * @param size
+	 *            the number of bytes of the range, or -1 for all bytes up to
+	 *            the end
+	 */
+	ByteRangeLockedChannel(final LockedChannel channel, final long startByte, final long size) {
+
+		this.channel = channel;
+		this.startByte = startByte;
+		this.size = size;
+	}
+
+	@Override
+	public InputStream newInputStream() throws IOException {
+
+		return range(channel.newInputStream(), startByte, size);
+	}
+
+	@Override
+	public Reader newReader() throws IOException {
+
+		return new InputStreamReader(newInputStream(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public ReadData newReadData() throws IOException {
+
+		return ReadData.from(newInputStream());
+	}
+
+	@Override
+	public Writer newWriter() {
+
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public OutputStream newOutputStream() {
+
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		channel.close();
+	}
+
+	/**
+	 * Skips {@code startByte} bytes of an {@link InputStream} and limits the
+	 * returned {@link InputStream} to at most {@code size} bytes.
+	 *
+	 * @param in
+	 *            the input stream
+	 * @param startByte
+	 *            the number of bytes to skip
+	 * @param size
+	 *            the maximum number of bytes to read, or -1 for no limit
+	 * @return the input stream of the range
+	 * @throws IOException
+	 *             if skipping fails
+	 */
+	static InputStream range(final InputStream in, final long startByte, final long size) throws IOException {
+
+		long skipped = 0;
+		while (skipped < startByte) {
+			final long n = in.skip(startByte - skipped);
+			if (n > 0)
+				skipped += n;
+			else if (in.read() < 0)
+				break;
+			else
+				++skipped;
+		}
+		return size < 0 ? in : new BoundedInputStream(in, size);
+	}
+
+	private static class BoundedInputStream extends ProxyInputStream {
+
+		private long remaining;
+
+		BoundedInputStream(final InputStream in, final long size) {
+
+			super(in);
+			remaining = size;
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			if (remaining <= 0)
+				return -1;
+			final int b = super.read();
+			if (b >= 0)
+				--remaining;
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b) throws IOException {
+
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+
+			if (len == 0)
+				return 0;
+			if (remaining <= 0)
+				return -1;
+			final int n = super.read(b, off, (int)Math.min(len, remaining));
+			if (n > 0)
+				remaining -= n;
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+
+			final long skipped = super.skip(Math.min(n, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+
+			return (int)Math.min(super.available(), remaining);
+		}
+	}
+}
@@ -57,6 +57,7 @@ import java.lang.reflect.Type;
 
 import com.google.gson.JsonSyntaxException;
 import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.cache.N5BlockCache;
 import org.janelia.saalfeldlab.n5.cache.N5JsonCache;
 import org.janelia.saalfeldlab.n5.cache.N5JsonCacheableContainer;
 
@@ -80,6 +81,18 @@ public interface CachedGsonKeyValueN5Reader extends GsonKeyValueN5Reader, N5Json
 
 	N5JsonCache getCache();
 
+	/**
+	 * Returns the cache of decoded blocks that
+	 * {@link #readBlock(String, DatasetAttributes, DataBlock, long...)}
+	 * consults before reading from the backend.
+	 *
+	 * @return the block cache or {@code null} if blocks are not cached
+	 */
+	default N5BlockCache getBlockCache() {
+
+		return null;
+	}
+
 	@Override
 	default JsonElement getAttributesFromContainer(final String normalPathName, final String normalCacheKey) {
 
@@ -92,18 +105,15 @@ public interface CachedGsonKeyValueN5Reader extends GsonKeyValueN5Reader, N5Json
 	default DatasetAttributes getDatasetAttributes(final String pathName) {
 
 		final String normalPath = N5URI.normalizeGroupPath(pathName);
-		final JsonElement attributes;
 
 		if (!datasetExists(pathName))
 			return null;
 
-		if (cacheMeta()) {
-			attributes = getCache().getAttributes(normalPath, N5KeyValueReader.ATTRIBUTES_JSON);
-		} else {
-			attributes = GsonKeyValueN5Reader.super.getAttributes(normalPath);
-		}
+		/* parsed once per version of the cached attributes, shared afterwards */
+		if (cacheMeta())
+			return getCache().getDatasetAttributes(normalPath, N5KeyValueReader.ATTRIBUTES_JSON, this::createDatasetAttributes);
 
-		return createDatasetAttributes(attributes);
+		return createDatasetAttributes(GsonKeyValueN5Reader.super.getAttributes(normalPath));
 	}
 
 	default DatasetAttributes normalGetDatasetAttributes(final String pathName) throws N5IOException {
@@ -124,12 +134,12 @@ public interface CachedGsonKeyValueN5Reader extends GsonKeyValueN5Reader, N5Json
 
 		final JsonElement attributes;
 		if (cacheMeta()) {
-			attributes = getCache().getAttributes(normalPathName, N5KeyValueReader.ATTRIBUTES_JSON);
+			attributes = getCache().getCachedAttributes(normalPathName, N5KeyValueReader.ATTRIBUTES_JSON);
 		} else {
 			attributes = GsonKeyValueN5Reader.super.getAttributes(normalPathName);
 		}
 		try {
-			return GsonUtils.readAttribute(attributes, normalizedAttributePath, clazz, getGson());
+			return copyIfCached(GsonUtils.readAttribute(attributes, normalizedAttributePath, clazz, getGson()));
 		} catch (JsonSyntaxException | NumberFormatException | ClassCastException e) {
 			throw new N5Exception.N5ClassCastException(e);
 		}
@@ -145,17 +155,54 @@ public interface CachedGsonKeyValueN5Reader extends GsonKeyValueN5Reader, N5Json
 		final String normalizedAttributePath = N5URI.normalizeAttributePath(key);
 		JsonElement attributes;
 		if (cacheMeta()) {
-			attributes = getCache().getAttributes(normalPathName, N5KeyValueReader.ATTRIBUTES_JSON);
+			attributes = getCache().getCachedAttributes(normalPathName, N5KeyValueReader.ATTRIBUTES_JSON);
 		} else {
 			attributes = GsonKeyValueN5Reader.super.getAttributes(normalPathName);
 		}
 		try {
-			return GsonUtils.readAttribute(attributes, normalizedAttributePath, type, getGson());
+			return copyIfCached(GsonUtils.readAttribute(attributes, normalizedAttributePath, type, getGson()));
 		} catch (JsonSyntaxException | NumberFormatException | ClassCastException e) {
 			throw new N5Exception.N5ClassCastException(e);
 		}
 	}
 
+	@Override
+	default DataBlock<?> readBlock(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final DataBlock<?> reuse,
+			final long... gridPosition) throws N5Exception {
+
+		final N5BlockCache blockCache = getBlockCache();
+		if (blockCache == null)
+			return GsonKeyValueN5Reader.super.readBlock(pathName, datasetAttributes, reuse, gridPosition);
+
+		final String normalPath = N5URI.normalizeGroupPath(pathName);
+		final DataBlock<?> cached = blockCache.get(normalPath, gridPosition);
+		if (cached != null)
+			return cached;
+
+		/* cached blocks are shared, never decode them into reuse */
+		final long generation = blockCache.getGeneration(normalPath, gridPosition);
+		final DataBlock<?> block = GsonKeyValueN5Reader.super.readBlock(normalPath, datasetAttributes, (DataBlock<?>)null, gridPosition);
+		if (block != null)
+			blockCache.put(normalPath, gridPosition, block, generation);
+		return block;
+	}
+
+	/**
+	 * Attributes read from the cache are parsed from the cached JSON without
+	 * copying it. JSON elements requested as attributes may be parts of the
+	 * cached JSON, copy them so that the caller cannot modify the cache.
+	 */
+	@SuppressWarnings("unchecked")
+	default <T> T copyIfCached(final T attribute) {
+
+		if (cacheMeta() && attribute instanceof JsonElement)
+			return (T)((JsonElement)attribute).deepCopy();
+		return attribute;
+	}
+
 	@Override
 	default boolean exists(final String pathName) {
 
@@ -58,6 +58,8 @@ import java.io.UncheckedIOException;
 import java.util.Arrays;
 
 import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.cache.N5BlockCache;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -143,6 +145,11 @@ public interface CachedGsonKeyValueN5Writer extends CachedGsonKeyValueN5Reader,
 
 		GsonKeyValueN5Writer.super.writeAttributes(normalGroupPath, attributes);
 
+		/* blocks decoded with previous dataset attributes are stale */
+		final N5BlockCache blockCache = getBlockCache();
+		if (blockCache != null && CachedGsonKeyValueN5Reader.hasDatasetAttributes(attributes))
+			blockCache.invalidate(normalGroupPath);
+
 		if (cacheMeta()) {
 			JsonElement nullRespectingAttributes = attributes;
 			/*
@@ -157,6 +164,9 @@ public interface CachedGsonKeyValueN5Writer extends CachedGsonKeyValueN5Reader,
 			 */
 			if (!getGson().serializeNulls()) {
 				nullRespectingAttributes = getGson().toJsonTree(attributes);
+			} else if (attributes != null) {
+				/* cached attributes are read without copying, keep the caller from modifying them */
+				nullRespectingAttributes = attributes.deepCopy();
 			}
 			/* Update the cache, and write to the writer */
 			getCache().updateCacheInfo(normalGroupPath, N5KeyValueReader.ATTRIBUTES_JSON, nullRespectingAttributes);
@@ -185,7 +195,88 @@ public interface CachedGsonKeyValueN5Writer extends CachedGsonKeyValueN5Reader,
 			getCache().removeCache(parentPath, normalPath);
 		}
 
+		final N5BlockCache blockCache = getBlockCache();
+		if (blockCache != null)
+			blockCache.invalidate(normalPath);
+
 		/* an IOException should have occurred if anything had failed midway */
 		return true;
 	}
+
+	@Override
+	default <T> void writeBlock(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final DataBlock<T> dataBlock) throws N5Exception {
+
+		try {
+			GsonKeyValueN5Writer.super.writeBlock(path, datasetAttributes, dataBlock);
+		} finally {
+			final N5BlockCache blockCache = getBlockCache();
+			if (blockCache != null)
+				blockCache.invalidate(N5URI.normalizeGroupPath(path), dataBlock.getGridPosition());
+		}
+	}
+
+	@Override
+	default void writeRawBlock(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final ReadData blockData,
+			final long... gridPosition) throws N5Exception {
+
+		try {
+			GsonKeyValueN5Writer.super.writeRawBlock(path, datasetAttributes, blockData, gridPosition);
+		} finally {
+			final N5BlockCache blockCache = getBlockCache();
+			if (blockCache != null)
+				blockCache.invalidate(N5URI.normalizeGroupPath(path), gridPosition);
+		}
+	}
+
+	/**
+	 * With cached meta data, the cached attributes of the dataset are also
+	 * consulted, so that callers that pass attributes without the index
+	 * update it.
+	 */
+	@Override
+	default boolean isBlockIndexed(final String path, final DatasetAttributes datasetAttributes) {
+
+		if (datasetAttributes.hasBlockIndex())
+			return true;
+		if (!cacheMeta())
+			return false;
+
+		final DatasetAttributes storedAttributes = getDatasetAttributes(path);
+		return storedAttributes != null && storedAttributes.hasBlockIndex();
+	}
+
+	@Override
+	default boolean deleteBlock(
+			final String path,
+			final long... gridPosition) throws N5Exception {
+
+		try {
+			return GsonKeyValueN5Writer.super.deleteBlock(path, gridPosition);
+		} finally {
+			final N5BlockCache blockCache = getBlockCache();
+			if (blockCache != null)
+				blockCache.invalidate(N5URI.normalizeGroupPath(path), gridPosition);
+		}
+	}
+
+	@Override
+	default boolean deleteBlock(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final long... gridPosition) throws N5Exception {
+
+		try {
+			return GsonKeyValueN5Writer.super.deleteBlock(path, datasetAttributes, gridPosition);
+		} finally {
+			final N5BlockCache blockCache = getBlockCache();
+			if (blockCache != null)
+				blockCache.invalidate(N5URI.normalizeGroupPath(path), gridPosition);
+		}
+	}
 }
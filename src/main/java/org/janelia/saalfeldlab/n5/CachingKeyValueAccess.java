@@ -0,0 +1,1030 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * A {@link KeyValueAccess} that caches the raw bytes of keys read from
+ * another {@link KeyValueAccess}, most useful for remote backends like
+ * {@link HttpKeyValueAccess}.
+ * <p>
+ * Keys are cached in a bounded memory tier. Keys evicted from the memory tier
+ * are spilled to an optional bounded directory on the local disk, and moved
+ * back to memory when they are read again. Both tiers evict least recently
+ * used keys first.
+ * <p>
+ * Keys are read lazily.  A whole key is read and cached only when all of its
+ * data is accessed, {@link ReadData#slice(long, long) slices} of a key that
+ * is not cached are read as byte ranges from the wrapped access and cached
+ * per range, e.g. the index and the blocks of a shard.  Ranges of a key are
+ * invalidated together with the key.
+ * <p>
+ * Cached keys are trusted for {@code maxAgeMillis}. After that, they are
+ * revalidated if the wrapped access implements {@link Validator} (e.g. by
+ * ETag or Last-Modified for HTTP) and read again if they changed or cannot be
+ * validated. Keys written or deleted through this access are removed from
+ * the cache.
+ */
+public class CachingKeyValueAccess implements KeyValueAccess {
+
+	/**
+	 * Provides a token that changes whenever the content of a key changes.
+	 */
+	public interface Validator {
+
+		/**
+		 * Get a token that identifies the current content of a key, e.g. an
+		 * HTTP ETag or Last-Modified date.
+		 *
+		 * @param normalPath
+		 *            is expected to be in normalized form, no further
+		 *            efforts are made to normalize it.
+		 * @return the token or null if the content cannot be validated
+		 * @throws IOException
+		 *             if the token could not be retrieved
+		 * @throws N5Exception.N5NoSuchKeyException
+		 *             if the key does not exist
+		 */
+		String getValidator(String normalPath) throws IOException;
+	}
+
+	private static final class Entry {
+
+		private final byte[] data;
+		private final Path file;
+		private final long size;
+		private final String validator;
+		private long validatedAt;
+
+		Entry(final byte[] data, final Path file, final long size, final String validator, final long validatedAt) {
+
+			this.data = data;
+			this.file = file;
+			this.size = size;
+			this.validator = validator;
+			this.validatedAt = validatedAt;
+		}
+	}
+
+	/**
+	 * A read of a key or a spill of an evicted key in progress. An
+	 * invalidation of the key while it is in progress prevents it from
+	 * being cached, invalidations of other keys do not.
+	 */
+	private static final class Pending {
+
+		private final String normalPath;
+		private final Entry entry;
+		private boolean invalidated = false;
+
+		Pending(final String normalPath, final Entry entry) {
+
+			this.normalPath = normalPath;
+			this.entry = entry;
+		}
+	}
+
+	private static final char RANGE_SEPARATOR = '\0';
+
+	private final KeyValueAccess kva;
+
+	private final Validator validator;
+
+	private final long maxMemoryBytes;
+
+	private final Path spillDirectory;
+
+	private final long maxDiskBytes;
+
+	private final long maxAgeMillis;
+
+	private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final LinkedHashMap<String, Entry> disk = new LinkedHashMap<>(16, 0.75f, true);
+
+	/* the cache keys of the byte ranges that may be cached for a key */
+	private final HashMap<String, HashSet<String>> ranges = new HashMap<>();
+
+	private long memoryBytes = 0;
+	private long diskBytes = 0;
+
+	private final ArrayList<Pending> pending = new ArrayList<>();
+
+	private long memoryHitCount = 0;
+	private long diskHitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+
+	/**
+	 * Creates a memory-only cache that never revalidates cached keys.
+	 *
+	 * @param kva
+	 *            the cached access
+	 * @param maxMemoryBytes
+	 *            the maximum number of bytes cached in memory
+	 */
+	public CachingKeyValueAccess(final KeyValueAccess kva, final long maxMemoryBytes) {
+
+		this(kva, maxMemoryBytes, null, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a two-level cache.
+	 *
+	 * @param kva
+	 *            the cached access
+	 * @param maxMemoryBytes
+	 *            the maximum number of bytes cached in memory
+	 * @param spillDirectory
+	 *            directory for keys evicted from memory, created if it does
+	 *            not exist, or null to cache in memory only
+	 * @param maxDiskBytes
+	 *            the maximum number of bytes cached in {@code spillDirectory}
+	 * @param maxAgeMillis
+	 *            milliseconds after which cached keys are revalidated,
+	 *            {@link Long#MAX_VALUE} to never revalidate
+	 * @throws N5IOException
+	 *             if the spill directory cannot be created
+	 */
+	public CachingKeyValueAccess(
+			final KeyValueAccess kva,
+			final long maxMemoryBytes,
+			final Path spillDirectory,
+			final long maxDiskBytes,
+			final long maxAgeMillis) throws N5IOException {
+
+		if (maxMemoryBytes < 0 || maxDiskBytes < 0 || maxAgeMillis < 0)
+			throw new IllegalArgumentException("Cache limits must not be negative.");
+
+		this.kva = kva;
+		this.validator = kva instanceof Validator ? (Validator)kva : null;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.spillDirectory = spillDirectory;
+		this.maxDiskBytes = maxDiskBytes;
+		this.maxAgeMillis = maxAgeMillis;
+
+		if (spillDirectory != null) {
+			try {
+				Files.createDirectories(spillDirectory);
+			} catch (final IOException e) {
+				throw new N5IOException("Could not create spill directory " + spillDirectory, e);
+			}
+		}
+	}
+
+	public KeyValueAccess getKeyValueAccess() {
+
+		return kva;
+	}
+
+	@Override
+	public String[] components(final String path) {
+
+		return kva.components(path);
+	}
+
+	@Override
+	public String compose(final URI uri, final String... components) {
+
+		return kva.compose(uri, components);
+	}
+
+	@Override
+	@Deprecated
+	public String compose(final String... components) {
+
+		return kva.compose(components);
+	}
+
+	@Override
+	public String parent(final String path) {
+
+		return kva.parent(path);
+	}
+
+	@Override
+	public String relativize(final String path, final String base) {
+
+		return kva.relativize(path, base);
+	}
+
+	@Override
+	public String normalize(final String path) {
+
+		return kva.normalize(path);
+	}
+
+	@Override
+	public URI uri(final String normalPath) throws URISyntaxException {
+
+		return kva.uri(normalPath);
+	}
+
+	@Override
+	public boolean exists(final String normalPath) {
+
+		return isCached(normalPath) || kva.exists(normalPath);
+	}
+
+	@Override
+	public boolean isDirectory(final String normalPath) {
+
+		return kva.isDirectory(normalPath);
+	}
+
+	@Override
+	public boolean isFile(final String normalPath) {
+
+		return isCached(normalPath) || kva.isFile(normalPath);
+	}
+
+	/**
+	 * Create a read-only channel on a key.  A cached key is served from the
+	 * cache.  Otherwise, nothing is read until the data of the channel is
+	 * accessed, and slices of its {@link LockedChannel#newReadData()} read
+	 * and cache only their byte range.
+	 */
+	@Override
+	public LockedChannel lockForReading(final String normalPath) throws IOException {
+
+		return lockForReading(normalPath, 0, -1);
+	}
+
+	/**
+	 * Create a read-only channel on a byte range of a key.  Ranges of cached
+	 * keys are served from the cache, other ranges are read from the wrapped
+	 * access and cached per range when they are accessed.
+	 */
+	@Override
+	public LockedChannel lockForReading(final String normalPath, final long startByte, final long size) throws IOException {
+
+		if (startByte < 0)
+			throw new IllegalArgumentException("startByte must not be negative");
+
+		final byte[] data = getCached(normalPath, normalPath);
+		if (data == null)
+			return new CachingLockedChannel(normalPath, startByte, size);
+
+		final int start = (int)Math.min(startByte, data.length);
+		final int end = size < 0 ? data.length : (int)Math.min(startByte + size, data.length);
+		return new ByteArrayLockedChannel(data, start, end - start);
+	}
+
+	@Override
+	public LockedChannel lockForWriting(final String normalPath) throws IOException {
+
+		invalidate(normalPath);
+		return new InvalidatingLockedChannel(kva.lockForWriting(normalPath), normalPath);
+	}
+
+	@Override
+	public String[] listDirectories(final String normalPath) throws IOException {
+
+		return kva.listDirectories(normalPath);
+	}
+
+	@Override
+	public String[] list(final String normalPath) throws IOException {
+
+		return kva.list(normalPath);
+	}
+
+	@Override
+	public ListEntry[] listEntries(final String normalPath) throws IOException {
+
+		return kva.listEntries(normalPath);
+	}
+
+	@Override
+	public void createDirectories(final String normalPath) throws IOException {
+
+		kva.createDirectories(normalPath);
+	}
+
+	@Override
+	public void delete(final String normalPath) throws IOException {
+
+		try {
+			kva.delete(normalPath);
+		} finally {
+			invalidateRecursive(normalPath);
+		}
+	}
+
+	/**
+	 * Removes a key from the cache.
+	 *
+	 * @param normalPath
+	 *            is expected to be in normalized form, no further
+	 *            efforts are made to normalize it.
+	 */
+	public synchronized void invalidate(final String normalPath) {
+
+		for (final Pending p : pending)
+			if (p.normalPath.equals(normalPath) || isRangeOf(p.normalPath, normalPath))
+				p.invalidated = true;
+		removeMemory(normalPath);
+		removeDisk(normalPath);
+		final HashSet<String> rangeKeys = ranges.remove(normalPath);
+		if (rangeKeys != null) {
+			for (final String rangeKey : rangeKeys) {
+				removeMemory(rangeKey);
+				removeDisk(rangeKey);
+			}
+		}
+	}
+
+	/**
+	 * Removes all keys from the cache and deletes all spilled files.
+	 */
+	public synchronized void clear() {
+
+		for (final Pending p : pending)
+			p.invalidated = true;
+		memory.clear();
+		memoryBytes = 0;
+		for (final Entry entry : disk.values())
+			deleteFile(entry.file);
+		disk.clear();
+		diskBytes = 0;
+		ranges.clear();
+	}
+
+	public synchronized long getMemoryBytes() {
+
+		return memoryBytes;
+	}
+
+	public synchronized long getDiskBytes() {
+
+		return diskBytes;
+	}
+
+	public synchronized long getMemoryHitCount() {
+
+		return memoryHitCount;
+	}
+
+	public synchronized long getDiskHitCount() {
+
+		return diskHitCount;
+	}
+
+	public synchronized long getMissCount() {
+
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+
+		return evictionCount;
+	}
+
+	private synchronized boolean isCached(final String normalPath) {
+
+		final Entry entry = memory.get(normalPath);
+		return entry != null && isFresh(entry);
+	}
+
+	private boolean isFresh(final Entry entry) {
+
+		return System.currentTimeMillis() - entry.validatedAt < maxAgeMillis;
+	}
+
+	/**
+	 * @param cacheKey
+	 *            the key or the {@link #rangeKey(String, long, long) key of a
+	 *            byte range} of the key
+	 * @param normalPath
+	 *            the key
+	 * @return the cached bytes, or null if they are not cached or the key
+	 *         changed since they were cached
+	 */
+	private byte[] getCached(final String cacheKey, final String normalPath) throws IOException {
+
+		final Entry entry;
+		synchronized (this) {
+			final Entry memoryEntry = memory.get(cacheKey);
+			entry = memoryEntry != null ? memoryEntry : disk.get(cacheKey);
+		}
+		if (entry == null || !(isFresh(entry) || revalidate(normalPath, entry)))
+			return null;
+
+		if (entry.data != null) {
+			synchronized (this) {
+				++memoryHitCount;
+			}
+			return entry.data;
+		}
+
+		final byte[] data;
+		try {
+			data = Files.readAllBytes(entry.file);
+		} catch (final NoSuchFileException e) {
+			/* evicted meanwhile */
+			return null;
+		}
+		if (data.length != entry.size) {
+			/* replaced by a later spill of the same key */
+			return null;
+		}
+		final List<Pending> evicted;
+		synchronized (this) {
+			++diskHitCount;
+			/* the disk entry is removed or replaced if the key was invalidated or spilled again */
+			if (disk.get(cacheKey) != entry)
+				return data;
+			removeDisk(cacheKey);
+			evicted = putMemory(cacheKey, new Entry(data, null, data.length, entry.validator, entry.validatedAt));
+		}
+		evicted.forEach(this::spill);
+		return data;
+	}
+
+	private boolean revalidate(final String normalPath, final Entry entry) throws IOException {
+
+		if (validator == null || entry.validator == null)
+			return false;
+
+		final String currentValidator;
+		try {
+			currentValidator = validator.getValidator(normalPath);
+		} catch (final N5Exception.N5NoSuchKeyException e) {
+			/* deleted by someone else, do not keep serving it */
+			invalidate(normalPath);
+			throw e;
+		}
+		if (entry.validator.equals(currentValidator)) {
+			synchronized (this) {
+				entry.validatedAt = System.currentTimeMillis();
+			}
+			return true;
+		}
+		invalidate(normalPath);
+		return false;
+	}
+
+	/**
+	 * Reads a byte range of a key from the cache, or from the wrapped access
+	 * if it is not cached.  The range is served from the cached key if the
+	 * whole key is cached, otherwise it is cached by itself.
+	 *
+	 * @param normalPath
+	 *            the key
+	 * @param offset
+	 *            the first byte of the range
+	 * @param length
+	 *            the number of bytes of the range, or -1 for all bytes up to
+	 *            the end of the key
+	 * @return the bytes of the range, fewer if the key ends before the range
+	 * @throws IOException
+	 *             if the key cannot be read
+	 */
+	private ReadData read(final String normalPath, final long offset, final long length) throws IOException {
+
+		final byte[] data = getCached(normalPath, normalPath);
+		if (data != null) {
+			final int start = (int)Math.min(offset, data.length);
+			final int end = length < 0 ? data.length : (int)Math.min(offset + length, data.length);
+			return copy(data, start, end - start);
+		}
+
+		if (offset == 0 && length < 0) {
+			final byte[] fetched = fetch(normalPath, normalPath, offset, length);
+			return copy(fetched, 0, fetched.length);
+		}
+
+		final String rangeKey = rangeKey(normalPath, offset, length);
+		byte[] range = getCached(rangeKey, normalPath);
+		if (range == null)
+			range = fetch(rangeKey, normalPath, offset, length);
+		return copy(range, 0, range.length);
+	}
+
+	/**
+	 * Cached arrays are shared by all readers, callers get a copy so that
+	 * they can neither see nor cause modifications of the cache, e.g.
+	 * through {@link ReadData#allBytes()} or blocks decoded without copying.
+	 */
+	private static ReadData copy(final byte[] data, final int offset, final int length) {
+
+		return ReadData.from(Arrays.copyOfRange(data, offset, offset + length));
+	}
+
+	private byte[] fetch(final String cacheKey, final String normalPath, final long offset, final long length) throws IOException {
+
+		final boolean isRange = !cacheKey.equals(normalPath);
+		final Pending fetch = new Pending(cacheKey, null);
+		synchronized (this) {
+			++missCount;
+			pending.add(fetch);
+		}
+
+		final String entryValidator;
+		final long fetchedAt;
+		final byte[] data;
+		try {
+			/* get the validator first, a change during the read is detected later */
+			entryValidator = validator != null && maxAgeMillis != Long.MAX_VALUE ? validator.getValidator(normalPath) : null;
+			fetchedAt = System.currentTimeMillis();
+			try (final LockedChannel channel = isRange
+					? kva.lockForReading(normalPath, offset, length)
+					: kva.lockForReading(normalPath)) {
+				data = channel.newReadData().allBytes();
+			}
+		} catch (final IOException | RuntimeException e) {
+			synchronized (this) {
+				pending.remove(fetch);
+			}
+			throw e;
+		}
+
+		final Entry entry = new Entry(data, null, data.length, entryValidator, fetchedAt);
+		final List<Pending> evicted;
+		synchronized (this) {
+			pending.remove(fetch);
+			if (fetch.invalidated)
+				return data;
+			if (isRange)
+				ranges.computeIfAbsent(normalPath, k -> new HashSet<>()).add(cacheKey);
+			removeMemory(cacheKey);
+			removeDisk(cacheKey);
+			evicted = putMemory(cacheKey, entry);
+		}
+		evicted.forEach(this::spill);
+		return data;
+	}
+
+	/**
+	 * Puts an entry into the memory tier and evicts least recently used
+	 * entries. Must be called while holding the lock.
+	 *
+	 * @return the pending spills of the evicted entries, to be
+	 *         {@link #spill(Pending) spilled} without holding the lock
+	 */
+	private List<Pending> putMemory(final String normalPath, final Entry entry) {
+
+		final ArrayList<Pending> evicted = new ArrayList<>();
+		if (entry.size > maxMemoryBytes) {
+			evict(normalPath, entry, evicted);
+			return evicted;
+		}
+
+		memory.put(normalPath, entry);
+		memoryBytes += entry.size;
+		final Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+		while (memoryBytes > maxMemoryBytes) {
+			final Map.Entry<String, Entry> eldest = it.next();
+			memoryBytes -= eldest.getValue().size;
+			it.remove();
+			evict(eldest.getKey(), eldest.getValue(), evicted);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Registers the spill of an entry evicted from the memory tier, or drops
+	 * it if it does not fit into the disk tier. Must be called while holding
+	 * the lock.
+	 */
+	private void evict(final String normalPath, final Entry entry, final List<Pending> evicted) {
+
+		if (spillDirectory == null || entry.size > maxDiskBytes) {
+			++evictionCount;
+			dropped(normalPath);
+			return;
+		}
+		final Pending spill = new Pending(normalPath, entry);
+		pending.add(spill);
+		evicted.add(spill);
+	}
+
+	/**
+	 * Writes an evicted entry to the disk tier. The file is written under a
+	 * temporary name and atomically moved into place, so concurrent readers
+	 * never see a partially written file. If the file cannot be written, the
+	 * entry is dropped.
+	 */
+	private void spill(final Pending spill) {
+
+		final String normalPath = spill.normalPath;
+		final Entry entry = spill.entry;
+		final Path file = spillDirectory.resolve(fileName(normalPath));
+		Path tmp = null;
+		try {
+			tmp = Files.createTempFile(spillDirectory, null, ".tmp");
+			Files.write(tmp, entry.data);
+			Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException | UncheckedIOException e) {
+			if (tmp != null)
+				tmp.toFile().delete();
+			synchronized (this) {
+				pending.remove(spill);
+				++evictionCount;
+				dropped(normalPath);
+			}
+			return;
+		}
+		synchronized (this) {
+			pending.remove(spill);
+			if (spill.invalidated || memory.containsKey(normalPath)) {
+				if (!disk.containsKey(normalPath))
+					deleteFile(file);
+				return;
+			}
+			/* the previous disk entry of this key shared the file that was just replaced */
+			final Entry previous = disk.remove(normalPath);
+			if (previous != null)
+				diskBytes -= previous.size;
+			disk.put(normalPath, new Entry(null, file, entry.size, entry.validator, entry.validatedAt));
+			diskBytes += entry.size;
+			final Iterator<Map.Entry<String, Entry>> it = disk.entrySet().iterator();
+			while (diskBytes > maxDiskBytes) {
+				final Map.Entry<String, Entry> eldest = it.next();
+				diskBytes -= eldest.getValue().size;
+				deleteFile(eldest.getValue().file);
+				it.remove();
+				++evictionCount;
+				dropped(eldest.getKey());
+			}
+		}
+	}
+
+	private synchronized void invalidateRecursive(final String normalPath) {
+
+		final String prefix = normalPath.endsWith("/") ? normalPath : normalPath + "/";
+		final String key = normalPath.endsWith("/") ? normalPath.substring(0, normalPath.length() - 1) : normalPath;
+		for (final Pending p : pending)
+			if (p.normalPath.equals(key) || isRangeOf(p.normalPath, key) || p.normalPath.startsWith(prefix))
+				p.invalidated = true;
+		final ArrayList<String> removed = new ArrayList<>();
+		for (final String path : memory.keySet())
+			if (path.equals(key) || isRangeOf(path, key) || path.startsWith(prefix))
+				removed.add(path);
+		for (final String path : disk.keySet())
+			if (path.equals(key) || isRangeOf(path, key) || path.startsWith(prefix))
+				removed.add(path);
+		for (final String path : removed) {
+			removeMemory(path);
+			removeDisk(path);
+		}
+		ranges.keySet().removeIf(path -> path.equals(key) || path.startsWith(prefix));
+	}
+
+	/**
+	 * Forgets a byte range that was dropped from the cache, unless it is
+	 * still cached or about to be.  Must be called while holding the lock.
+	 */
+	private void dropped(final String cacheKey) {
+
+		final int separator = cacheKey.indexOf(RANGE_SEPARATOR);
+		if (separator < 0 || memory.containsKey(cacheKey) || disk.containsKey(cacheKey))
+			return;
+		for (final Pending p : pending)
+			if (p.normalPath.equals(cacheKey))
+				return;
+
+		final String normalPath = cacheKey.substring(0, separator);
+		final HashSet<String> rangeKeys = ranges.get(normalPath);
+		if (rangeKeys != null && rangeKeys.remove(cacheKey) && rangeKeys.isEmpty())
+			ranges.remove(normalPath);
+	}
+
+	/**
+	 * @return the cache key of a byte range of a key, the separator does not
+	 *         occur in keys
+	 */
+	private static String rangeKey(final String normalPath, final long offset, final long length) {
+
+		return normalPath + RANGE_SEPARATOR + offset + "-" + length;
+	}
+
+	private static boolean isRangeOf(final String cacheKey, final String normalPath) {
+
+		return cacheKey.length() > normalPath.length()
+				&& cacheKey.charAt(normalPath.length()) == RANGE_SEPARATOR
+				&& cacheKey.startsWith(normalPath);
+	}
+
+	private void removeMemory(final String normalPath) {
+
+		final Entry entry = memory.remove(normalPath);
+		if (entry != null)
+			memoryBytes -= entry.size;
+	}
+
+	private void removeDisk(final String normalPath) {
+
+		final Entry entry = disk.remove(normalPath);
+		if (entry != null) {
+			diskBytes -= entry.size;
+			deleteFile(entry.file);
+		}
+	}
+
+	/**
+	 * Deletes a spilled file. The entry of the file is already dropped from
+	 * the disk tier, so a failure does not fail the invalidation. A leftover
+	 * file is replaced by the next spill of its key.
+	 */
+	private static void deleteFile(final Path file) {
+
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {}
+	}
+
+	private static String fileName(final String normalPath) {
+
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalPath.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder name = new StringBuilder(2 * digest.length);
+			for (final byte b : digest)
+				name.append(String.format("%02x", b & 0xff));
+			return name.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A read-only {@link LockedChannel} on cached bytes.
+	 */
+	private static class ByteArrayLockedChannel implements LockedChannel {
+
+		private final byte[] data;
+		private final int offset;
+		private final int length;
+
+		ByteArrayLockedChannel(final byte[] data, final int offset, final int length) {
+
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public Reader newReader() {
+
+			return new InputStreamReader(newInputStream(), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public InputStream newInputStream() {
+
+			return new ByteArrayInputStream(data, offset, length);
+		}
+
+		@Override
+		public ReadData newReadData() {
+
+			return copy(data, offset, length);
+		}
+
+		@Override
+		public Writer newWriter() {
+
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public OutputStream newOutputStream() {
+
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	/**
+	 * A read-only {@link LockedChannel} on a byte range of a key that is not
+	 * cached.  Nothing is read until its data is accessed.
+	 */
+	private class CachingLockedChannel implements LockedChannel {
+
+		private final String normalPath;
+		private final long startByte;
+		private final long size;
+
+		CachingLockedChannel(final String normalPath, final long startByte, final long size) {
+
+			this.normalPath = normalPath;
+			this.startByte = startByte;
+			this.size = size;
+		}
+
+		@Override
+		public Reader newReader() throws IOException {
+
+			return new InputStreamReader(newInputStream(), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public InputStream newInputStream() throws IOException {
+
+			return newReadData().inputStream();
+		}
+
+		@Override
+		public ReadData newReadData() {
+
+			return new CachingReadData(normalPath, startByte, size);
+		}
+
+		@Override
+		public Writer newWriter() {
+
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public OutputStream newOutputStream() {
+
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	/**
+	 * A lazy {@link ReadData} on a byte range of a key.  Accessing its bytes
+	 * reads and caches the range, {@link #slice(long, long) slices} read and
+	 * cache only their own range.
+	 */
+	private class CachingReadData implements ReadData {
+
+		private final String normalPath;
+		private final long offset;
+		private final long length;
+		private ReadData bytes;
+
+		CachingReadData(final String normalPath, final long offset, final long length) {
+
+			this.normalPath = normalPath;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public long length() throws IOException {
+
+			return bytes == null ? length : bytes.length();
+		}
+
+		@Override
+		public InputStream inputStream() throws IOException {
+
+			return materialize().inputStream();
+		}
+
+		@Override
+		public byte[] allBytes() throws IOException {
+
+			return materialize().allBytes();
+		}
+
+		@Override
+		public ReadData materialize() throws IOException {
+
+			if (bytes == null)
+				bytes = read(normalPath, offset, length);
+			return bytes;
+		}
+
+		@Override
+		public ReadData slice(final long offset, final long length) throws IOException {
+
+			if (bytes != null)
+				return bytes.slice(offset, length);
+
+			if (offset < 0 || (this.length >= 0 && (offset > this.length || offset + length > this.length)))
+				throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + length) + ") out of bounds [0, " + this.length + ")");
+			final long sliceLength = length < 0 && this.length >= 0 ? this.length - offset : length;
+			return new CachingReadData(normalPath, this.offset + offset, sliceLength);
+		}
+	}
+
+	/**
+	 * Removes a key from the cache once it has been written.
+	 */
+	private class InvalidatingLockedChannel implements LockedChannel {
+
+		private final LockedChannel channel;
+		private final String normalPath;
+
+		InvalidatingLockedChannel(final LockedChannel channel, final String normalPath) {
+
+			this.channel = channel;
+			this.normalPath = normalPath;
+		}
+
+		@Override
+		public Reader newReader() throws IOException {
+
+			return channel.newReader();
+		}
+
+		@Override
+		public InputStream newInputStream() throws IOException {
+
+			return channel.newInputStream();
+		}
+
+		@Override
+		public ReadData newReadData() throws IOException {
+
+			return channel.newReadData();
+		}
+
+		@Override
+		public Writer newWriter() throws IOException {
+
+			return channel.newWriter();
+		}
+
+		@Override
+		public OutputStream newOutputStream() throws IOException {
+
+			return channel.newOutputStream();
+		}
+
+		@Override
+		public void write(final long position, final ReadData data) throws IOException {
+
+			channel.write(position, data);
+		}
+
+		@Override
+		public boolean delete() throws IOException {
+
+			return channel.delete();
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			try {
+				channel.close();
+			} finally {
+				invalidate(normalPath);
+			}
+		}
+	}
+}
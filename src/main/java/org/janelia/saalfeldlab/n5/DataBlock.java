@@ -115,6 +115,35 @@ public interface DataBlock<T> {
 		return n;
 	}
 
+	/**
+	 * Estimates the number of bytes held by the data of a {@link DataBlock}.
+	 * This is the size of the serialized (uncompressed) block data.
+	 *
+	 * @param dataBlock
+	 *            the data block
+	 * @return the number of bytes
+	 */
+	static long numBytes(final DataBlock<?> dataBlock) {
+
+		final Object data = dataBlock.getData();
+		final long n = dataBlock.getNumElements();
+		if (data instanceof byte[])
+			return ((byte[])data).length;
+		else if (data instanceof short[])
+			return 2 * n;
+		else if (data instanceof int[] || data instanceof float[])
+			return 4 * n;
+		else if (data instanceof long[] || data instanceof double[])
+			return 8 * n;
+		else if (data instanceof String[]) {
+			long numBytes = 0;
+			for (final String string : (String[])data)
+				numBytes += (string == null ? 0 : string.length()) + 1;
+			return numBytes;
+		} else
+			return n;
+	}
+
 	/**
 	 * Factory for creating {@code DataBlock<T>}.
 	 *
@@ -70,6 +70,17 @@ import org.janelia.saalfeldlab.n5.codec.N5Codecs;
  * <li>{@link Compression} : compression</li>
  * </ol>
  *
+ * Optional dataset attributes:
+ *
+ * <ol>
+ * <li>int[] : shardSize</li>
+ * </ol>
+ *
+ * If a shard size is given, blocks are not stored under individual keys but
+ * grouped into shards of {@code shardSize} pixels, each of which holds a grid
+ * of blocks and an index of their locations.  The shard size must be a
+ * multiple of the block size in every dimension.
+ *
  * @author Stephan Saalfeld
  *
  */
@@ -81,6 +92,8 @@ public class DatasetAttributes implements Serializable {
 	public static final String BLOCK_SIZE_KEY = "blockSize";
 	public static final String DATA_TYPE_KEY = "dataType";
 	public static final String COMPRESSION_KEY = "compression";
+	public static final String SHARD_SIZE_KEY = "shardSize";
+	public static final String BLOCK_INDEX_KEY = "blockIndex";
 
 	/* version 0 */
 	protected static final String compressionTypeKey = "compressionType";
@@ -90,6 +103,8 @@ public class DatasetAttributes implements Serializable {
 	private final DataType dataType;
 	private final DataBlockCodec<?> dataBlockCodec;
 	private final Compression compression;
+	private final int[] shardSize;
+	private final boolean blockIndex;
 
 	public DatasetAttributes(
 			final long[] dimensions,
@@ -97,7 +112,32 @@ public class DatasetAttributes implements Serializable {
 			final DataType dataType,
 			final Compression compression) {
 
-		this(dimensions, blockSize, dataType, compression, N5Codecs.createDataBlockCodec(dataType, compression));
+		this(dimensions, blockSize, dataType, compression, (int[])null);
+	}
+
+	/**
+	 * Create attributes for a sharded dataset.
+	 *
+	 * @param dimensions
+	 *            the dataset dimensions
+	 * @param blockSize
+	 *            the block size
+	 * @param dataType
+	 *            the data type
+	 * @param compression
+	 *            the compression of each block
+	 * @param shardSize
+	 *            the shard size in pixels, a multiple of {@code blockSize},
+	 *            or {@code null} if blocks are stored individually
+	 */
+	public DatasetAttributes(
+			final long[] dimensions,
+			final int[] blockSize,
+			final DataType dataType,
+			final Compression compression,
+			final int[] shardSize) {
+
+		this(dimensions, blockSize, dataType, compression, shardSize, N5Codecs.createDataBlockCodec(dataType, compression));
 	}
 
 	protected DatasetAttributes(
@@ -107,16 +147,75 @@ public class DatasetAttributes implements Serializable {
 			final Compression compression,
 			final DataBlockCodec<?> dataBlockCodec) {
 
-		this.dimensions = dimensions;
-		this.blockSize = blockSize;
+		this(dimensions, blockSize, dataType, compression, null, dataBlockCodec);
+	}
+
+	protected DatasetAttributes(
+			final long[] dimensions,
+			final int[] blockSize,
+			final DataType dataType,
+			final Compression compression,
+			final int[] shardSize,
+			final DataBlockCodec<?> dataBlockCodec) {
+
+		this(dimensions, blockSize, dataType, compression, shardSize, dataBlockCodec, false);
+	}
+
+	private DatasetAttributes(
+			final long[] dimensions,
+			final int[] blockSize,
+			final DataType dataType,
+			final Compression compression,
+			final int[] shardSize,
+			final DataBlockCodec<?> dataBlockCodec,
+			final boolean blockIndex) {
+
+		if (shardSize != null) {
+			if (shardSize.length != blockSize.length)
+				throw new IllegalArgumentException("Shard size " + Arrays.toString(shardSize) + " does not match block size " + Arrays.toString(blockSize));
+			for (int d = 0; d < shardSize.length; ++d)
+				if (shardSize[d] <= 0 || shardSize[d] % blockSize[d] != 0)
+					throw new IllegalArgumentException("Shard size " + Arrays.toString(shardSize) + " is not a multiple of block size " + Arrays.toString(blockSize));
+		}
+
+		/* copies, instances are shared between readers of cached metadata */
+		this.dimensions = dimensions.clone();
+		this.blockSize = blockSize.clone();
 		this.dataType = dataType;
 		this.compression = compression;
+		this.shardSize = shardSize == null ? null : shardSize.clone();
 		this.dataBlockCodec = dataBlockCodec;
+		this.blockIndex = blockIndex;
+	}
+
+	/**
+	 * Create a copy of these attributes that enables or disables the
+	 * {@link BlockIndex} of the dataset.
+	 *
+	 * @param blockIndex
+	 *            whether writers maintain a block index
+	 * @return the new attributes
+	 */
+	public DatasetAttributes withBlockIndex(final boolean blockIndex) {
+
+		return new DatasetAttributes(dimensions, blockSize, dataType, compression, shardSize, dataBlockCodec, blockIndex);
 	}
 
+	/**
+	 * @return {@code true} if writers maintain a {@link BlockIndex} of the
+	 *         blocks that exist in this dataset
+	 */
+	public boolean hasBlockIndex() {
+
+		return blockIndex;
+	}
+
+	/**
+	 * @return a copy of the dataset dimensions
+	 */
 	public long[] getDimensions() {
 
-		return dimensions;
+		return dimensions.clone();
 	}
 
 	public int getNumDimensions() {
@@ -124,9 +223,82 @@ public class DatasetAttributes implements Serializable {
 		return dimensions.length;
 	}
 
+	/**
+	 * @return a copy of the block size
+	 */
 	public int[] getBlockSize() {
 
-		return blockSize;
+		return blockSize.clone();
+	}
+
+	/**
+	 * @return {@code true} if blocks of this dataset are grouped into shards
+	 */
+	public boolean isSharded() {
+
+		return shardSize != null;
+	}
+
+	/**
+	 * @return a copy of the shard size in pixels, or {@code null} if this
+	 *         dataset is not sharded
+	 */
+	public int[] getShardSize() {
+
+		return shardSize == null ? null : shardSize.clone();
+	}
+
+	/**
+	 * @return the number of blocks per shard in each dimension
+	 */
+	public int[] getBlocksPerShard() {
+
+		final int[] blocksPerShard = new int[blockSize.length];
+		for (int d = 0; d < blockSize.length; ++d)
+			blocksPerShard[d] = shardSize == null ? 1 : shardSize[d] / blockSize[d];
+		return blocksPerShard;
+	}
+
+	/**
+	 * @return the total number of blocks per shard
+	 */
+	public int getNumBlocksPerShard() {
+
+		return DataBlock.getNumElements(getBlocksPerShard());
+	}
+
+	/**
+	 * Get the position in the shard grid of the shard containing a block.
+	 *
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @return the position of the shard in the shard grid
+	 */
+	public long[] getShardPosition(final long... gridPosition) {
+
+		final int[] blocksPerShard = getBlocksPerShard();
+		final long[] shardPosition = new long[gridPosition.length];
+		for (int d = 0; d < gridPosition.length; ++d)
+			shardPosition[d] = Math.floorDiv(gridPosition[d], blocksPerShard[d]);
+		return shardPosition;
+	}
+
+	/**
+	 * Get the index of a block in the shard containing it.  Blocks are
+	 * enumerated in the order of the block grid with the first dimension
+	 * changing fastest.
+	 *
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @return the index of the block in its shard
+	 */
+	public int getBlockIndexInShard(final long... gridPosition) {
+
+		final int[] blocksPerShard = getBlocksPerShard();
+		int index = 0;
+		for (int d = gridPosition.length - 1; d >= 0; --d)
+			index = index * blocksPerShard[d] + (int)Math.floorMod(gridPosition[d], (long)blocksPerShard[d]);
+		return index;
 	}
 
 	public Compression getCompression() {
@@ -156,10 +328,14 @@ public class DatasetAttributes implements Serializable {
 	public HashMap<String, Object> asMap() {
 
 		final HashMap<String, Object> map = new HashMap<>();
-		map.put(DIMENSIONS_KEY, dimensions);
-		map.put(BLOCK_SIZE_KEY, blockSize);
+		map.put(DIMENSIONS_KEY, getDimensions());
+		map.put(BLOCK_SIZE_KEY, getBlockSize());
 		map.put(DATA_TYPE_KEY, dataType);
 		map.put(COMPRESSION_KEY, compression);
+		if (shardSize != null)
+			map.put(SHARD_SIZE_KEY, getShardSize());
+		if (blockIndex)
+			map.put(BLOCK_INDEX_KEY, true);
 		return map;
 	}
 
@@ -168,6 +344,7 @@ public class DatasetAttributes implements Serializable {
 			final DataType dataType,
 			int[] blockSize,
 			Compression compression,
+			final int[] shardSize,
 			final String compressionVersion0Name) {
 
 		if (blockSize == null)
@@ -194,6 +371,6 @@ public class DatasetAttributes implements Serializable {
 			}
 		}
 
-		return new DatasetAttributes(dimensions, blockSize, dataType, compression);
+		return new DatasetAttributes(dimensions, blockSize, dataType, compression, shardSize);
 	}
 }
@@ -0,0 +1,273 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * Copies the blocks of a dataset for
+ * {@link N5Writer#copyDataset(N5Reader, String, String, DatasetAttributes, Executor)}.
+ * <p>
+ * Only blocks that exist in the source are copied. If both datasets encode
+ * their blocks the same way, the encoded blocks are moved with
+ * {@link N5Reader#readRawBlock(String, DatasetAttributes, long...)} and
+ * {@link N5Writer#writeRawBlock(String, DatasetAttributes, ReadData, long...)},
+ * otherwise every source block is read and decoded once and scattered into
+ * the target blocks that it overlaps. A target block is encoded and written
+ * as soon as all source blocks that overlap it were scattered into it.
+ */
+class DatasetCopy {
+
+	private DatasetCopy() {}
+
+	static void copy(
+			final N5Reader source,
+			final String sourcePath,
+			final N5Writer target,
+			final String targetPath,
+			final DatasetAttributes targetAttributes,
+			final Executor executor) throws N5Exception {
+
+		final DatasetAttributes sourceAttributes = source.getDatasetAttributes(sourcePath);
+		if (sourceAttributes == null)
+			throw new N5Exception(sourcePath + " is not a dataset");
+		if (!Arrays.equals(sourceAttributes.getDimensions(), targetAttributes.getDimensions()))
+			throw new N5Exception("Cannot copy " + sourcePath + " into a dataset with different dimensions");
+		if (sourceAttributes.getDataType() != targetAttributes.getDataType())
+			throw new N5Exception("Cannot copy " + sourcePath + " into a dataset with a different data type");
+
+		final boolean raw = isRawCopy(sourceAttributes, targetAttributes);
+		if (!raw && sourceAttributes.getDataType() == DataType.OBJECT)
+			throw new N5Exception("Cannot transcode serialized objects from " + sourcePath);
+
+		final List<long[]> sourceBlocks = source.listBlockGridPositions(sourcePath);
+		target.createDataset(targetPath, targetAttributes);
+
+		if (raw) {
+			forEach(sourceBlocks, executor, sourcePath, gridPosition -> {
+				final ReadData blockData = source.readRawBlock(sourcePath, sourceAttributes, gridPosition);
+				if (blockData != null)
+					target.writeRawBlock(targetPath, targetAttributes, blockData, gridPosition);
+			});
+		} else {
+			final Map<List<Long>, TargetBlock> targetBlocks = targetBlocks(sourceBlocks, sourceAttributes, targetAttributes);
+			final int[] sourceBlockSize = sourceAttributes.getBlockSize();
+
+			/* in grid order, so that target blocks are completed and released early */
+			final List<long[]> orderedSourceBlocks = new ArrayList<>(sourceBlocks);
+			orderedSourceBlocks.sort(DatasetCopy::compareGridOrder);
+			forEach(orderedSourceBlocks, executor, sourcePath, gridPosition -> {
+				final DataBlock<?> sourceBlock = source.readBlock(sourcePath, sourceAttributes, gridPosition);
+				final long[] sourceMin = new long[gridPosition.length];
+				for (int d = 0; d < sourceMin.length; ++d)
+					sourceMin[d] = gridPosition[d] * sourceBlockSize[d];
+				forEachOverlap(gridPosition, sourceAttributes, targetAttributes, targetGridPosition -> {
+					final DataBlock<?> complete = targetBlocks.get(key(targetGridPosition)).scatter(sourceBlock, sourceMin);
+					if (complete != null)
+						target.writeBlock(targetPath, targetAttributes, complete);
+				});
+			});
+		}
+	}
+
+	/**
+	 * A target block that is assembled from the source blocks that overlap
+	 * it.
+	 */
+	static class TargetBlock {
+
+		private final DataType dataType;
+		private final long[] gridPosition;
+		private final long[] min;
+		private final long[] size;
+		private int remaining = 0;
+		private DataBlock<?> dataBlock = null;
+
+		TargetBlock(final long[] gridPosition, final DatasetAttributes targetAttributes) {
+
+			final long[] dimensions = targetAttributes.getDimensions();
+			final int[] blockSize = targetAttributes.getBlockSize();
+			dataType = targetAttributes.getDataType();
+			this.gridPosition = gridPosition;
+			min = new long[gridPosition.length];
+			size = new long[gridPosition.length];
+			for (int d = 0; d < gridPosition.length; ++d) {
+				min[d] = gridPosition[d] * blockSize[d];
+				size[d] = Math.min(blockSize[d], dimensions[d] - min[d]);
+			}
+		}
+
+		/**
+		 * Copies the overlap of a source block into this block.
+		 *
+		 * @param sourceBlock
+		 *            the source block, or {@code null} if it does not exist
+		 *            anymore
+		 * @param sourceMin
+		 *            the position of the source block in pixels
+		 * @return the complete block after the last overlapping source block
+		 *         was scattered into it, {@code null} otherwise
+		 */
+		synchronized DataBlock<?> scatter(final DataBlock<?> sourceBlock, final long[] sourceMin) {
+
+			if (dataBlock == null) {
+				final int[] intSize = new int[size.length];
+				for (int d = 0; d < size.length; ++d)
+					intSize[d] = (int)size[d];
+				dataBlock = dataType.createDataBlock(intSize, gridPosition);
+			}
+			if (sourceBlock != null)
+				RegionCopy.copy(sourceBlock.getData(), sourceMin, sourceBlock.getSize(), dataBlock.getData(), min, size);
+			if (--remaining > 0)
+				return null;
+
+			final DataBlock<?> complete = dataBlock;
+			dataBlock = null;
+			return complete;
+		}
+	}
+
+	/**
+	 * Encoded blocks can be copied if they have the same size and are
+	 * encoded with the same codec. The sharding of the datasets does not
+	 * change the encoding of a block.
+	 */
+	static boolean isRawCopy(final DatasetAttributes sourceAttributes, final DatasetAttributes targetAttributes) {
+
+		return sourceAttributes.getDataType() == targetAttributes.getDataType()
+				&& Arrays.equals(sourceAttributes.getDimensions(), targetAttributes.getDimensions())
+				&& Arrays.equals(sourceAttributes.getBlockSize(), targetAttributes.getBlockSize())
+				&& sourceAttributes.getCompression().equals(targetAttributes.getCompression());
+	}
+
+	/**
+	 * @return the target blocks that overlap the given source blocks, each
+	 *         with the number of source blocks that overlap it
+	 */
+	static Map<List<Long>, TargetBlock> targetBlocks(
+			final List<long[]> sourceBlocks,
+			final DatasetAttributes sourceAttributes,
+			final DatasetAttributes targetAttributes) {
+
+		final Map<List<Long>, TargetBlock> targetBlocks = new HashMap<>();
+		for (final long[] sourceBlock : sourceBlocks) {
+			forEachOverlap(sourceBlock, sourceAttributes, targetAttributes, gridPosition -> {
+				final TargetBlock targetBlock = targetBlocks.computeIfAbsent(
+						key(gridPosition),
+						k -> new TargetBlock(gridPosition.clone(), targetAttributes));
+				++targetBlock.remaining;
+			});
+		}
+		return targetBlocks;
+	}
+
+	/**
+	 * Passes the grid positions of all target blocks that overlap a source
+	 * block to {@code consumer}. The passed array is reused.
+	 */
+	private static void forEachOverlap(
+			final long[] sourceBlock,
+			final DatasetAttributes sourceAttributes,
+			final DatasetAttributes targetAttributes,
+			final Consumer<long[]> consumer) {
+
+		final long[] dimensions = targetAttributes.getDimensions();
+		final int[] sourceBlockSize = sourceAttributes.getBlockSize();
+		final int[] targetBlockSize = targetAttributes.getBlockSize();
+		final int n = dimensions.length;
+
+		final long[] gridMin = new long[n];
+		final long[] gridMax = new long[n];
+		for (int d = 0; d < n; ++d) {
+			final long min = sourceBlock[d] * sourceBlockSize[d];
+			final long max = Math.min(min + sourceBlockSize[d], dimensions[d]) - 1;
+			gridMin[d] = min / targetBlockSize[d];
+			gridMax[d] = max / targetBlockSize[d];
+		}
+		final long[] gridPosition = gridMin.clone();
+		for (int d = 0; d < n; ) {
+			consumer.accept(gridPosition);
+			for (d = 0; d < n; ++d) {
+				if (++gridPosition[d] <= gridMax[d])
+					break;
+				gridPosition[d] = gridMin[d];
+			}
+		}
+	}
+
+	private static List<Long> key(final long[] gridPosition) {
+
+		final List<Long> key = new ArrayList<>(gridPosition.length);
+		for (final long p : gridPosition)
+			key.add(p);
+		return key;
+	}
+
+	/**
+	 * Orders grid positions with the first dimension changing fastest.
+	 */
+	private static int compareGridOrder(final long[] a, final long[] b) {
+
+		for (int d = a.length - 1; d >= 0; --d) {
+			final int c = Long.compare(a[d], b[d]);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+	private static void forEach(
+			final List<long[]> gridPositions,
+			final Executor executor,
+			final String sourcePath,
+			final Consumer<long[]> copyBlock) throws N5Exception {
+
+		final List<CompletableFuture<Void>> copies = new ArrayList<>(gridPositions.size());
+		for (final long[] gridPosition : gridPositions)
+			copies.add(CompletableFuture.runAsync(() -> copyBlock.accept(gridPosition), executor));
+
+		try {
+			CompletableFuture.allOf(copies.toArray(new CompletableFuture<?>[0])).join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof N5Exception)
+				throw (N5Exception)e.getCause();
+			throw new N5Exception("Failed to copy dataset " + sourcePath, e.getCause());
+		}
+	}
+}
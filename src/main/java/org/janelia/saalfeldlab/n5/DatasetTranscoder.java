@@ -0,0 +1,495 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.codec.DataBlockCodec;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * Recompresses a dataset into a dataset with the same dimensions, block
+ * size, data type and sharding, but a different {@link Compression}, e.g. to
+ * convert gzip into lz4.
+ * <p>
+ * Blocks are read with
+ * {@link N5Reader#readRawBlock(String, DatasetAttributes, long...)}, decoded
+ * with the {@link DatasetAttributes#getDataBlockCodec() codec} of the source,
+ * encoded with the codec of the target, and written with
+ * {@link N5Writer#writeRawBlock(String, DatasetAttributes, ReadData, long...)}
+ * by tasks submitted to an {@link Executor}. Only the blocks listed by
+ * {@link N5Reader#listBlockGridPositions(String)} are transcoded, so empty
+ * grid positions of sparse datasets are never requested. The number of
+ * blocks in flight is bounded.
+ * <p>
+ * With a {@link #setCheckpoint(Path, long) checkpoint}, the blocks that have
+ * been written are recorded in a {@link BlockIndex} file that is saved
+ * periodically and when the transcoder fails. A transcoder started with an
+ * existing checkpoint file resumes where the previous one stopped. The file
+ * is deleted when all blocks have been transcoded.
+ */
+public class DatasetTranscoder {
+
+	private final N5Reader source;
+	private final String sourcePath;
+	private final N5Writer target;
+	private final String targetPath;
+	private final Compression compression;
+
+	private int maxBlocksInFlight = 64;
+
+	private Path checkpointPath = null;
+	private long checkpointIntervalMillis = 60000;
+
+	private Consumer<Progress> progressListener = null;
+	private long progressIntervalMillis = 10000;
+
+	/**
+	 * @param source
+	 *            the reader of the source dataset
+	 * @param sourcePath
+	 *            the source dataset path
+	 * @param target
+	 *            the writer of the target dataset
+	 * @param targetPath
+	 *            the target dataset path
+	 * @param compression
+	 *            the compression of the target dataset
+	 */
+	public DatasetTranscoder(
+			final N5Reader source,
+			final String sourcePath,
+			final N5Writer target,
+			final String targetPath,
+			final Compression compression) {
+
+		this.source = source;
+		this.sourcePath = sourcePath;
+		this.target = target;
+		this.targetPath = targetPath;
+		this.compression = compression;
+	}
+
+	/**
+	 * @param maxBlocksInFlight
+	 *            the maximum number of blocks that are submitted but not yet
+	 *            written
+	 */
+	public void setMaxBlocksInFlight(final int maxBlocksInFlight) {
+
+		if (maxBlocksInFlight < 1)
+			throw new IllegalArgumentException("maxBlocksInFlight must be positive");
+		this.maxBlocksInFlight = maxBlocksInFlight;
+	}
+
+	/**
+	 * Record the transcoded blocks in a checkpoint file, and resume from it
+	 * if it exists.
+	 *
+	 * @param checkpointPath
+	 *            the checkpoint file, or {@code null} for no checkpoint
+	 * @param checkpointIntervalMillis
+	 *            the minimum time between two saves of the checkpoint
+	 */
+	public void setCheckpoint(final Path checkpointPath, final long checkpointIntervalMillis) {
+
+		this.checkpointPath = checkpointPath;
+		this.checkpointIntervalMillis = checkpointIntervalMillis;
+	}
+
+	/**
+	 * Report the progress periodically and once at the end.
+	 *
+	 * @param progressListener
+	 *            receives the progress, or {@code null} for no reports
+	 * @param progressIntervalMillis
+	 *            the minimum time between two reports
+	 */
+	public void setProgressListener(final Consumer<Progress> progressListener, final long progressIntervalMillis) {
+
+		this.progressListener = progressListener;
+		this.progressIntervalMillis = progressIntervalMillis;
+	}
+
+	/**
+	 * Transcodes all blocks that have not been transcoded according to the
+	 * checkpoint. The target dataset is created if it does not exist. An
+	 * existing target dataset must have the dimensions, block size, data
+	 * type, sharding and compression of the transcoded dataset.
+	 *
+	 * @param executor
+	 *            the executor that transcodes the blocks
+	 * @return the final progress
+	 * @throws N5Exception
+	 *             if a block could not be transcoded, the checkpoint could
+	 *             not be read or written, or the existing target dataset does
+	 *             not match
+	 */
+	public Progress run(final Executor executor) throws N5Exception {
+
+		final DatasetAttributes sourceAttributes = source.getDatasetAttributes(sourcePath);
+		if (sourceAttributes == null)
+			throw new N5Exception(sourcePath + " is not a dataset");
+
+		final DatasetAttributes targetAttributes = targetAttributes(sourceAttributes);
+		final DataBlockCodec<Object> sourceCodec = sourceAttributes.getDataBlockCodec();
+		final DataBlockCodec<Object> targetCodec = targetAttributes.getDataBlockCodec();
+		final boolean raw = DatasetCopy.isRawCopy(sourceAttributes, targetAttributes);
+
+		final long[] gridDimensions = BlockIndex.gridDimensions(sourceAttributes);
+		final BlockIndex done = readCheckpoint(gridDimensions);
+		final List<long[]> sourceBlocks = source.listBlockGridPositions(sourcePath);
+
+		final Run run = new Run(sourceBlocks, done);
+		final Semaphore inFlight = new Semaphore(maxBlocksInFlight);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		try {
+			for (final long[] position : sourceBlocks) {
+				if (failure.get() != null)
+					break;
+				if (!run.isDone(position)) {
+					inFlight.acquire();
+					try {
+						executor.execute(() -> {
+							try {
+								final ReadData blockData = source.readRawBlock(sourcePath, sourceAttributes, position);
+								if (blockData == null)
+									run.completed(position, 0, 0);
+								else {
+									final ReadData encoded = raw
+											? blockData
+											: targetCodec.encode(sourceCodec.decode(blockData, position)).materialize();
+									target.writeRawBlock(targetPath, targetAttributes, encoded, position);
+									run.completed(position, blockData.length(), encoded.length());
+								}
+							} catch (final Throwable e) {
+								failure.compareAndSet(null, e);
+							} finally {
+								inFlight.release();
+							}
+						});
+					} catch (final RejectedExecutionException e) {
+						inFlight.release();
+						throw e;
+					}
+				}
+			}
+			inFlight.acquire(maxBlocksInFlight);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+			/* let the submitted blocks finish, their progress is kept */
+			inFlight.acquireUninterruptibly(maxBlocksInFlight);
+		} catch (final RuntimeException e) {
+			failure.compareAndSet(null, e);
+			inFlight.acquireUninterruptibly(maxBlocksInFlight);
+		}
+
+		final Throwable cause = failure.get();
+		if (cause != null) {
+			run.saveCheckpoint();
+			if (cause instanceof N5Exception)
+				throw (N5Exception)cause;
+			if (cause instanceof IOException || cause instanceof UncheckedIOException)
+				throw new N5IOException("Failed to transcode dataset " + sourcePath, cause);
+			throw new N5Exception("Failed to transcode dataset " + sourcePath, cause);
+		}
+
+		if (checkpointPath != null) {
+			try {
+				Files.deleteIfExists(checkpointPath);
+			} catch (final IOException e) {
+				throw new N5IOException("Failed to delete checkpoint " + checkpointPath, e);
+			}
+		}
+		return run.report(true);
+	}
+
+	/**
+	 * Creates the target dataset, or checks that the existing target dataset
+	 * can store the transcoded blocks.
+	 *
+	 * @return the attributes of the target dataset
+	 */
+	private DatasetAttributes targetAttributes(final DatasetAttributes sourceAttributes) throws N5Exception {
+
+		final DatasetAttributes existing = target.datasetExists(targetPath) ? target.getDatasetAttributes(targetPath) : null;
+		if (existing == null) {
+			final DatasetAttributes targetAttributes = new DatasetAttributes(
+					sourceAttributes.getDimensions(),
+					sourceAttributes.getBlockSize(),
+					sourceAttributes.getDataType(),
+					compression,
+					sourceAttributes.getShardSize()).withBlockIndex(sourceAttributes.hasBlockIndex());
+			target.createDataset(targetPath, targetAttributes);
+			return targetAttributes;
+		}
+
+		if (!Arrays.equals(existing.getDimensions(), sourceAttributes.getDimensions())
+				|| !Arrays.equals(existing.getBlockSize(), sourceAttributes.getBlockSize())
+				|| existing.getDataType() != sourceAttributes.getDataType()
+				|| !Arrays.equals(existing.getShardSize(), sourceAttributes.getShardSize())
+				|| !existing.getCompression().equals(compression))
+			throw new N5Exception("Existing dataset " + targetPath + " does not match the transcoded dataset " + sourcePath);
+		return existing;
+	}
+
+	private BlockIndex readCheckpoint(final long[] gridDimensions) throws N5Exception {
+
+		if (checkpointPath == null || !Files.exists(checkpointPath))
+			return new BlockIndex(gridDimensions);
+
+		final BlockIndex done;
+		try {
+			done = BlockIndex.read(ReadData.from(Files.readAllBytes(checkpointPath)));
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5IOException("Failed to read checkpoint " + checkpointPath, e);
+		}
+		if (!Arrays.equals(done.getGridDimensions(), gridDimensions))
+			throw new N5Exception("Checkpoint " + checkpointPath + " does not match dataset " + sourcePath);
+		return done;
+	}
+
+	/**
+	 * The state of one {@link #run(Executor)}.
+	 */
+	private class Run {
+
+		private final BlockIndex done;
+		private final long totalBlocks;
+		private final long resumedBlocks;
+		private final long startNanos = System.nanoTime();
+
+		private final AtomicLong blocks = new AtomicLong();
+		private final AtomicLong bytesRead = new AtomicLong();
+		private final AtomicLong bytesWritten = new AtomicLong();
+
+		private final AtomicLong lastReport;
+		private final AtomicLong lastCheckpoint;
+
+		Run(final List<long[]> sourceBlocks, final BlockIndex done) {
+
+			this.totalBlocks = sourceBlocks.size();
+			this.done = done;
+			long resumed = 0;
+			for (final long[] gridPosition : sourceBlocks)
+				if (done.exists(gridPosition))
+					++resumed;
+			this.resumedBlocks = resumed;
+			final long now = System.currentTimeMillis();
+			lastReport = new AtomicLong(now);
+			lastCheckpoint = new AtomicLong(now);
+		}
+
+		boolean isDone(final long[] gridPosition) {
+
+			synchronized (done) {
+				return done.exists(gridPosition);
+			}
+		}
+
+		void completed(final long[] gridPosition, final long read, final long written) throws IOException {
+
+			synchronized (done) {
+				done.set(gridPosition);
+			}
+			blocks.incrementAndGet();
+			bytesRead.addAndGet(read);
+			bytesWritten.addAndGet(written);
+
+			final long now = System.currentTimeMillis();
+			final long checkpoint = lastCheckpoint.get();
+			if (checkpointPath != null && now - checkpoint >= checkpointIntervalMillis && lastCheckpoint.compareAndSet(checkpoint, now))
+				writeCheckpoint();
+			final long report = lastReport.get();
+			if (progressListener != null && now - report >= progressIntervalMillis && lastReport.compareAndSet(report, now))
+				report(false);
+		}
+
+		/**
+		 * Saves the checkpoint after a failure, a failure to save it is
+		 * suppressed by the original one.
+		 */
+		void saveCheckpoint() {
+
+			if (checkpointPath == null)
+				return;
+			try {
+				writeCheckpoint();
+			} catch (final IOException | UncheckedIOException e) {
+				/* the previous checkpoint is still valid */
+			}
+		}
+
+		private void writeCheckpoint() throws IOException {
+
+			final Path tmp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+			synchronized (done) {
+				try (final OutputStream out = Files.newOutputStream(tmp)) {
+					done.writeTo(out);
+				}
+				Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+
+		Progress report(final boolean finished) {
+
+			final Progress progress = new Progress(
+					resumedBlocks + blocks.get(),
+					totalBlocks,
+					bytesRead.get(),
+					bytesWritten.get(),
+					System.nanoTime() - startNanos,
+					finished);
+			if (progressListener != null)
+				progressListener.accept(progress);
+			return progress;
+		}
+	}
+
+	/**
+	 * The progress of a {@link DatasetTranscoder}.
+	 */
+	public static class Progress {
+
+		private final long processedBlocks;
+		private final long totalBlocks;
+		private final long bytesRead;
+		private final long bytesWritten;
+		private final long elapsedNanos;
+		private final boolean finished;
+
+		Progress(
+				final long processedBlocks,
+				final long totalBlocks,
+				final long bytesRead,
+				final long bytesWritten,
+				final long elapsedNanos,
+				final boolean finished) {
+
+			this.processedBlocks = processedBlocks;
+			this.totalBlocks = totalBlocks;
+			this.bytesRead = bytesRead;
+			this.bytesWritten = bytesWritten;
+			this.elapsedNanos = elapsedNanos;
+			this.finished = finished;
+		}
+
+		/**
+		 * @return the number of blocks that have been processed, including
+		 *         those of a resumed checkpoint
+		 */
+		public long getProcessedBlocks() {
+
+			return processedBlocks;
+		}
+
+		/**
+		 * @return the number of blocks of the source dataset
+		 */
+		public long getTotalBlocks() {
+
+			return totalBlocks;
+		}
+
+		/**
+		 * @return the encoded bytes read in this run
+		 */
+		public long getBytesRead() {
+
+			return bytesRead;
+		}
+
+		/**
+		 * @return the encoded bytes written in this run
+		 */
+		public long getBytesWritten() {
+
+			return bytesWritten;
+		}
+
+		/**
+		 * @return the duration of this run so far
+		 */
+		public long getElapsedNanos() {
+
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return {@code true} if this is the final report of a completed run
+		 */
+		public boolean isFinished() {
+
+			return finished;
+		}
+
+		/**
+		 * @return the encoded bytes read per second in this run
+		 */
+		public double getReadThroughput() {
+
+			return elapsedNanos == 0 ? 0 : bytesRead * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @return the encoded bytes written per second in this run
+		 */
+		public double getWriteThroughput() {
+
+			return elapsedNanos == 0 ? 0 : bytesWritten * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+
+			return String.format(
+					"%d/%d blocks, read %.1f MB/s, wrote %.1f MB/s",
+					processedBlocks,
+					totalBlocks,
+					getReadThroughput() / 1e6,
+					getWriteThroughput() / 1e6);
+		}
+	}
+}
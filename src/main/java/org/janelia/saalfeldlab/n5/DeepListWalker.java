@@ -0,0 +1,324 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.janelia.saalfeldlab.n5.KeyValueAccess.ListEntry;
+import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.N5Reader.DeepListVisitor;
+
+/**
+ * Walks the group hierarchy below a base group in parallel for
+ * {@link N5Reader#deepListVisit(String, int, DeepListVisitor)} and
+ * {@link N5Reader#deepListStream(String, Predicate, int)}.
+ * <p>
+ * Every node is one task in a {@link ForkJoinPool} of bounded parallelism.
+ * The pool runs in FIFO mode, so the hierarchy is walked roughly breadth
+ * first. A node costs one {@link N5Reader#datasetExists(String)} and, for
+ * groups, one {@link N5Reader#list(String)}. Datasets are not descended
+ * into. Once the walk is cancelled, no more nodes are listed.
+ * <p>
+ * An {@link N5KeyValueReader} without cached meta data lists every node
+ * with {@link KeyValueAccess#listEntries(String)} instead. A node without
+ * an attributes file in its listing is not a dataset, so its attributes are
+ * not read.
+ */
+class DeepListWalker {
+
+	private static final int STREAM_CAPACITY = 1024;
+
+	/* marks the end of a streamed walk */
+	private static final Object END = new Object();
+
+	private final N5Reader n5;
+
+	private final String groupSeparator;
+
+	private final String normalPathName;
+
+	private final DeepListVisitor visitor;
+
+	/* null if nodes are not listed with their entries */
+	private final N5KeyValueReader entriesReader;
+
+	private volatile boolean cancelled = false;
+
+	/* the consumer of a streamed walk, the walk is cancelled when it is garbage collected */
+	private volatile WeakReference<?> consumer = null;
+
+	DeepListWalker(final N5Reader n5, final String normalPathName, final DeepListVisitor visitor) {
+
+		this.n5 = n5;
+		this.groupSeparator = n5.getGroupSeparator();
+		this.normalPathName = normalPathName;
+		this.visitor = visitor;
+
+		/* with cached meta data, datasetExists and list are answered by the cache */
+		if (n5 instanceof N5KeyValueReader && !((N5KeyValueReader)n5).cacheMeta())
+			entriesReader = (N5KeyValueReader)n5;
+		else
+			entriesReader = null;
+	}
+
+	void cancel() {
+
+		cancelled = true;
+	}
+
+	private boolean isCancelled() {
+
+		if (!cancelled && consumer != null && consumer.get() == null)
+			cancelled = true;
+		return cancelled;
+	}
+
+	/**
+	 * Walks the hierarchy and returns when all nodes have been visited or
+	 * the walk was cancelled.
+	 */
+	void walk(final int parallelism) throws N5Exception {
+
+		final ForkJoinPool pool = newPool(parallelism);
+		try {
+			pool.invoke(new NodeTask(null, normalPathName, ""));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Walks the hierarchy in the background and streams the paths that pass
+	 * the filter as they are found. Closing the stream cancels the walk.  A
+	 * stream that is neither closed nor consumed to its end, e.g. after
+	 * {@link Stream#findFirst()}, cancels the walk once it has been garbage
+	 * collected, until then the walker threads wait for the stream to read
+	 * more paths.
+	 */
+	static Stream<String> stream(
+			final N5Reader n5,
+			final String normalPathName,
+			final boolean datasetsOnly,
+			final Predicate<String> filter,
+			final int parallelism) {
+
+		final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(STREAM_CAPACITY);
+		final String groupSeparator = n5.getGroupSeparator();
+		final DeepListWalker[] walker = new DeepListWalker[1];
+		walker[0] = new DeepListWalker(n5, normalPathName, (path, isDataset) -> {
+			if ((isDataset || !datasetsOnly) && filter.test(normalPathName + groupSeparator + path)) {
+				try {
+					while (!queue.offer(path, 10, TimeUnit.MILLISECONDS))
+						if (walker[0].isCancelled())
+							return false;
+				} catch (final InterruptedException e) {
+					return false;
+				}
+			}
+			return true;
+		});
+
+		final ForkJoinPool pool = newPool(parallelism);
+		final NodeTask root = walker[0].new NodeTask(null, normalPathName, "") {
+
+			@Override
+			public void onCompletion(final CountedCompleter<?> caller) {
+
+				walker[0].putEnd(queue, END);
+				pool.shutdown();
+			}
+
+			@Override
+			public boolean onExceptionalCompletion(final Throwable ex, final CountedCompleter<?> caller) {
+
+				super.onExceptionalCompletion(ex, caller);
+				walker[0].putEnd(queue, ex);
+				pool.shutdown();
+				return true;
+			}
+		};
+		pool.execute(root);
+
+		final Spliterator<String> spliterator = new Spliterators.AbstractSpliterator<String>(
+				Long.MAX_VALUE,
+				Spliterator.NONNULL | Spliterator.DISTINCT) {
+
+			private boolean done = false;
+
+			@Override
+			public boolean tryAdvance(final Consumer<? super String> action) {
+
+				if (done)
+					return false;
+
+				final Object next;
+				try {
+					next = queue.take();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					walker[0].cancel();
+					throw new N5Exception("Interrupted while listing " + normalPathName, e);
+				}
+				if (next == END) {
+					done = true;
+					return false;
+				}
+				if (next instanceof Throwable) {
+					done = true;
+					if (next instanceof N5Exception)
+						throw (N5Exception)next;
+					throw new N5Exception("Failed to list " + normalPathName, (Throwable)next);
+				}
+				action.accept((String)next);
+				return true;
+			}
+		};
+
+		/* the walker must not reference the spliterator, or it would never be collected */
+		walker[0].consumer = new WeakReference<>(spliterator);
+
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			walker[0].cancel();
+			queue.clear();
+			pool.shutdownNow();
+		});
+	}
+
+	private void putEnd(final BlockingQueue<Object> queue, final Object end) {
+
+		try {
+			while (!queue.offer(end, 10, TimeUnit.MILLISECONDS))
+				/* the stream was closed or abandoned, nobody reads the remaining paths */
+				if (isCancelled())
+					queue.clear();
+		} catch (final InterruptedException e) {
+			queue.clear();
+			queue.offer(end);
+		}
+	}
+
+	private static ForkJoinPool newPool(final int parallelism) {
+
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive.");
+
+		return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+
+	/**
+	 * Visits one node and forks a task for each of its children. A node
+	 * completes when all of its children have completed.
+	 */
+	private class NodeTask extends CountedCompleter<Void> {
+
+		private static final long serialVersionUID = -5434722460395315826L;
+
+		private final String path;
+
+		private final String relativePath;
+
+		NodeTask(final CountedCompleter<?> parent, final String path, final String relativePath) {
+
+			super(parent);
+			this.path = path;
+			this.relativePath = relativePath;
+		}
+
+		@Override
+		public void compute() {
+
+			if (!cancelled) {
+				final boolean isDataset;
+				String[] children = null;
+				if (entriesReader == null)
+					isDataset = n5.datasetExists(path);
+				else {
+					final List<String> directories = new ArrayList<>();
+					boolean hasAttributes = false;
+					for (final ListEntry entry : listEntries()) {
+						if (entry.isDirectory())
+							directories.add(entry.getName());
+						else if (entry.getName().equals(N5KeyValueReader.ATTRIBUTES_JSON))
+							hasAttributes = true;
+					}
+					isDataset = hasAttributes && n5.datasetExists(path);
+					children = directories.toArray(new String[directories.size()]);
+				}
+
+				/* the base group itself is not listed */
+				if (!relativePath.isEmpty() && !visitor.visit(relativePath, isDataset))
+					cancelled = true;
+
+				if (!isDataset && !cancelled) {
+					if (children == null)
+						children = n5.list(path);
+					addToPendingCount(children.length);
+					for (final String child : children)
+						new NodeTask(
+								this,
+								path + groupSeparator + child,
+								relativePath.isEmpty() ? child : relativePath + groupSeparator + child).fork();
+				}
+			}
+			tryComplete();
+		}
+
+		private ListEntry[] listEntries() throws N5IOException {
+
+			try {
+				return entriesReader.getKeyValueAccess().listEntries(entriesReader.absoluteGroupPath(path));
+			} catch (final IOException | UncheckedIOException e) {
+				throw new N5IOException("Cannot list directories for group " + path, e);
+			}
+		}
+
+		@Override
+		public boolean onExceptionalCompletion(final Throwable ex, final CountedCompleter<?> caller) {
+
+			/* stop the remaining nodes, the walk failed */
+			cancelled = true;
+			return true;
+		}
+	}
+}
@@ -56,6 +56,7 @@ package org.janelia.saalfeldlab.n5;
 import java.io.IOException;
 import java.io.InputStream;
 import org.janelia.saalfeldlab.n5.codec.DataBlockCodec;
+import org.janelia.saalfeldlab.n5.codec.DataPool;
 import org.janelia.saalfeldlab.n5.readdata.ReadData;
 
 /**
@@ -84,7 +85,57 @@ public interface DefaultBlockReader {
 			final DatasetAttributes datasetAttributes,
 			final long[] gridPosition) throws IOException {
 
+		return readBlock(ReadData.from(in), datasetAttributes, gridPosition);
+	}
+
+	/**
+	 * Reads a {@link DataBlock} from {@link ReadData}.
+	 *
+	 * @param readData
+	 *            the encoded block
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the grid position
+	 * @return the block
+	 * @throws IOException
+	 *             the exception
+	 */
+	static DataBlock<?> readBlock(
+			final ReadData readData,
+			final DatasetAttributes datasetAttributes,
+			final long[] gridPosition) throws IOException {
+
 		final DataBlockCodec<?> codec = datasetAttributes.getDataBlockCodec();
-		return codec.decode(ReadData.from(in), gridPosition);
+		return codec.decode(readData, gridPosition);
+	}
+
+	/**
+	 * Reads a {@link DataBlock} from {@link ReadData}, reusing the data array
+	 * of {@code reuse} if it has the right number of elements.
+	 *
+	 * @param readData
+	 *            the encoded block
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the grid position
+	 * @param reuse
+	 *            block whose data array is reused, may be {@code null}
+	 * @return the block
+	 * @throws IOException
+	 *             the exception
+	 */
+	static DataBlock<?> readBlock(
+			final ReadData readData,
+			final DatasetAttributes datasetAttributes,
+			final long[] gridPosition,
+			final DataBlock<?> reuse) throws IOException {
+
+		if (reuse == null)
+			return readBlock(readData, datasetAttributes, gridPosition);
+
+		final DataBlockCodec<Object> codec = datasetAttributes.getDataBlockCodec();
+		return codec.decode(readData, gridPosition, DataPool.reuse(reuse.getData()));
 	}
 }
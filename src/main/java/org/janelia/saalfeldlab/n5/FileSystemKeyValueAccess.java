@@ -56,31 +56,46 @@ package org.janelia.saalfeldlab.n5;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.OverlappingFileLockException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.stream.Stream;
 
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
 /**
  * Filesystem {@link KeyValueAccess}.
  *
@@ -90,6 +105,19 @@ import java.util.stream.Stream;
  */
 public class FileSystemKeyValueAccess implements KeyValueAccess {
 
+	/**
+	 * Files of at least this size are memory mapped by
+	 * {@link LockedFileChannel#newReadData()}, smaller files are read into a
+	 * heap buffer.
+	 */
+	protected static final long MEMORY_MAP_THRESHOLD = 1 << 16;
+
+	/**
+	 * Memory mapped files cannot be deleted or truncated on Windows until the
+	 * mapping is garbage collected, so we do not map there.
+	 */
+	protected static final boolean MEMORY_MAP = !System.getProperty("os.name", "").startsWith("Windows");
+
 	/**
 	 * A {@link FileChannel} wrapper that attempts to acquire a lock and waits
 	 * for existing locks to be lifted before returning if the
@@ -100,6 +128,12 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 
 		protected final FileChannel channel;
 
+		protected final Path path;
+
+		protected final long startByte;
+
+		protected final long size;
+
 		protected LockedFileChannel(final String path, final boolean readOnly) throws IOException {
 
 			this(fileSystem.getPath(path), readOnly);
@@ -107,6 +141,28 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 
 		protected LockedFileChannel(final Path path, final boolean readOnly) throws IOException {
 
+			this(path, readOnly, 0, -1);
+		}
+
+		/**
+		 * Opens a channel whose streams cover only the bytes
+		 * {@code [startByte, startByte + size)} of the file.
+		 *
+		 * @param path the file
+		 * @param readOnly whether the channel is read-only
+		 * @param startByte the first byte of the range
+		 * @param size the number of bytes of the range, or -1 for all bytes up to the end of the file
+		 * @throws IOException if the file could not be opened
+		 */
+		protected LockedFileChannel(final Path path, final boolean readOnly, final long startByte, final long size) throws IOException {
+
+			if (startByte < 0)
+				throw new IllegalArgumentException("startByte must not be negative");
+
+			this.path = path;
+			this.startByte = startByte;
+			this.size = size;
+
 			final OpenOption[] options;
 			if (readOnly) {
 				options = new OpenOption[]{StandardOpenOption.READ};
@@ -141,9 +197,16 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 			}
 		}
 
+		private boolean isRange() {
+
+			return startByte != 0 || size >= 0;
+		}
+
 		@Override
 		public Reader newReader() throws IOException {
 
+			if (isRange())
+				return new InputStreamReader(newInputStream(), StandardCharsets.UTF_8);
 			return Channels.newReader(channel, StandardCharsets.UTF_8.name());
 		}
 
@@ -157,9 +220,32 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 		@Override
 		public InputStream newInputStream() throws IOException {
 
+			if (isRange())
+				return ByteRangeLockedChannel.range(Channels.newInputStream(channel.position(startByte)), 0, size);
 			return Channels.newInputStream(channel);
 		}
 
+		/**
+		 * Reads the file (or the byte range of this channel) into a buffer.
+		 * Ranges of at least {@link #MEMORY_MAP_THRESHOLD} bytes are memory
+		 * mapped such that they can be decoded from the page cache without
+		 * intermediate copies.
+		 */
+		@Override
+		public ReadData newReadData() throws IOException {
+
+			final long channelSize = channel.size();
+			final long start = Math.min(startByte, channelSize);
+			final long length = size < 0 ? channelSize - start : Math.min(size, channelSize - start);
+			if (MEMORY_MAP && length >= MEMORY_MAP_THRESHOLD)
+				return ReadData.from(channel.map(MapMode.READ_ONLY, start, length));
+
+			final ByteBuffer buffer = ByteBuffer.allocate((int)length);
+			while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0);
+			buffer.flip();
+			return ReadData.from(buffer);
+		}
+
 		@Override
 		public OutputStream newOutputStream() throws IOException {
 
@@ -167,6 +253,33 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 			return Channels.newOutputStream(channel);
 		}
 
+		/**
+		 * Writes the data with positional writes, the rest of the file is
+		 * not touched.
+		 */
+		@Override
+		public void write(final long position, final ReadData data) throws IOException {
+
+			final ByteBuffer buffer = data.toByteBuffer();
+			for (long p = position; buffer.hasRemaining();)
+				p += channel.write(buffer, p);
+		}
+
+		/**
+		 * Deletes the file while the channel and its lock are open.  Returns
+		 * false on file systems that do not delete open files.
+		 */
+		@Override
+		public boolean delete() throws IOException {
+
+			try {
+				Files.deleteIfExists(path);
+			} catch (final AccessDeniedException e) {
+				return false;
+			}
+			return true;
+		}
+
 		@Override
 		public void close() throws IOException {
 
@@ -196,6 +309,20 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 		}
 	}
 
+	/**
+	 * Create a lock on a path for reading a byte range. The range is read
+	 * with positional reads or memory mapped, preceding bytes are not read.
+	 */
+	@Override
+	public LockedFileChannel lockForReading(final String normalPath, final long startByte, final long size) throws IOException {
+
+		try {
+			return new LockedFileChannel(fileSystem.getPath(normalPath), true, startByte, size);
+		} catch (NoSuchFileException e) {
+			throw new N5Exception.N5NoSuchKeyException("No such file", e);
+		}
+	}
+
 	@Override
 	public LockedFileChannel lockForWriting(final String normalPath) throws IOException {
 
@@ -240,24 +367,60 @@ public class FileSystemKeyValueAccess implements KeyValueAccess {
 	@Override
 	public String[] listDirectories(final String normalPath) throws IOException {
 
-		final Path path = fileSystem.getPath(normalPath);
-		try (final Stream<Path> pathStream = Files.list(path)) {
-			return pathStream
-					.filter(a -> Files.isDirectory(a))
-					.map(a -> path.relativize(a).toString())
-					.toArray(n -> new String[n]);
-		}
+		return Arrays.stream(listEntries(normalPath))
+				.filter(ListEntry::isDirectory)
+				.map(ListEntry::getName)
+				.toArray(String[]::new);
 	}
 
+	/**
+	 * Lists the names of the children of a directory without reading their
+	 * attributes.
+	 */
 	@Override
 	public String[] list(final String normalPath) throws IOException {
 
 		final Path path = fileSystem.getPath(normalPath);
-		try (final Stream<Path> pathStream = Files.list(path)) {
-			return pathStream
-					.map(a -> path.relativize(a).toString())
-					.toArray(n -> new String[n]);
+		final ArrayList<String> names = new ArrayList<>();
+		try (final DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+			for (final Path child : children)
+				names.add(child.getFileName().toString());
 		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Lists a directory in one pass of a {@link FileVisitor}, using the
+	 * attributes that the walk reads for every child (with the directory
+	 * entries on file systems that support it) instead of reading them again.
+	 * Children removed while listing are skipped.
+	 */
+	@Override
+	public ListEntry[] listEntries(final String normalPath) throws IOException {
+
+		final Path path = fileSystem.getPath(normalPath);
+		final ArrayList<ListEntry> entries = new ArrayList<>();
+		Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+
+				if (file.equals(path))
+					throw new NotDirectoryException(normalPath);
+				entries.add(new ListEntry(file.getFileName().toString(), attrs.isDirectory()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+
+				if (file.equals(path))
+					throw exc;
+				/* removed after it was listed */
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return entries.toArray(new ListEntry[entries.size()]);
 	}
 
 	@Override
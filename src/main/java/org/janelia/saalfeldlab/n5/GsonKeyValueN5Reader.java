@@ -55,9 +55,13 @@ package org.janelia.saalfeldlab.n5;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+import org.janelia.saalfeldlab.n5.shard.Shard;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -120,10 +124,29 @@ public interface GsonKeyValueN5Reader extends GsonN5Reader {
 			final DatasetAttributes datasetAttributes,
 			final long... gridPosition) throws N5Exception {
 
-		final String path = absoluteDataBlockPath(N5URI.normalizeGroupPath(pathName), gridPosition);
+		return readBlock(pathName, datasetAttributes, (DataBlock<?>)null, gridPosition);
+	}
+
+	@Override
+	default DataBlock<?> readBlock(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final DataBlock<?> reuse,
+			final long... gridPosition) throws N5Exception {
+
+		final boolean sharded = datasetAttributes.isSharded();
+		final String path = absoluteDataBlockPath(
+				N5URI.normalizeGroupPath(pathName),
+				sharded ? datasetAttributes.getShardPosition(gridPosition) : gridPosition);
 
 		try (final LockedChannel lockedChannel = getKeyValueAccess().lockForReading(path)) {
-			return DefaultBlockReader.readBlock(lockedChannel.newInputStream(), datasetAttributes, gridPosition);
+			ReadData blockData = lockedChannel.newReadData();
+			if (sharded) {
+				blockData = Shard.readBlock(blockData, datasetAttributes, gridPosition);
+				if (blockData == null)
+					return null;
+			}
+			return DefaultBlockReader.readBlock(blockData, datasetAttributes, gridPosition, reuse);
 		} catch (final N5Exception.N5NoSuchKeyException e) {
 			return null;
 		} catch (final IOException | UncheckedIOException e) {
@@ -133,6 +156,71 @@ public interface GsonKeyValueN5Reader extends GsonN5Reader {
 		}
 	}
 
+	/**
+	 * Reads the stored bytes of a block, or its slice of the shard, into
+	 * memory. The bytes are copied to the heap while the channel is locked,
+	 * so the returned data stays valid after the lock is released.
+	 */
+	@Override
+	default ReadData readRawBlock(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final long... gridPosition) throws N5Exception {
+
+		final boolean sharded = datasetAttributes.isSharded();
+		final String path = absoluteDataBlockPath(
+				N5URI.normalizeGroupPath(pathName),
+				sharded ? datasetAttributes.getShardPosition(gridPosition) : gridPosition);
+
+		try (final LockedChannel lockedChannel = getKeyValueAccess().lockForReading(path)) {
+			ReadData blockData = lockedChannel.newReadData();
+			if (sharded) {
+				blockData = Shard.readBlock(blockData, datasetAttributes, gridPosition);
+				if (blockData == null)
+					return null;
+			}
+			return ReadData.from(blockData.allBytes());
+		} catch (final N5Exception.N5NoSuchKeyException e) {
+			return null;
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5IOException(
+					"Failed to read block " + Arrays.toString(gridPosition) + " from dataset " + path,
+					e);
+		}
+	}
+
+	/**
+	 * Lists the grid positions of all blocks that exist in a dataset. If the
+	 * dataset has a {@link BlockIndex}, it is read with a single request,
+	 * otherwise the block keys of the dataset are listed directory by
+	 * directory.
+	 */
+	@Override
+	default List<long[]> listBlockGridPositions(final String pathName) throws N5Exception {
+
+		final String normalPath = N5URI.normalizeGroupPath(pathName);
+		final DatasetAttributes datasetAttributes = getDatasetAttributes(normalPath);
+		if (datasetAttributes == null)
+			throw new N5Exception(pathName + " is not a dataset");
+
+		try {
+			if (datasetAttributes.hasBlockIndex()) {
+				final String indexPath = getKeyValueAccess().compose(getURI(), normalPath, BlockIndex.BLOCK_INDEX_FILE);
+				try (final LockedChannel lockedChannel = getKeyValueAccess().lockForReading(indexPath)) {
+					final ReadData indexData = lockedChannel.newReadData().materialize();
+					return indexData.length() == 0
+							? new ArrayList<>()
+							: BlockIndex.read(indexData).getGridPositions();
+				} catch (final N5Exception.N5NoSuchKeyException e) {
+					/* enabled without creating the index, list the blocks instead */
+				}
+			}
+			return BlockIndex.listBlocks(getKeyValueAccess(), getURI(), normalPath, datasetAttributes);
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5IOException("Failed to list blocks of dataset " + pathName, e);
+		}
+	}
+
 	@Override
 	default String[] list(final String pathName) throws N5Exception {
 
@@ -61,7 +61,11 @@ import java.util.List;
 import java.util.Map;
 
 import com.google.gson.JsonSyntaxException;
+import org.apache.commons.io.IOUtils;
 import org.janelia.saalfeldlab.n5.N5Exception.N5IOException;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+import org.janelia.saalfeldlab.n5.shard.Shard;
+import org.janelia.saalfeldlab.n5.shard.ShardIndex;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -245,6 +249,21 @@ public interface GsonKeyValueN5Writer extends GsonN5Writer, GsonKeyValueN5Reader
 			final DatasetAttributes datasetAttributes,
 			final DataBlock<T> dataBlock) throws N5Exception {
 
+		if (datasetAttributes.isSharded()) {
+			final ReadData blockData;
+			try {
+				blockData = datasetAttributes.<T>getDataBlockCodec().encode(dataBlock);
+			} catch (final IOException | UncheckedIOException e) {
+				throw new N5IOException(
+						"Failed to write block " + Arrays.toString(dataBlock.getGridPosition()) + " into dataset " + path,
+						e);
+			}
+			writeShardedBlock(path, datasetAttributes, dataBlock.getGridPosition(), blockData);
+			if (isBlockIndexed(path, datasetAttributes))
+				updateBlockIndex(path, datasetAttributes, dataBlock.getGridPosition(), true);
+			return;
+		}
+
 		final String blockPath = absoluteDataBlockPath(N5URI.normalizeGroupPath(path), dataBlock.getGridPosition());
 		try (
 				final LockedChannel lock = getKeyValueAccess().lockForWriting(blockPath);
@@ -256,6 +275,229 @@ public interface GsonKeyValueN5Writer extends GsonN5Writer, GsonKeyValueN5Reader
 					"Failed to write block " + Arrays.toString(dataBlock.getGridPosition()) + " into dataset " + path,
 					e);
 		}
+		if (isBlockIndexed(path, datasetAttributes))
+			updateBlockIndex(path, datasetAttributes, dataBlock.getGridPosition(), true);
+	}
+
+	/**
+	 * Stores the encoded block as it is, as a key or in its shard.
+	 */
+	@Override
+	default void writeRawBlock(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final ReadData blockData,
+			final long... gridPosition) throws N5Exception {
+
+		if (datasetAttributes.isSharded())
+			writeShardedBlock(path, datasetAttributes, gridPosition, blockData);
+		else {
+			final String blockPath = absoluteDataBlockPath(N5URI.normalizeGroupPath(path), gridPosition);
+			try (
+					final LockedChannel lock = getKeyValueAccess().lockForWriting(blockPath);
+					final OutputStream out = lock.newOutputStream()
+			) {
+				blockData.writeTo(out);
+			} catch (final IOException | UncheckedIOException e) {
+				throw new N5IOException(
+						"Failed to write block " + Arrays.toString(gridPosition) + " into dataset " + path,
+						e);
+			}
+		}
+		if (isBlockIndexed(path, datasetAttributes))
+			updateBlockIndex(path, datasetAttributes, gridPosition, true);
+	}
+
+	/**
+	 * Creates the {@link BlockIndex} of a dataset whose attributes enable it
+	 * before the attributes are written, so that the index exists whenever
+	 * the stored attributes enable it, see
+	 * {@link #isBlockIndexed(String, DatasetAttributes)}.
+	 */
+	@Override
+	default void setDatasetAttributes(
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes) throws N5Exception {
+
+		if (datasetAttributes.hasBlockIndex()) {
+			try (final LockedChannel lock = getKeyValueAccess().lockForWriting(blockIndexPath(datasetPath))) {
+				final ReadData indexData = lock.newReadData();
+				if (indexData.materialize().length() == 0) {
+					try (final OutputStream out = lock.newOutputStream()) {
+						new BlockIndex(BlockIndex.gridDimensions(datasetAttributes)).writeTo(out);
+					}
+				}
+			} catch (final IOException | UncheckedIOException e) {
+				throw new N5IOException("Failed to create the block index of dataset " + datasetPath, e);
+			}
+		}
+		GsonN5Writer.super.setDatasetAttributes(datasetPath, datasetAttributes);
+	}
+
+	/**
+	 * @param path
+	 *            dataset path
+	 * @return the absolute path of the {@link BlockIndex} of a dataset
+	 */
+	default String blockIndexPath(final String path) {
+
+		return getKeyValueAccess().compose(getURI(), N5URI.normalizeGroupPath(path), BlockIndex.BLOCK_INDEX_FILE);
+	}
+
+	/**
+	 * Returns whether writing or deleting a block must update the
+	 * {@link BlockIndex} of a dataset.  This is decided by the attributes
+	 * passed by the caller, so that block writes do not read the stored
+	 * attributes.  Attributes returned by {@link #getDatasetAttributes(String)}
+	 * enable the index if the dataset has one.  Implementations that know the
+	 * stored attributes without reading them, e.g. from a cache, also consult
+	 * those.
+	 *
+	 * @param path
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes passed by the caller
+	 * @return true if the block index must be updated
+	 */
+	default boolean isBlockIndexed(final String path, final DatasetAttributes datasetAttributes) {
+
+		return datasetAttributes.hasBlockIndex();
+	}
+
+	/**
+	 * Marks a block as existing or not existing in the {@link BlockIndex} of
+	 * a dataset. The index is locked and only the word of the block is read
+	 * and, if it changed, written, see
+	 * {@link BlockIndex#update(LockedChannel, long[], long[], boolean)}.  A
+	 * missing index is created, an index for a different block grid, e.g.
+	 * after the dataset was resized, is resized and rewritten.
+	 *
+	 * @param path
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @param exists
+	 *            whether the block exists
+	 * @throws N5Exception
+	 *             if the index cannot be updated
+	 */
+	default void updateBlockIndex(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final long[] gridPosition,
+			final boolean exists) throws N5Exception {
+
+		final long[] gridDimensions = BlockIndex.gridDimensions(datasetAttributes);
+		try (final LockedChannel lock = getKeyValueAccess().lockForWriting(blockIndexPath(path))) {
+			if (BlockIndex.update(lock, gridDimensions, gridPosition, exists))
+				return;
+
+			/* the index must be read completely before it is truncated */
+			final byte[] bytes = IOUtils.toByteArray(lock.newInputStream());
+			BlockIndex index = bytes.length == 0 ? new BlockIndex(gridDimensions) : BlockIndex.read(ReadData.from(bytes)).resize(gridDimensions);
+			if (exists)
+				index.set(gridPosition);
+			else
+				index.clear(gridPosition);
+			try (final OutputStream out = lock.newOutputStream()) {
+				index.writeTo(out);
+			}
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5IOException("Failed to update the block index of dataset " + path, e);
+		}
+	}
+
+	/**
+	 * Creates the {@link BlockIndex} of a dataset from the blocks that it
+	 * contains and enables it in the dataset attributes, so that writers
+	 * maintain it and {@link #listBlockGridPositions(String)} reads it. No
+	 * blocks must be written or deleted while the index is created.
+	 *
+	 * @param path
+	 *            dataset path
+	 * @throws N5Exception
+	 *             if path is not a dataset or the index cannot be written
+	 */
+	default void createBlockIndex(final String path) throws N5Exception {
+
+		final String normalPath = N5URI.normalizeGroupPath(path);
+		final DatasetAttributes datasetAttributes = getDatasetAttributes(normalPath);
+		if (datasetAttributes == null)
+			throw new N5Exception(path + " is not a dataset");
+
+		final String indexPath = blockIndexPath(normalPath);
+		final BlockIndex index = new BlockIndex(BlockIndex.gridDimensions(datasetAttributes));
+		try {
+			for (final long[] gridPosition : BlockIndex.listBlocks(getKeyValueAccess(), getURI(), normalPath, datasetAttributes))
+				index.set(gridPosition);
+			try (
+					final LockedChannel lock = getKeyValueAccess().lockForWriting(indexPath);
+					final OutputStream out = lock.newOutputStream()) {
+				index.writeTo(out);
+			}
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5IOException("Failed to create the block index of dataset " + path, e);
+		}
+		setAttribute(normalPath, DatasetAttributes.BLOCK_INDEX_KEY, true);
+	}
+
+	/**
+	 * Replaces or removes the encoded data of a block in its shard.  The shard
+	 * is locked, a new block is appended to it, and its index is rewritten,
+	 * see {@link Shard#writeBlock(LockedChannel, ShardIndex, DatasetAttributes, long[], ReadData)}.
+	 * A shard that no longer contains any block is removed before the lock
+	 * is released, see {@link Shard#remove(LockedChannel)}.  Writers that
+	 * find a removed shard open its key again.
+	 *
+	 * @param path
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes of a sharded dataset
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @param blockData
+	 *            the encoded block, or {@code null} to remove the block
+	 * @throws N5Exception
+	 *             the exception
+	 */
+	default void writeShardedBlock(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final long[] gridPosition,
+			final ReadData blockData) throws N5Exception {
+
+		final String shardPath = absoluteDataBlockPath(
+				N5URI.normalizeGroupPath(path),
+				datasetAttributes.getShardPosition(gridPosition));
+		final int numBlocks = datasetAttributes.getNumBlocksPerShard();
+		try {
+			for (int attempt = 1;; ++attempt) {
+				try (final LockedChannel lock = getKeyValueAccess().lockForWriting(shardPath)) {
+					ShardIndex index = Shard.readIndex(lock, numBlocks);
+					if (index == null && attempt >= Shard.MAX_REMOVED_SHARD_ATTEMPTS)
+						/* left behind by an interrupted removal */
+						index = new ShardIndex(numBlocks);
+					if (index != null) {
+						if (!Shard.writeBlock(lock, index, datasetAttributes, gridPosition, blockData))
+							Shard.remove(lock);
+						return;
+					}
+				}
+				/* deleted while this writer waited for the lock, open the key again without holding the lock */
+				Thread.sleep(Shard.REMOVED_SHARD_WAIT);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new N5IOException(
+					"Interrupted while writing block " + Arrays.toString(gridPosition) + " into dataset " + path,
+					e);
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5IOException(
+					"Failed to write block " + Arrays.toString(gridPosition) + " into dataset " + path,
+					e);
+		}
 	}
 
 	@Override
@@ -274,11 +516,20 @@ public interface GsonKeyValueN5Writer extends GsonN5Writer, GsonKeyValueN5Reader
 		return true;
 	}
 
+	/**
+	 * Reads the dataset attributes to find the key of the block, use
+	 * {@link #deleteBlock(String, DatasetAttributes, long...)} if they are
+	 * known.
+	 */
 	@Override
 	default boolean deleteBlock(
 			final String path,
 			final long... gridPosition) throws N5Exception {
 
+		final DatasetAttributes datasetAttributes = getDatasetAttributes(path);
+		if (datasetAttributes != null)
+			return deleteBlock(path, datasetAttributes, gridPosition);
+
 		final String blockPath = absoluteDataBlockPath(N5URI.normalizeGroupPath(path), gridPosition);
 		try {
 			if (getKeyValueAccess().isFile(blockPath))
@@ -292,4 +543,34 @@ public interface GsonKeyValueN5Writer extends GsonN5Writer, GsonKeyValueN5Reader
 		/* an IOException should have occurred if anything had failed midway */
 		return true;
 	}
+
+	@Override
+	default boolean deleteBlock(
+			final String path,
+			final DatasetAttributes datasetAttributes,
+			final long... gridPosition) throws N5Exception {
+
+		if (datasetAttributes.isSharded()) {
+			final String shardPath = absoluteDataBlockPath(
+					N5URI.normalizeGroupPath(path),
+					datasetAttributes.getShardPosition(gridPosition));
+			if (getKeyValueAccess().isFile(shardPath))
+				writeShardedBlock(path, datasetAttributes, gridPosition, null);
+		} else {
+			final String blockPath = absoluteDataBlockPath(N5URI.normalizeGroupPath(path), gridPosition);
+			try {
+				if (getKeyValueAccess().isFile(blockPath))
+					getKeyValueAccess().delete(blockPath);
+			} catch (final IOException | UncheckedIOException e) {
+				throw new N5IOException(
+						"Failed to delete block " + Arrays.toString(gridPosition) + " from dataset " + path,
+						e);
+			}
+		}
+		if (isBlockIndexed(path, datasetAttributes))
+			updateBlockIndex(path, datasetAttributes, gridPosition, false);
+
+		/* an IOException should have occurred if anything had failed midway */
+		return true;
+	}
 }
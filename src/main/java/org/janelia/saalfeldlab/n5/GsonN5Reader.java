@@ -97,13 +97,17 @@ public interface GsonN5Reader extends N5Reader {
 
 			final int[] blockSize = GsonUtils.readAttribute(attributes, DatasetAttributes.BLOCK_SIZE_KEY, int[].class, getGson());
 			final Compression compression = GsonUtils.readAttribute(attributes, DatasetAttributes.COMPRESSION_KEY, Compression.class, getGson());
+			final int[] shardSize = GsonUtils.readAttribute(attributes, DatasetAttributes.SHARD_SIZE_KEY, int[].class, getGson());
 
 			/* version 0 */
 			final String compressionVersion0Name = compression == null
 					? GsonUtils.readAttribute(attributes, DatasetAttributes.compressionTypeKey, String.class, getGson())
 					: null;
 
-			return DatasetAttributes.from(dimensions, dataType, blockSize, compression, compressionVersion0Name);
+			final Boolean blockIndex = GsonUtils.readAttribute(attributes, DatasetAttributes.BLOCK_INDEX_KEY, Boolean.class, getGson());
+
+			final DatasetAttributes datasetAttributes = DatasetAttributes.from(dimensions, dataType, blockSize, compression, shardSize, compressionVersion0Name);
+			return blockIndex != null && blockIndex ? datasetAttributes.withBlockIndex(true) : datasetAttributes;
 		} catch (JsonSyntaxException | NumberFormatException | ClassCastException e) {
 			/* We cannot create a dataset, so return null. */
 			return null;
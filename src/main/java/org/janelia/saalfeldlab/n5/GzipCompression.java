@@ -53,10 +53,15 @@
  */
 package org.janelia.saalfeldlab.n5;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
@@ -115,13 +120,42 @@ public class GzipCompression implements Compression {
 	@Override
 	public ReadData decode(final ReadData readData) throws IOException {
 
+		if (readData.length() >= 0) {
+			// The compressed bytes are available, so hand them to the
+			// Inflater at once instead of refilling a small stream buffer.
+			final ByteBuffer buffer = readData.toByteBuffer();
+			if (buffer.hasArray()) {
+				return ReadData.from(new ByteArrayInflaterInputStream(
+						buffer.array(),
+						buffer.arrayOffset() + buffer.position(),
+						buffer.remaining(),
+						!useZlib));
+			} else {
+				final byte[] bytes = readData.allBytes();
+				return ReadData.from(new ByteArrayInflaterInputStream(bytes, 0, bytes.length, !useZlib));
+			}
+		}
 		return ReadData.from(decode(readData.inputStream()));
 	}
 
 	@Override
 	public ReadData encode(final ReadData readData) {
 		if (useZlib) {
-			return readData.encode(out -> new DeflaterOutputStream(out, new Deflater(level)));
+			return readData.encode(out -> {
+				final Deflater deflater = new Deflater(level);
+				return new DeflaterOutputStream(out, deflater) {
+
+					@Override
+					public void close() throws IOException {
+
+						try {
+							super.close();
+						} finally {
+							deflater.end();
+						}
+					}
+				};
+			});
 		} else {
 			return readData.encode(out -> {
 				parameters.setCompressionLevel(level);
@@ -129,4 +163,143 @@ public class GzipCompression implements Compression {
 			});
 		}
 	}
+
+	/**
+	 * Inflates zlib or (possibly multi-member) gzip data held in a byte
+	 * array. The whole input is set on the {@link Inflater} once, so every
+	 * {@link #read(byte[], int, int)} inflates straight into the caller's
+	 * buffer.
+	 */
+	private static class ByteArrayInflaterInputStream extends InputStream {
+
+		private static final int FHCRC = 2;
+		private static final int FEXTRA = 4;
+		private static final int FNAME = 8;
+		private static final int FCOMMENT = 16;
+
+		private final byte[] input;
+		private final int end;
+		private final Inflater inflater;
+		private final CRC32 crc;
+		private final byte[] single = new byte[1];
+		private boolean eof;
+
+		ByteArrayInflaterInputStream(final byte[] input, final int offset, final int length, final boolean gzip) throws IOException {
+
+			this.input = input;
+			this.end = offset + length;
+			inflater = new Inflater(gzip);
+			if (gzip) {
+				crc = new CRC32();
+				startMember(offset);
+			} else {
+				crc = null;
+				inflater.setInput(input, offset, length);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+
+			if (len == 0)
+				return 0;
+			while (!eof) {
+				final int n;
+				try {
+					n = inflater.inflate(b, off, len);
+				} catch (final DataFormatException e) {
+					throw new IOException(e);
+				}
+				if (n > 0) {
+					if (crc != null)
+						crc.update(b, off, n);
+					return n;
+				}
+				if (inflater.finished())
+					finishMember();
+				else if (inflater.needsInput() || inflater.needsDictionary())
+					throw new EOFException("Unexpected end of compressed data");
+			}
+			return -1;
+		}
+
+		@Override
+		public void close() {
+
+			eof = true;
+			inflater.end();
+		}
+
+		private void startMember(final int offset) throws IOException {
+
+			int pos = offset;
+			if (end - pos < 10)
+				throw new EOFException("Truncated gzip header");
+			if ((input[pos] & 0xff) != 0x1f || (input[pos + 1] & 0xff) != 0x8b)
+				throw new IOException("Not in gzip format");
+			if (input[pos + 2] != Deflater.DEFLATED)
+				throw new IOException("Unsupported gzip compression method " + input[pos + 2]);
+			final int flags = input[pos + 3] & 0xff;
+			pos += 10;
+			if ((flags & FEXTRA) != 0) {
+				if (end - pos < 2)
+					throw new EOFException("Truncated gzip header");
+				pos += 2 + ((input[pos] & 0xff) | ((input[pos + 1] & 0xff) << 8));
+			}
+			if ((flags & FNAME) != 0)
+				pos = skipZeroTerminated(pos);
+			if ((flags & FCOMMENT) != 0)
+				pos = skipZeroTerminated(pos);
+			if ((flags & FHCRC) != 0)
+				pos += 2;
+			if (pos > end)
+				throw new EOFException("Truncated gzip header");
+
+			inflater.reset();
+			inflater.setInput(input, pos, end - pos);
+			crc.reset();
+		}
+
+		private void finishMember() throws IOException {
+
+			if (crc == null) {
+				eof = true;
+				return;
+			}
+			final int pos = end - inflater.getRemaining();
+			if (end - pos < 8)
+				throw new EOFException("Truncated gzip trailer");
+			if (readIntLE(pos) != (int)crc.getValue())
+				throw new IOException("Corrupt gzip data: CRC mismatch");
+			if (readIntLE(pos + 4) != (int)inflater.getBytesWritten())
+				throw new IOException("Corrupt gzip data: size mismatch");
+			if (pos + 8 == end)
+				eof = true;
+			else
+				startMember(pos + 8);
+		}
+
+		private int skipZeroTerminated(int pos) throws IOException {
+
+			while (pos < end && input[pos] != 0)
+				++pos;
+			if (pos == end)
+				throw new EOFException("Truncated gzip header");
+			return pos + 1;
+		}
+
+		private int readIntLE(final int pos) {
+
+			return (input[pos] & 0xff)
+					| (input[pos + 1] & 0xff) << 8
+					| (input[pos + 2] & 0xff) << 16
+					| (input[pos + 3] & 0xff) << 24;
+		}
+	}
 }
@@ -51,10 +51,14 @@ package org.janelia.saalfeldlab.n5;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.function.TriFunction;
 import org.janelia.saalfeldlab.n5.http.ListResponseParser;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
@@ -66,6 +70,18 @@ import java.net.URL;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * A read-only {@link KeyValueAccess} implementation using HTTP. As a result, calling <code>lockForWriting</code>, <code>createDirectories</code>, or <code>delete</code> will throw an {@link N5Exception}.
@@ -73,8 +89,20 @@ import java.util.ArrayList;
  * The behavior of <code>list</code>, <code>listDirectories</code>, and <code>isDirectory</code> will depend on the server configuration. See the documentation of those methods for details.
  * <p>
  * Methods that take a "normalPath" as an argument expect absolute URIs.
+ * <p>
+ * Connections are reused through the keep-alive cache of
+ * {@link HttpURLConnection}: every response body is consumed and closed, and
+ * the number of concurrent requests can be limited with
+ * {@link #setMaxConcurrentRequests(int)} and
+ * {@link #setMaxConcurrentRequestsPerHost(int)}. The number of idle
+ * connections that are kept per host is set by the {@code http.maxConnections}
+ * system property.
+ * <p>
+ * Concurrent reads of the same object through {@link LockedChannel#newReadData()}
+ * share a single request, and a {@link PrefetchPolicy} can be set to fetch
+ * the objects that are likely read next in the background.
  */
-public class HttpKeyValueAccess implements KeyValueAccess {
+public class HttpKeyValueAccess implements KeyValueAccess, CachingKeyValueAccess.Validator {
 
 	private int readTimeoutMilliseconds;
 	private int connectionTimeoutMilliseconds;
@@ -82,6 +110,18 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 	private ListResponseParser listResponseParser = ListResponseParser.defaultListParser();
 	private ListResponseParser listDirectoryResponseParser = ListResponseParser.defaultDirectoryListParser();
 
+	private volatile Semaphore requestPermits = null;
+	private volatile int maxConcurrentRequestsPerHost = 0;
+	private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+	/* requests in flight and completed prefetches, by object and byte range */
+	private final ConcurrentHashMap<String, CompletableFuture<byte[]>> sharedRequests = new ConcurrentHashMap<>();
+	private final LinkedHashMap<String, CompletableFuture<byte[]>> prefetched = new LinkedHashMap<>();
+
+	private volatile PrefetchPolicy prefetchPolicy = null;
+	private volatile Executor prefetchExecutor = null;
+	private volatile int maxPrefetched = 0;
+
 	/**
 	 * Opens an {@link HttpKeyValueAccess}
 	 *
@@ -103,6 +143,64 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 		this.connectionTimeoutMilliseconds = connectionTimeoutMilliseconds;
 	}
 
+	/**
+	 * Limit the number of concurrent requests. A request that reads a key
+	 * holds its permit until the stream of the response is closed.
+	 *
+	 * @param maxConcurrentRequests
+	 *            the maximum number of concurrent requests, or a value
+	 *            {@code <= 0} for no limit
+	 */
+	public void setMaxConcurrentRequests(final int maxConcurrentRequests) {
+
+		requestPermits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+	}
+
+	/**
+	 * Limit the number of concurrent requests to each host. This limit
+	 * applies in addition to {@link #setMaxConcurrentRequests(int)}.
+	 *
+	 * @param maxConcurrentRequestsPerHost
+	 *            the maximum number of concurrent requests per host, or a
+	 *            value {@code <= 0} for no limit
+	 */
+	public void setMaxConcurrentRequestsPerHost(final int maxConcurrentRequestsPerHost) {
+
+		this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+		hostPermits.clear();
+	}
+
+	/**
+	 * Fetch objects in the background that are likely read next. After each
+	 * read of a whole object through {@link LockedChannel#newReadData()},
+	 * the {@code policy} proposes keys that are then requested on the
+	 * {@code executor}, as long as request permits are available without
+	 * waiting. At most {@code maxPrefetched} fetched objects are kept until
+	 * they are read, older ones are dropped first.
+	 *
+	 * @param policy
+	 *            the prefetch policy, or {@code null} to disable prefetching
+	 * @param executor
+	 *            runs the prefetch requests
+	 * @param maxPrefetched
+	 *            the maximum number of prefetched objects to keep
+	 */
+	public void setPrefetchPolicy(final PrefetchPolicy policy, final Executor executor, final int maxPrefetched) {
+
+		if (policy != null && executor == null)
+			throw new IllegalArgumentException("prefetching requires an executor");
+
+		prefetchPolicy = null;
+		this.maxPrefetched = maxPrefetched;
+		prefetchExecutor = executor;
+		synchronized (prefetched) {
+			for (final Map.Entry<String, CompletableFuture<byte[]>> entry : prefetched.entrySet())
+				sharedRequests.remove(entry.getKey(), entry.getValue());
+			prefetched.clear();
+		}
+		prefetchPolicy = policy;
+	}
+
 	public void setListParser(final ListResponseParser parser) {
 
 		listResponseParser = parser;
@@ -146,6 +244,23 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 		}
 	}
 
+	/**
+	 * Get the ETag of the {@code normalPath}, or its Last-Modified date if the
+	 * server does not send an ETag.
+	 *
+	 * @param normalPath is expected to be in normalized form, no further efforts are
+	 *                   made to normalize it.
+	 * @return the ETag, Last-Modified date, or {@code null} if the server sends
+	 * neither
+	 */
+	@Override
+	public String getValidator(final String normalPath) {
+
+		final HttpURLConnection http = requireValidHttpResponse(normalPath, "HEAD", "Error validating: " + normalPath, false);
+		final String etag = http.getHeaderField("ETag");
+		return etag != null ? etag : http.getHeaderField("Last-Modified");
+	}
+
 	/**
 	 * Test whether the path is a directory.
 	 * <p>
@@ -234,18 +349,37 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 		return connection;
 	}
 
+	/**
+	 * Create a lock on a path for reading. Existence is not checked up front,
+	 * reading from the channel throws an
+	 * {@link N5Exception.N5NoSuchKeyException} if the key does not exist.
+	 */
 	@Override
 	public LockedChannel lockForReading(final String normalPath) throws IOException {
-		//TODO Caleb: Maybe check exists lazily when attempting to read
+
 		try {
-			if (!exists(normalPath))
-				throw new N5Exception.N5NoSuchKeyException("Key does not exist: " + normalPath);
 			return new HttpObjectChannel(uri(normalPath));
 		} catch (URISyntaxException e) {
 			throw new N5Exception("Invalid URI Syntax", e);
 		}
 	}
 
+	/**
+	 * Create a lock on a path for reading a byte range. The range is
+	 * requested with an HTTP {@code Range} header. If the server ignores the
+	 * header, the preceding bytes are skipped. As with
+	 * {@link #lockForReading(String)}, existence is checked lazily.
+	 */
+	@Override
+	public LockedChannel lockForReading(final String normalPath, final long startByte, final long size) throws IOException {
+
+		try {
+			return new HttpObjectChannel(uri(normalPath), startByte, size);
+		} catch (URISyntaxException e) {
+			throw new N5Exception("Invalid URI Syntax", e);
+		}
+	}
+
 	@Override
 	public LockedChannel lockForWriting(final String normalPath) throws IOException {
 
@@ -289,14 +423,50 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 		return queryListEntries(normalPath, listResponseParser, true);
 	}
 
+	/**
+	 * List all children of a path with their type from a single listing
+	 * request, parsed once for all children and once for directories.
+	 *
+	 * @param normalPath
+	 *            is expected to be in normalized form, no further efforts are
+	 *            made to normalize it.
+	 * @return the children
+	 * @throws IOException
+	 *             if an error occurs during listing
+	 */
+	@Override
+	public ListEntry[] listEntries(final String normalPath) throws IOException {
+
+		final String listResponse = queryListResponse(normalPath, true);
+
+		final HashSet<String> directories = new HashSet<>(Arrays.asList(listDirectoryResponseParser.parseListResponse(listResponse)));
+		final LinkedHashMap<String, ListEntry> entries = new LinkedHashMap<>();
+		for (final String child : listResponseParser.parseListResponse(listResponse)) {
+			final boolean isDirectory = child.endsWith("/");
+			final String name = isDirectory ? child.substring(0, child.length() - 1) : child;
+			entries.putIfAbsent(name, new ListEntry(name, isDirectory || directories.contains(name)));
+		}
+		return entries.values().toArray(new ListEntry[entries.size()]);
+	}
+
 	private String[] queryListEntries(String normalPath, ListResponseParser parser, boolean allowRedirect) {
 
-		final HttpURLConnection http = requireValidHttpResponse(normalPath, "GET", "Error listing directory at " + normalPath, allowRedirect);
+		return parser.parseListResponse(queryListResponse(normalPath, allowRedirect));
+	}
+
+	private String queryListResponse(String normalPath, boolean allowRedirect) {
+
+		final String message = "Error listing directory at " + normalPath;
+		final Permit permit = acquirePermit(normalPath);
 		try {
-			final String listResponse = responseToString(http.getInputStream());
-			return parser.parseListResponse(listResponse);
+			final HttpURLConnection http = validHttpResponse(normalPath, "GET", (code, msg, h) -> validExistsResponse(code, msg, message, allowRedirect));
+			try (final InputStream in = http.getInputStream()) {
+				return responseToString(in);
+			}
 		} catch (IOException e) {
-			throw new N5Exception.N5IOException("Error listing directory at " + normalPath, e);
+			throw new N5Exception.N5IOException(message, e);
+		} finally {
+			permit.release();
 		}
 	}
 
@@ -316,6 +486,16 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 
 	private HttpURLConnection requireValidHttpResponse(String uri, String method, TriFunction<Integer, String, HttpURLConnection, N5Exception> filterCode) throws N5Exception {
 
+		final Permit permit = acquirePermit(uri);
+		try {
+			return validHttpResponse(uri, method, filterCode);
+		} finally {
+			permit.release();
+		}
+	}
+
+	private HttpURLConnection validHttpResponse(String uri, String method, TriFunction<Integer, String, HttpURLConnection, N5Exception> filterCode) throws N5Exception {
+
 		final int code;
 		final HttpURLConnection http;
 		final String responseMsg;
@@ -328,10 +508,239 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 		}
 
 		final N5Exception cause = filterCode.apply(code, responseMsg, http);
-		if (cause != null) throw cause;
+		if (cause != null) {
+			discardErrorStream(http);
+			throw cause;
+		}
 		return http;
 	}
 
+	/**
+	 * Reads and closes the body of an error response, so that the connection
+	 * can be reused.
+	 */
+	private static void discardErrorStream(final HttpURLConnection http) {
+
+		try (final InputStream errorStream = http.getErrorStream()) {
+			if (errorStream != null) {
+				final byte[] buffer = new byte[4096];
+				while (errorStream.read(buffer) >= 0);
+			}
+		} catch (IOException e) {
+			/* the connection will not be reused */
+		}
+	}
+
+	private Semaphore hostPermits(final String uri) {
+
+		final int maxPerHost = maxConcurrentRequestsPerHost;
+		if (maxPerHost <= 0)
+			return null;
+		final String host = URI.create(uri).getRawAuthority();
+		return hostPermits.computeIfAbsent(host == null ? "" : host, h -> new Semaphore(maxPerHost));
+	}
+
+	/**
+	 * Waits for a permit to send a request to {@code uri}.
+	 */
+	private Permit acquirePermit(final String uri) throws N5Exception.N5IOException {
+
+		final Semaphore host = hostPermits(uri);
+		final Semaphore all = requestPermits;
+		try {
+			if (host != null)
+				host.acquire();
+			if (all != null) {
+				try {
+					all.acquire();
+				} catch (InterruptedException e) {
+					if (host != null)
+						host.release();
+					throw e;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new N5Exception.N5IOException("Interrupted while waiting for a connection", new InterruptedIOException());
+		}
+		return new Permit(host, all);
+	}
+
+	/**
+	 * Gets a permit to send a request to {@code uri} if one is available
+	 * without waiting.
+	 *
+	 * @return the permit or {@code null}
+	 */
+	private Permit tryAcquirePermit(final String uri) {
+
+		final Semaphore host = hostPermits(uri);
+		final Semaphore all = requestPermits;
+		if (host != null && !host.tryAcquire())
+			return null;
+		if (all != null && !all.tryAcquire()) {
+			if (host != null)
+				host.release();
+			return null;
+		}
+		return new Permit(host, all);
+	}
+
+	private static class Permit {
+
+		private Semaphore host;
+		private Semaphore all;
+
+		Permit(final Semaphore host, final Semaphore all) {
+
+			this.host = host;
+			this.all = all;
+		}
+
+		/**
+		 * Releases this permit, repeated calls have no effect.
+		 */
+		synchronized void release() {
+
+			if (all != null)
+				all.release();
+			if (host != null)
+				host.release();
+			all = null;
+			host = null;
+		}
+	}
+
+	/**
+	 * Releases the request permit when the response stream is closed.
+	 */
+	private static class PermitInputStream extends FilterInputStream {
+
+		private final Permit permit;
+
+		PermitInputStream(final InputStream in, final Permit permit) {
+
+			super(in);
+			this.permit = permit;
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			try {
+				super.close();
+			} finally {
+				permit.release();
+			}
+		}
+	}
+
+	/**
+	 * Reads an object, or its byte range, into memory. Concurrent reads of
+	 * the same object and range share one request, and prefetched objects
+	 * are used if available.
+	 */
+	private byte[] readShared(final HttpObjectChannel channel) throws IOException {
+
+		final String key = channel.requestKey();
+		final CompletableFuture<byte[]> created = new CompletableFuture<>();
+		CompletableFuture<byte[]> request = sharedRequests.putIfAbsent(key, created);
+		if (request == null) {
+			try {
+				final Permit permit = acquirePermit(channel.uri.toString());
+				/* prefetch with the permits that are left */
+				try {
+					prefetch(channel);
+				} catch (final RuntimeException e) {
+					permit.release();
+					throw e;
+				}
+				created.complete(channel.readAllBytes(permit));
+			} catch (final Throwable e) {
+				created.completeExceptionally(e);
+			} finally {
+				sharedRequests.remove(key, created);
+			}
+			request = created;
+		} else
+			prefetch(channel);
+
+		try {
+			return request.join();
+		} catch (final CompletionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException)cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new N5Exception.N5IOException("Failed to read " + key, cause);
+		} finally {
+			/* a prefetched object is read only once */
+			if (sharedRequests.remove(key, request)) {
+				synchronized (prefetched) {
+					prefetched.remove(key, request);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts background requests for the keys proposed by the prefetch
+	 * policy after a whole object was requested.
+	 */
+	private void prefetch(final HttpObjectChannel channel) {
+
+		final PrefetchPolicy policy = prefetchPolicy;
+		final Executor executor = prefetchExecutor;
+		if (policy == null || channel.startByte != 0 || channel.size >= 0)
+			return;
+
+		for (final String normalPath : policy.prefetch(channel.uri.toString())) {
+			if (sharedRequests.containsKey(normalPath))
+				continue;
+
+			final Permit permit = tryAcquirePermit(normalPath);
+			if (permit == null)
+				return;
+
+			final CompletableFuture<byte[]> request = new CompletableFuture<>();
+			if (sharedRequests.putIfAbsent(normalPath, request) != null) {
+				permit.release();
+				continue;
+			}
+			addPrefetched(normalPath, request);
+			try {
+				executor.execute(() -> {
+					try {
+						request.complete(new HttpObjectChannel(URI.create(normalPath)).readAllBytes(permit));
+					} catch (final Throwable e) {
+						request.completeExceptionally(e);
+					}
+				});
+			} catch (final RejectedExecutionException e) {
+				permit.release();
+				sharedRequests.remove(normalPath, request);
+				synchronized (prefetched) {
+					prefetched.remove(normalPath, request);
+				}
+				return;
+			}
+		}
+	}
+
+	private void addPrefetched(final String normalPath, final CompletableFuture<byte[]> request) {
+
+		synchronized (prefetched) {
+			prefetched.put(normalPath, request);
+			final Iterator<Map.Entry<String, CompletableFuture<byte[]>>> it = prefetched.entrySet().iterator();
+			while (prefetched.size() > Math.max(0, maxPrefetched) && it.hasNext()) {
+				final Map.Entry<String, CompletableFuture<byte[]>> eldest = it.next();
+				sharedRequests.remove(eldest.getKey(), eldest.getValue());
+				it.remove();
+			}
+		}
+	}
+
 	private String responseToString(InputStream inputStream) throws IOException {
 
 		return IOUtils.toString(inputStream, StandardCharsets.UTF_8.name());
@@ -352,17 +761,124 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 	private class HttpObjectChannel implements LockedChannel {
 
 		protected final URI uri;
+		private final long startByte;
+		private final long size;
 		private final ArrayList<Closeable> resources = new ArrayList<>();
 
 		protected HttpObjectChannel(final URI uri) {
 
+			this(uri, 0, -1);
+		}
+
+		protected HttpObjectChannel(final URI uri, final long startByte, final long size) {
+
+			if (startByte < 0)
+				throw new IllegalArgumentException("startByte must not be negative");
+
 			this.uri = uri;
+			this.startByte = startByte;
+			this.size = size;
 		}
 
+		/**
+		 * Requests the object, or its byte range, with a single GET. A
+		 * missing key is reported by the response, so no separate existence
+		 * check is needed.
+		 *
+		 * @throws N5Exception.N5NoSuchKeyException
+		 *             if the key does not exist
+		 */
 		@Override
 		public InputStream newInputStream() throws IOException {
 
-			return uri.toURL().openStream();
+			if (size == 0)
+				return new ByteArrayInputStream(new byte[0]);
+
+			final InputStream stream = open(acquirePermit(uri.toString()));
+			synchronized (resources) {
+				resources.add(stream);
+			}
+			return stream;
+		}
+
+		/**
+		 * Sends the request with an acquired permit that is released when
+		 * the returned stream is closed or the request fails.
+		 */
+		private InputStream open(final Permit permit) throws IOException {
+
+			if (size == 0) {
+				permit.release();
+				return new ByteArrayInputStream(new byte[0]);
+			}
+
+			final InputStream in;
+			try {
+				in = openStream(startByte > 0 || size > 0);
+			} catch (IOException | RuntimeException e) {
+				permit.release();
+				throw e;
+			}
+			if (in == null) {
+				permit.release();
+				return new ByteArrayInputStream(new byte[0]);
+			}
+			return new PermitInputStream(in, permit);
+		}
+
+		private byte[] readAllBytes(final Permit permit) throws IOException {
+
+			try (final InputStream in = open(permit)) {
+				return IOUtils.toByteArray(in);
+			}
+		}
+
+		/**
+		 * @return the key under which requests for this object and range are
+		 *         shared
+		 */
+		private String requestKey() {
+
+			final String normalPath = uri.toString();
+			return startByte == 0 && size < 0 ? normalPath : normalPath + "#bytes=" + startByte + "-" + size;
+		}
+
+		/**
+		 * @return the response stream, or {@code null} if the range starts
+		 *         after the end of the object
+		 */
+		private InputStream openStream(final boolean ranged) throws IOException {
+
+			final HttpURLConnection connection = httpRequest(uri.toString(), "GET");
+			if (ranged)
+				connection.setRequestProperty("Range", "bytes=" + startByte + "-" + (size < 0 ? "" : Long.toString(startByte + size - 1)));
+			final int code = connection.getResponseCode();
+			switch (code) {
+			case HttpURLConnection.HTTP_PARTIAL:
+				return connection.getInputStream();
+			case HttpURLConnection.HTTP_OK:
+				/* the server does not support ranges */
+				return ranged ? ByteRangeLockedChannel.range(connection.getInputStream(), startByte, size) : connection.getInputStream();
+			case 416:
+				/* range not satisfiable, i.e. starts after the end */
+				discardErrorStream(connection);
+				return null;
+			default:
+				discardErrorStream(connection);
+				final N5Exception cause = validExistsResponse(code, connection.getResponseMessage(), "Error reading " + uri, false);
+				throw cause != null ? cause : new N5Exception.N5IOException("Unexpected response " + code + " reading " + uri);
+			}
+		}
+
+		/**
+		 * Returns a lazy {@code ReadData} on the object.  Nothing is requested
+		 * until the data is accessed, and {@link ReadData#slice(long, long)
+		 * slices} request only their byte range.
+		 */
+		@Override
+		public ReadData newReadData() {
+
+			return new HttpObjectReadData(this);
 		}
 
 		@Override
@@ -399,4 +915,178 @@ public class HttpKeyValueAccess implements KeyValueAccess {
 		}
 	}
 
+	/**
+	 * Reads objects that are not in memory with a single request that is
+	 * shared by concurrent readers of the same object and range.
+	 */
+	private class HttpObjectReadData implements ReadData {
+
+		private final HttpObjectChannel channel;
+		private ReadData bytes;
+
+		HttpObjectReadData(final HttpObjectChannel channel) {
+
+			this.channel = channel;
+		}
+
+		@Override
+		public long length() throws IOException {
+
+			return bytes == null ? channel.size : bytes.length();
+		}
+
+		@Override
+		public InputStream inputStream() throws IOException {
+
+			return materialize().inputStream();
+		}
+
+		@Override
+		public byte[] allBytes() throws IOException {
+
+			return materialize().allBytes();
+		}
+
+		@Override
+		public ReadData materialize() throws IOException {
+
+			if (bytes == null)
+				bytes = ReadData.from(readShared(channel));
+			return bytes;
+		}
+
+		@Override
+		public ReadData slice(final long offset, final long length) throws IOException {
+
+			if (bytes != null)
+				return bytes.slice(offset, length);
+
+			final long size = channel.size;
+			if (offset < 0 || (size >= 0 && (offset > size || offset + length > size)))
+				throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + length) + ") out of bounds [0, " + size + ")");
+			final long sliceLength = length < 0 && size >= 0 ? size - offset : length;
+			return new HttpObjectReadData(new HttpObjectChannel(channel.uri, channel.startByte + offset, sliceLength));
+		}
+	}
+
+	/**
+	 * Proposes the keys to fetch in the background after an object was read.
+	 */
+	@FunctionalInterface
+	public interface PrefetchPolicy {
+
+		/**
+		 * @param normalPath
+		 *            the object that was read
+		 * @return the objects that are likely read next, in the order in
+		 *         which they should be fetched
+		 */
+		List<String> prefetch(String normalPath);
+
+		/**
+		 * Prefetches blocks along the direction of access. Keys that end in
+		 * integer path components are treated as data blocks at the grid
+		 * position given by these components.  If two consecutive block
+		 * reads from the same dataset are neighbors, the next
+		 * {@code distance} blocks in that direction are prefetched.
+		 *
+		 * @param distance
+		 *            the number of blocks to prefetch
+		 * @return the policy
+		 */
+		static PrefetchPolicy alongAccessDirection(final int distance) {
+
+			return new AccessDirectionPrefetch(distance);
+		}
+	}
+
+	private static class AccessDirectionPrefetch implements PrefetchPolicy {
+
+		/* the number of datasets whose last read is remembered */
+		private static final int MAX_DATASETS = 64;
+
+		private final int distance;
+
+		/* the last grid position read per dataset and number of dimensions, least recently read datasets are forgotten */
+		private final LinkedHashMap<String, long[]> lastPositions = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, long[]> eldest) {
+
+				return size() > MAX_DATASETS;
+			}
+		};
+
+		AccessDirectionPrefetch(final int distance) {
+
+			this.distance = distance;
+		}
+
+		@Override
+		public List<String> prefetch(final String normalPath) {
+
+			final ArrayList<String> keys = new ArrayList<>();
+			if (normalPath.indexOf('?') >= 0 || normalPath.indexOf('#') >= 0)
+				return keys;
+
+			final ArrayList<Long> components = new ArrayList<>();
+			int end = normalPath.length();
+			while (end > 0) {
+				final int start = normalPath.lastIndexOf('/', end - 1) + 1;
+				if (start == end || !isIndex(normalPath, start, end))
+					break;
+				components.add(0, Long.parseLong(normalPath.substring(start, end)));
+				end = start - 1;
+			}
+			if (components.isEmpty() || end <= 0)
+				return keys;
+
+			final long[] position = new long[components.size()];
+			for (int d = 0; d < position.length; ++d)
+				position[d] = components.get(d);
+
+			final String prefix = normalPath.substring(0, end);
+			final long[] last;
+			synchronized (lastPositions) {
+				last = lastPositions.put(prefix + "#" + position.length, position);
+			}
+			if (last == null)
+				return keys;
+
+			final long[] step = new long[position.length];
+			boolean moved = false;
+			for (int d = 0; d < position.length; ++d) {
+				step[d] = position[d] - last[d];
+				if (Math.abs(step[d]) > 1)
+					return keys;
+				moved |= step[d] != 0;
+			}
+			if (!moved)
+				return keys;
+
+			for (int k = 1; k <= distance; ++k) {
+				final StringBuilder key = new StringBuilder(prefix);
+				for (int d = 0; d < position.length; ++d) {
+					final long p = position[d] + k * step[d];
+					if (p < 0)
+						return keys;
+					key.append('/').append(p);
+				}
+				keys.add(key.toString());
+			}
+			return keys;
+		}
+
+		private static boolean isIndex(final String path, final int start, final int end) {
+
+			if (end - start > 18)
+				return false;
+			for (int i = start; i < end; ++i) {
+				final char c = path.charAt(i);
+				if (c < '0' || c > '9')
+					return false;
+			}
+			return true;
+		}
+	}
 }
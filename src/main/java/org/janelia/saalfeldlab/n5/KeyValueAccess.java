@@ -268,6 +268,34 @@ public interface KeyValueAccess {
 	 */
 	public LockedChannel lockForReading(final String normalPath) throws IOException;
 
+	/**
+	 * Create a lock on a path for reading a byte range. Streams and
+	 * {@link LockedChannel#newReadData() read data} created by the returned
+	 * channel cover only the bytes {@code [startByte, startByte + size)} of
+	 * the key. Ranges that extend beyond the end of the key are truncated.
+	 * This lock isn't meant to be kept around. Create, use, [auto]close.
+	 * <p>
+	 * The default implementation skips to {@code startByte} in the stream of
+	 * {@link #lockForReading(String)}. Implementations should override this
+	 * if they can read ranges without reading the preceding bytes.
+	 *
+	 * @param normalPath
+	 *            is expected to be in normalized form, no further
+	 *            efforts are made to normalize it.
+	 * @param startByte
+	 *            the first byte of the range
+	 * @param size
+	 *            the number of bytes of the range, or -1 to read up to the
+	 *            end of the key
+	 * @return the locked channel
+	 * @throws IOException
+	 *             if a locked channel could not be created
+	 */
+	public default LockedChannel lockForReading(final String normalPath, final long startByte, final long size) throws IOException {
+
+		return new ByteRangeLockedChannel(lockForReading(normalPath), startByte, size);
+	}
+
 	/**
 	 * Create an exclusive lock on a path for writing. If the file doesn't
 	 * exist yet, it will be created, including all directories leading up to
@@ -311,6 +339,30 @@ public interface KeyValueAccess {
 	 */
 	public String[] list(final String normalPath) throws IOException;
 
+	/**
+	 * List all children of a path together with their type. Implementations
+	 * should learn the type while listing, in a single pass, instead of
+	 * querying every child separately. The entries include files, so listing
+	 * a group also tells whether its attributes exist.
+	 * <p>
+	 * The default implementation calls {@link #list(String)} and
+	 * {@link #isDirectory(String)} for every child.
+	 *
+	 * @param normalPath
+	 *            is expected to be in normalized form, no further
+	 *            efforts are made to normalize it.
+	 * @return the children
+	 * @throws IOException if an error occurs during listing
+	 */
+	public default ListEntry[] listEntries(final String normalPath) throws IOException {
+
+		final String[] names = list(normalPath);
+		final ListEntry[] entries = new ListEntry[names.length];
+		for (int i = 0; i < names.length; ++i)
+			entries[i] = new ListEntry(names[i], isDirectory(compose(normalPath, names[i])));
+		return entries;
+	}
+
 	/**
 	 * Create a directory and all parent paths along the way. The directory
 	 * and parent paths are discoverable. On a filesystem, this usually means
@@ -335,4 +387,42 @@ public interface KeyValueAccess {
 	 *            if an error occurs during deletion
 	 */
 	public void delete(final String normalPath) throws IOException;
+
+	/**
+	 * A child of a path as listed by {@link KeyValueAccess#listEntries(String)}.
+	 */
+	public static class ListEntry {
+
+		private final String name;
+
+		private final boolean isDirectory;
+
+		public ListEntry(final String name, final boolean isDirectory) {
+
+			this.name = name;
+			this.isDirectory = isDirectory;
+		}
+
+		/**
+		 * @return the name of the child relative to the listed path
+		 */
+		public String getName() {
+
+			return name;
+		}
+
+		/**
+		 * @return true if the child is a 'directory'-like path
+		 */
+		public boolean isDirectory() {
+
+			return isDirectory;
+		}
+
+		@Override
+		public String toString() {
+
+			return isDirectory ? name + "/" : name;
+		}
+	}
 }
@@ -59,6 +59,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 
 /**
  * A lock on a path that can create a {@link Reader}, {@link Writer},
@@ -86,6 +90,23 @@ public interface LockedChannel extends Closeable {
 	 */
 	public InputStream newInputStream() throws IOException;
 
+	/**
+	 * Create a new {@link ReadData} on the content of this channel.
+	 * <p>
+	 * The default implementation wraps {@link #newInputStream()}.
+	 * Implementations may instead return data of known length that is
+	 * backed by a buffer, e.g. a memory mapped file. The returned
+	 * {@link ReadData} must be consumed before this channel is closed.
+	 *
+	 * @return the read data
+	 * @throws IOException
+	 *             if the content could not be accessed
+	 */
+	public default ReadData newReadData() throws IOException {
+
+		return ReadData.from(newInputStream());
+	}
+
 	/**
 	 * Create a new UTF-8 {@link Writer}.
 	 *
@@ -103,4 +124,50 @@ public interface LockedChannel extends Closeable {
 	 *             if an output stream could not be created
 	 */
 	public OutputStream newOutputStream() throws IOException;
+
+	/**
+	 * Write data at a position of this channel. The content before and after
+	 * the written range is kept, the content grows if the range extends past
+	 * its end.
+	 * <p>
+	 * The default implementation reads the entire content and writes it back
+	 * with {@link #newOutputStream()}. Implementations may instead write only
+	 * the range, e.g. with a positional write into a file.
+	 *
+	 * @param position
+	 *            the first byte to write
+	 * @param data
+	 *            the data to write
+	 * @throws IOException
+	 *             if the data could not be written
+	 */
+	public default void write(final long position, final ReadData data) throws IOException {
+
+		final byte[] bytes = data.allBytes();
+		final byte[] content = IOUtils.toByteArray(newInputStream());
+		final byte[] updated = Arrays.copyOf(content, (int)Math.max(content.length, position + bytes.length));
+		System.arraycopy(bytes, 0, updated, (int)position, bytes.length);
+		try (final OutputStream out = newOutputStream()) {
+			out.write(updated);
+		}
+	}
+
+	/**
+	 * Delete the key of this channel while it is locked, so that no other
+	 * writer can access the key between a last write and its deletion.
+	 * Writers that opened the key before it was deleted may still acquire
+	 * the lock of the deleted key after this channel is closed.
+	 * <p>
+	 * The default implementation does not support this and returns
+	 * {@code false}.
+	 *
+	 * @return true if the key was deleted, false if this channel cannot
+	 *         delete its key
+	 * @throws IOException
+	 *             if the key could not be deleted
+	 */
+	public default boolean delete() throws IOException {
+
+		return false;
+	}
 }
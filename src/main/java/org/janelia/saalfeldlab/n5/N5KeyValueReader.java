@@ -57,6 +57,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 import com.google.gson.JsonElement;
+import org.janelia.saalfeldlab.n5.cache.N5BlockCache;
 import org.janelia.saalfeldlab.n5.cache.N5JsonCache;
 
 import com.google.gson.Gson;
@@ -82,6 +83,8 @@ public class N5KeyValueReader implements CachedGsonKeyValueN5Reader {
 
 	private final N5JsonCache cache;
 
+	private final N5BlockCache blockCache;
+
 	/**
 	 * Opens an {@link N5KeyValueReader} at a given base path with a custom
 	 * {@link GsonBuilder} to support custom attributes.
@@ -112,7 +115,47 @@ public class N5KeyValueReader implements CachedGsonKeyValueN5Reader {
 			final boolean cacheMeta)
 			throws N5Exception {
 
-		this(true, keyValueAccess, basePath, gsonBuilder, cacheMeta, true);
+		this(keyValueAccess, basePath, gsonBuilder, cacheMeta, null);
+	}
+
+	/**
+	 * Opens an {@link N5KeyValueReader} at a given base path with a custom
+	 * {@link GsonBuilder} to support custom attributes and an optional cache
+	 * of decoded blocks.
+	 * <p>
+	 * <b>With a block cache, {@link #readBlock} returns the same
+	 * {@link DataBlock} instance to every caller that reads a cached block,
+	 * including callers of other readers that share the cache. Blocks read
+	 * from a cached reader must not be modified, copy them first.</b>
+	 *
+	 * @param keyValueAccess
+	 *            the KeyValueAccess backend used
+	 * @param basePath
+	 *            N5 base path
+	 * @param gsonBuilder
+	 *            the GsonBuilder
+	 * @param cacheMeta
+	 *            cache attributes and meta data
+	 * @param blockCache
+	 *            cache of decoded blocks, may be shared between readers of
+	 *            the same container, {@code null} to not cache blocks.
+	 *            Changes of blocks by an independent writer will not be
+	 *            tracked. Cached blocks are shared, see above.
+	 *
+	 * @throws N5Exception
+	 *             if the base path cannot be read or does not exist, if the N5
+	 *             version of the container is not compatible with this
+	 *             implementation.
+	 */
+	public N5KeyValueReader(
+			final KeyValueAccess keyValueAccess,
+			final String basePath,
+			final GsonBuilder gsonBuilder,
+			final boolean cacheMeta,
+			final N5BlockCache blockCache)
+			throws N5Exception {
+
+		this(true, keyValueAccess, basePath, gsonBuilder, cacheMeta, true, blockCache);
 	}
 
 	/**
@@ -151,10 +194,51 @@ public class N5KeyValueReader implements CachedGsonKeyValueN5Reader {
 			final boolean checkExists)
 			throws N5Exception {
 
+		this(checkVersion, keyValueAccess, basePath, gsonBuilder, cacheMeta, checkExists, null);
+	}
+
+	/**
+	 * Opens an {@link N5KeyValueReader} at a given base path with a custom
+	 * {@link GsonBuilder} to support custom attributes and an optional cache
+	 * of decoded blocks.
+	 *
+	 * @param checkVersion
+	 *            the version check
+	 * @param keyValueAccess
+	 *            the backend KeyValueAccess used
+	 * @param basePath
+	 *            base path
+	 * @param gsonBuilder
+	 *            the GsonBuilder
+	 * @param cacheMeta
+	 *            cache attributes and meta data
+	 * @param checkExists
+	 *            if true, an N5IOException will be thrown if a container does
+	 *            not exist at the specified location
+	 * @param blockCache
+	 *            cache of decoded blocks, {@code null} to not cache blocks.
+	 *            Cached blocks are shared between callers and must not be
+	 *            modified.
+	 * @throws N5Exception
+	 *             if the base path cannot be read or does not exist, if the N5
+	 *             version of the container is not compatible with this
+	 *             implementation.
+	 */
+	protected N5KeyValueReader(
+			final boolean checkVersion,
+			final KeyValueAccess keyValueAccess,
+			final String basePath,
+			final GsonBuilder gsonBuilder,
+			final boolean cacheMeta,
+			final boolean checkExists,
+			final N5BlockCache blockCache)
+			throws N5Exception {
+
 		this.keyValueAccess = keyValueAccess;
 		this.gson = GsonUtils.registerGson(gsonBuilder);
 		this.cacheMeta = cacheMeta;
 		this.cache = newCache();
+		this.blockCache = blockCache;
 
 		try {
 			uri = keyValueAccess.uri(basePath);
@@ -214,4 +298,10 @@ public class N5KeyValueReader implements CachedGsonKeyValueN5Reader {
 		return this.cache;
 	}
 
+	@Override
+	public N5BlockCache getBlockCache() {
+
+		return blockCache;
+	}
+
 }
@@ -53,7 +53,12 @@
  */
 package org.janelia.saalfeldlab.n5;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.janelia.saalfeldlab.n5.cache.N5BlockCache;
+
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 
 /**
  * Filesystem {@link N5Writer} implementation with version compatibility check.
@@ -62,6 +67,14 @@ import com.google.gson.GsonBuilder;
  */
 public class N5KeyValueWriter extends N5KeyValueReader implements CachedGsonKeyValueN5Writer {
 
+	/*
+	 * Whether datasets have a block index, for writers without cached meta
+	 * data. The stored attributes of a dataset are read once after they were
+	 * last written by this writer, changes by an independent writer are not
+	 * tracked.
+	 */
+	private final ConcurrentHashMap<String, Boolean> blockIndexed = new ConcurrentHashMap<>();
+
 	/**
 	 * Opens an {@link N5KeyValueWriter} at a given base path with a custom
 	 * {@link GsonBuilder} to support custom attributes.
@@ -96,7 +109,44 @@ public class N5KeyValueWriter extends N5KeyValueReader implements CachedGsonKeyV
 			final boolean cacheAttributes)
 			throws N5Exception {
 
-		super(false, keyValueAccess, basePath, gsonBuilder, cacheAttributes, false);
+		this(keyValueAccess, basePath, gsonBuilder, cacheAttributes, null);
+	}
+
+	/**
+	 * Opens an {@link N5KeyValueWriter} at a given base path with a custom
+	 * {@link GsonBuilder} to support custom attributes and an optional cache
+	 * of decoded blocks.  Blocks are removed from the cache when they are
+	 * written or deleted through this writer.
+	 * <p>
+	 * <b>With a block cache, {@link #readBlock} returns the same
+	 * {@link DataBlock} instance to every caller that reads a cached block.
+	 * Blocks read from a cached writer must not be modified, copy them
+	 * first.</b>
+	 *
+	 * @param keyValueAccess
+	 * 			  the backend key value access to use
+	 * @param basePath
+	 *            n5 base path
+	 * @param gsonBuilder
+	 *            the gson builder
+	 * @param cacheAttributes
+	 *            cache attributes and meta data
+	 * @param blockCache
+	 *            cache of decoded blocks, {@code null} to not cache blocks
+	 * @throws N5Exception
+	 *             if the base path cannot be written to or cannot be created,
+	 *             if the N5 version of the container is not compatible with
+	 *             this implementation.
+	 */
+	public N5KeyValueWriter(
+			final KeyValueAccess keyValueAccess,
+			final String basePath,
+			final GsonBuilder gsonBuilder,
+			final boolean cacheAttributes,
+			final N5BlockCache blockCache)
+			throws N5Exception {
+
+		super(false, keyValueAccess, basePath, gsonBuilder, cacheAttributes, false, blockCache);
 
 		Version version = null;
 		try {
@@ -110,4 +160,53 @@ public class N5KeyValueWriter extends N5KeyValueReader implements CachedGsonKeyV
 			setVersion("/");
 		}
 	}
+
+	/**
+	 * Without cached meta data, the stored attributes of a dataset are read
+	 * once and remembered, so that callers that pass attributes without the
+	 * index update it.
+	 */
+	@Override
+	public boolean isBlockIndexed(final String path, final DatasetAttributes datasetAttributes) {
+
+		if (datasetAttributes.hasBlockIndex() || cacheMeta())
+			return CachedGsonKeyValueN5Writer.super.isBlockIndexed(path, datasetAttributes);
+
+		final String normalPath = N5URI.normalizeGroupPath(path);
+		final Boolean indexed = blockIndexed.get(normalPath);
+		if (indexed != null)
+			return indexed;
+
+		final DatasetAttributes storedAttributes = getDatasetAttributes(normalPath);
+		final boolean storedIndexed = storedAttributes != null && storedAttributes.hasBlockIndex();
+		blockIndexed.putIfAbsent(normalPath, storedIndexed);
+		return storedIndexed;
+	}
+
+	@Override
+	public void writeAttributes(final String normalGroupPath, final JsonElement attributes) throws N5Exception {
+
+		try {
+			CachedGsonKeyValueN5Writer.super.writeAttributes(normalGroupPath, attributes);
+		} finally {
+			blockIndexed.remove(normalGroupPath);
+		}
+	}
+
+	@Override
+	public void setDatasetAttributes(final String datasetPath, final DatasetAttributes datasetAttributes) throws N5Exception {
+
+		CachedGsonKeyValueN5Writer.super.setDatasetAttributes(datasetPath, datasetAttributes);
+		blockIndexed.put(N5URI.normalizeGroupPath(datasetPath), datasetAttributes.hasBlockIndex());
+	}
+
+	@Override
+	public boolean remove(final String path) throws N5Exception {
+
+		try {
+			return CachedGsonKeyValueN5Writer.super.remove(path);
+		} finally {
+			blockIndexed.clear();
+		}
+	}
 }
@@ -58,18 +58,27 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 
 /**
  * A simple structured container for hierarchies of chunked
@@ -326,6 +335,302 @@ public interface N5Reader extends AutoCloseable {
 			final DatasetAttributes datasetAttributes,
 			final long... gridPosition) throws N5Exception;
 
+	/**
+	 * Reads a {@link DataBlock}, reusing the data array of {@code reuse} if
+	 * the block has the same number of elements.  This avoids allocating a
+	 * new array for every block when reading many blocks of the same size.
+	 * <p>
+	 * The default implementation ignores {@code reuse}.
+	 *
+	 * @param pathName
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param reuse
+	 *            a block of the same dataset whose data array may be
+	 *            overwritten, or {@code null}
+	 * @param gridPosition
+	 *            the grid position
+	 * @return the data block, which shares the data array of {@code reuse} if
+	 *         it was reused
+	 * @throws N5Exception
+	 *             the exception
+	 */
+	default DataBlock<?> readBlock(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final DataBlock<?> reuse,
+			final long... gridPosition) throws N5Exception {
+
+		return readBlock(pathName, datasetAttributes, gridPosition);
+	}
+
+	/**
+	 * Reads the encoded data of a block without decoding it, e.g. to copy it
+	 * to a dataset with the same {@link DataType} and {@link Compression}.
+	 * The data is held in memory.
+	 * <p>
+	 * The default implementation reads the block and encodes it again.
+	 * Implementations should override it to read the stored bytes.
+	 *
+	 * @param pathName
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the grid position
+	 * @return the encoded block, or {@code null} if the block does not exist
+	 * @throws N5Exception
+	 *             the exception
+	 */
+	@SuppressWarnings("unchecked")
+	default ReadData readRawBlock(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final long... gridPosition) throws N5Exception {
+
+		final DataBlock<Object> dataBlock = (DataBlock<Object>)readBlock(pathName, datasetAttributes, gridPosition);
+		if (dataBlock == null)
+			return null;
+		try {
+			return datasetAttributes.<Object>getDataBlockCodec().encode(dataBlock).materialize();
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5Exception.N5IOException(
+					"Failed to encode block " + Arrays.toString(gridPosition) + " from dataset " + pathName,
+					e);
+		}
+	}
+
+	/**
+	 * Reads a collection of {@link DataBlock}s asynchronously. Each block is
+	 * read and decoded by a separate task submitted to the given
+	 * {@link Executor} such that I/O and decoding of independent blocks
+	 * overlap.
+	 * <p>
+	 * The returned futures are in the iteration order of
+	 * {@code gridPositions}. A future completes with {@code null} if the
+	 * block does not exist, and exceptionally (with an
+	 * {@link N5Exception} as the cause) if reading the block fails.
+	 *
+	 * @param pathName
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPositions
+	 *            the grid positions of the blocks to read
+	 * @param executor
+	 *            the executor that reads and decodes the blocks
+	 * @return a future for each requested block
+	 */
+	default List<CompletableFuture<DataBlock<?>>> readBlocksAsync(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final Collection<long[]> gridPositions,
+			final Executor executor) {
+
+		final List<CompletableFuture<DataBlock<?>>> futures = new ArrayList<>(gridPositions.size());
+		for (final long[] gridPosition : gridPositions)
+			futures.add(CompletableFuture.supplyAsync(() -> readBlock(pathName, datasetAttributes, gridPosition), executor));
+		return futures;
+	}
+
+	/**
+	 * Reads an interval of a dataset that may span several blocks into a
+	 * caller provided array. All blocks covering the interval are read by
+	 * tasks submitted to the given {@link Executor} and copied into the
+	 * array as they arrive. N5 has no fill value, pixels of blocks that do
+	 * not exist are set to the default value of the array type (0, or
+	 * {@code null} for strings).
+	 *
+	 * @param pathName
+	 *            dataset path
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param min
+	 *            the minimum of the interval in pixels
+	 * @param size
+	 *            the size of the interval in pixels
+	 * @param target
+	 *            the array of the dataset's data type that receives the
+	 *            interval, first dimension changing fastest
+	 * @param executor
+	 *            the executor that reads and decodes the blocks
+	 * @throws N5Exception
+	 *             if a block cannot be read
+	 */
+	default void readRegion(
+			final String pathName,
+			final DatasetAttributes datasetAttributes,
+			final long[] min,
+			final long[] size,
+			final Object target,
+			final Executor executor) throws N5Exception {
+
+		final int n = min.length;
+		if (size.length != n || datasetAttributes.getNumDimensions() != n)
+			throw new IllegalArgumentException("Interval " + Arrays.toString(min) + " " + Arrays.toString(size) + " does not match the dataset dimensions.");
+
+		long numElements = 1;
+		for (final long s : size) {
+			if (s < 0)
+				throw new IllegalArgumentException("Negative interval size " + Arrays.toString(size));
+			numElements *= s;
+		}
+		if (numElements == 0)
+			return;
+		if (Array.getLength(target) < numElements)
+			throw new IllegalArgumentException("Target array is too small for interval of size " + Arrays.toString(size));
+
+		final int[] blockSize = datasetAttributes.getBlockSize();
+		final long[] gridMin = new long[n];
+		final long[] gridMax = new long[n];
+		for (int d = 0; d < n; ++d) {
+			gridMin[d] = Math.floorDiv(min[d], blockSize[d]);
+			gridMax[d] = Math.floorDiv(min[d] + size[d] - 1, blockSize[d]);
+		}
+
+		final List<CompletableFuture<Void>> copies = new ArrayList<>();
+		final long[] gridPosition = gridMin.clone();
+		for (int d = 0; d < n; ) {
+			final long[] position = gridPosition.clone();
+			final long[] blockMin = new long[n];
+			for (int i = 0; i < n; ++i)
+				blockMin[i] = position[i] * blockSize[i];
+			copies.add(CompletableFuture
+					.supplyAsync(() -> readBlock(pathName, datasetAttributes, position), executor)
+					.thenAccept(block -> {
+						if (block == null)
+							RegionCopy.copy(null, blockMin, blockSize, target, min, size);
+						else
+							RegionCopy.copy(block.getData(), blockMin, block.getSize(), target, min, size);
+					}));
+			for (d = 0; d < n; ++d) {
+				if (++gridPosition[d] <= gridMax[d])
+					break;
+				gridPosition[d] = gridMin[d];
+			}
+		}
+
+		try {
+			CompletableFuture.allOf(copies.toArray(new CompletableFuture<?>[0])).join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof N5Exception)
+				throw (N5Exception)e.getCause();
+			throw new N5Exception("Failed to read region of dataset " + pathName, e.getCause());
+		}
+	}
+
+	/**
+	 * Reads an interval of a dataset that may span several blocks. All
+	 * blocks covering the interval are read in parallel by tasks submitted
+	 * to the given {@link Executor}. Pixels of blocks that do not exist are
+	 * 0, or {@code null} for strings.
+	 *
+	 * @param <T>
+	 *            the array type of the dataset, e.g. {@code short[]}
+	 * @param pathName
+	 *            dataset path
+	 * @param min
+	 *            the minimum of the interval in pixels
+	 * @param size
+	 *            the size of the interval in pixels
+	 * @param executor
+	 *            the executor that reads and decodes the blocks
+	 * @return the interval, first dimension changing fastest
+	 * @throws N5Exception
+	 *             if pathName is not a dataset or a block cannot be read
+	 */
+	@SuppressWarnings("unchecked")
+	default <T> T readRegion(
+			final String pathName,
+			final long[] min,
+			final long[] size,
+			final Executor executor) throws N5Exception {
+
+		final DatasetAttributes datasetAttributes = getDatasetAttributes(pathName);
+		if (datasetAttributes == null)
+			throw new N5Exception(pathName + " is not a dataset");
+		if (datasetAttributes.getDataType() == DataType.OBJECT)
+			throw new N5Exception("Cannot read a region of serialized objects from " + pathName);
+
+		long numElements = 1;
+		final int[] regionSize = new int[size.length];
+		for (int d = 0; d < size.length; ++d) {
+			numElements *= size[d];
+			regionSize[d] = (int)size[d];
+		}
+		if (numElements > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Interval of size " + Arrays.toString(size) + " does not fit into an array");
+
+		final Object target = datasetAttributes.getDataType().createDataBlock(regionSize, min, (int)numElements).getData();
+		readRegion(pathName, datasetAttributes, min, size, target, executor);
+		return (T)target;
+	}
+
+	/**
+	 * Reads an interval of a dataset that may span several blocks on the
+	 * calling thread. Pixels of blocks that do not exist are 0, or
+	 * {@code null} for strings.
+	 *
+	 * @param <T>
+	 *            the array type of the dataset, e.g. {@code short[]}
+	 * @param pathName
+	 *            dataset path
+	 * @param min
+	 *            the minimum of the interval in pixels
+	 * @param size
+	 *            the size of the interval in pixels
+	 * @return the interval, first dimension changing fastest
+	 * @throws N5Exception
+	 *             if pathName is not a dataset or a block cannot be read
+	 */
+	default <T> T readRegion(
+			final String pathName,
+			final long[] min,
+			final long[] size) throws N5Exception {
+
+		return readRegion(pathName, min, size, Runnable::run);
+	}
+
+	/**
+	 * Lists the grid positions of all blocks that exist in a dataset, e.g. to
+	 * skip empty regions of a sparse dataset.
+	 * <p>
+	 * The default implementation reads every block of the block grid.
+	 * Implementations should override it with a listing of the backend.
+	 *
+	 * @param pathName
+	 *            dataset path
+	 * @return the grid positions of the existing blocks, in no particular
+	 *         order
+	 * @throws N5Exception
+	 *             if pathName is not a dataset or cannot be listed
+	 */
+	default List<long[]> listBlockGridPositions(final String pathName) throws N5Exception {
+
+		final DatasetAttributes datasetAttributes = getDatasetAttributes(pathName);
+		if (datasetAttributes == null)
+			throw new N5Exception(pathName + " is not a dataset");
+
+		final List<long[]> gridPositions = new ArrayList<>();
+		final long[] gridDimensions = BlockIndex.gridDimensions(datasetAttributes);
+		for (final long n : gridDimensions)
+			if (n == 0)
+				return gridPositions;
+
+		final long[] gridPosition = new long[gridDimensions.length];
+		for (int d = 0; d < gridDimensions.length; ) {
+			if (readBlock(pathName, datasetAttributes, gridPosition) != null)
+				gridPositions.add(gridPosition.clone());
+			for (d = 0; d < gridDimensions.length; ++d) {
+				if (++gridPosition[d] < gridDimensions[d])
+					break;
+				gridPosition[d] = 0;
+			}
+		}
+		return gridPositions;
+	}
+
 	/**
 	 * Load a {@link DataBlock} as a {@link Serializable}. The offset is given
 	 * in
@@ -791,6 +1096,107 @@ public interface N5Reader extends AutoCloseable {
 		}));
 	}
 
+	/**
+	 * Visits the groups and datasets found by a deep listing.
+	 */
+	@FunctionalInterface
+	interface DeepListVisitor {
+
+		/**
+		 * Visits a group or dataset. May be called concurrently from several
+		 * threads.
+		 *
+		 * @param path
+		 *            the path relative to the base group
+		 * @param isDataset
+		 *            true if the path is a dataset
+		 * @return false to stop the deep listing
+		 */
+		boolean visit(String path, boolean isDataset);
+	}
+
+	/**
+	 * Recursively visits all groups and datasets in the given group, in
+	 * parallel, with at most {@code parallelism} threads. Every node is
+	 * visited as soon as it was found; the hierarchy is walked roughly
+	 * breadth first. Datasets are visited, but not descended into. The
+	 * walk stops early when the visitor returns false.
+	 *
+	 * @param pathName
+	 *            base group path
+	 * @param parallelism
+	 *            the maximum number of threads
+	 * @param visitor
+	 *            called for every group and dataset, possibly concurrently
+	 * @throws N5Exception
+	 *             an exception is thrown if pathName is not a valid group or
+	 *             a node cannot be listed
+	 */
+	default void deepListVisit(
+			final String pathName,
+			final int parallelism,
+			final DeepListVisitor visitor) throws N5Exception {
+
+		final String groupSeparator = getGroupSeparator();
+		final String normalPathName = pathName.replaceAll("(^" + groupSeparator + "*)|(" + groupSeparator + "*$)", "");
+		new DeepListWalker(this, normalPathName, visitor).walk(parallelism);
+	}
+
+	/**
+	 * Recursively lists all groups and datasets in the given group, in
+	 * parallel, with at most {@code parallelism} threads. Paths are streamed
+	 * as they are found, so the first results are available long before
+	 * large hierarchies are fully listed. Only paths that satisfy the
+	 * provided filter will be included, but the children of paths that were
+	 * excluded may be included (filter does not apply to the subtree).
+	 * <p>
+	 * The listing continues in the background while the stream is consumed.
+	 * Close the stream, e.g. with try-with-resources, to stop it early.
+	 *
+	 * @param pathName
+	 *            base group path
+	 * @param filter
+	 *            filter for children to be included
+	 * @param parallelism
+	 *            the maximum number of threads
+	 * @return stream of groups and datasets
+	 */
+	default Stream<String> deepListStream(
+			final String pathName,
+			final Predicate<String> filter,
+			final int parallelism) {
+
+		final String groupSeparator = getGroupSeparator();
+		final String normalPathName = pathName.replaceAll("(^" + groupSeparator + "*)|(" + groupSeparator + "*$)", "");
+		return DeepListWalker.stream(this, normalPathName, false, filter, parallelism);
+	}
+
+	/**
+	 * Recursively lists all datasets in the given group, in parallel, with at
+	 * most {@code parallelism} threads. Paths are streamed as they are
+	 * found. Only paths that satisfy the provided filter will be included.
+	 * <p>
+	 * The listing continues in the background while the stream is consumed.
+	 * Close the stream, e.g. with try-with-resources, to stop it early.
+	 *
+	 * @param pathName
+	 *            base group path
+	 * @param filter
+	 *            filter for datasets to be included
+	 * @param parallelism
+	 *            the maximum number of threads
+	 * @return stream of datasets
+	 */
+	default Stream<String> deepListDatasetsStream(
+			final String pathName,
+			final Predicate<String> filter,
+			final int parallelism) {
+
+		final String groupSeparator = getGroupSeparator();
+		final String normalPathName = pathName.replaceAll("(^" + groupSeparator + "*)|(" + groupSeparator + "*$)", "");
+		return DeepListWalker.stream(this, normalPathName, true, filter, parallelism);
+	}
+
 	/**
 	 * List all attributes and their class of a group.
 	 *
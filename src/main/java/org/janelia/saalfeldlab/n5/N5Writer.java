@@ -58,9 +58,13 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 
 /**
  * A simple structured container API for hierarchies of chunked
@@ -270,6 +274,123 @@ public interface N5Writer extends N5Reader {
 			final DatasetAttributes datasetAttributes,
 			final DataBlock<T> dataBlock) throws N5Exception;
 
+	/**
+	 * Writes {@link DataBlock DataBlocks} in parallel using the given
+	 * {@link Executor}. Blocks are taken from {@code dataBlocks} as long as
+	 * the blocks accepted but not yet written hold fewer than
+	 * {@code maxBytesInFlight} bytes, such that lazily generated blocks are
+	 * not buffered beyond that budget. Returns when all blocks are written.
+	 *
+	 * @param datasetPath dataset path
+	 * @param datasetAttributes the dataset attributes
+	 * @param dataBlocks the data blocks
+	 * @param executor the executor that encodes and writes the blocks
+	 * @param maxBytesInFlight budget of bytes held by pending writes
+	 * @param <T> the data block data type
+	 * @throws N5Exception if a block could not be written
+	 * @throws InterruptedException if interrupted while waiting for pending writes
+	 * @see BlockWriteQueue
+	 */
+	default <T> void writeBlocks(
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes,
+			final Iterable<? extends DataBlock<T>> dataBlocks,
+			final Executor executor,
+			final long maxBytesInFlight) throws N5Exception, InterruptedException {
+
+		try (final BlockWriteQueue<T> queue = new BlockWriteQueue<>(this, datasetPath, datasetAttributes, executor, maxBytesInFlight)) {
+			for (final DataBlock<T> dataBlock : dataBlocks)
+				queue.put(dataBlock);
+		}
+	}
+
+	/**
+	 * Writes the encoded data of a block as read by
+	 * {@link #readRawBlock(String, DatasetAttributes, long...)}, without
+	 * decoding it. The block must have been encoded with the
+	 * {@link DataType} and {@link Compression} of {@code datasetAttributes}.
+	 * <p>
+	 * The default implementation decodes the block and writes it with
+	 * {@link #writeBlock(String, DatasetAttributes, DataBlock)}.
+	 * Implementations should override it to store the bytes as they are.
+	 *
+	 * @param datasetPath dataset path
+	 * @param datasetAttributes the dataset attributes
+	 * @param blockData the encoded block
+	 * @param gridPosition the grid position
+	 * @throws N5Exception the exception
+	 */
+	default void writeRawBlock(
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes,
+			final ReadData blockData,
+			final long... gridPosition) throws N5Exception {
+
+		final DataBlock<?> dataBlock;
+		try {
+			dataBlock = datasetAttributes.getDataBlockCodec().decode(blockData, gridPosition);
+		} catch (final IOException | UncheckedIOException e) {
+			throw new N5Exception.N5IOException(
+					"Failed to decode block " + Arrays.toString(gridPosition) + " for dataset " + datasetPath,
+					e);
+		}
+		writeBlock(datasetPath, datasetAttributes, dataBlock);
+	}
+
+	/**
+	 * Copies a dataset, possibly from another container, using the tasks
+	 * submitted to the given {@link Executor}. The target dataset is created
+	 * with the attributes of the source dataset, and the encoded blocks are
+	 * copied without decoding them. Only the dataset attributes are copied.
+	 *
+	 * @param source the reader of the source dataset
+	 * @param sourcePath the source dataset path
+	 * @param datasetPath the target dataset path
+	 * @param executor the executor that copies the blocks
+	 * @throws N5Exception if a block could not be copied
+	 */
+	default void copyDataset(
+			final N5Reader source,
+			final String sourcePath,
+			final String datasetPath,
+			final Executor executor) throws N5Exception {
+
+		final DatasetAttributes sourceAttributes = source.getDatasetAttributes(sourcePath);
+		if (sourceAttributes == null)
+			throw new N5Exception(sourcePath + " is not a dataset");
+
+		copyDataset(source, sourcePath, datasetPath, sourceAttributes, executor);
+	}
+
+	/**
+	 * Copies a dataset, possibly from another container, into a new dataset
+	 * with the given attributes, using the tasks submitted to the given
+	 * {@link Executor}. Both datasets must have the same dimensions and
+	 * {@link DataType}.
+	 * <p>
+	 * If the block size and {@link Compression} are the same, the encoded
+	 * blocks are copied without decoding them. Otherwise, the dataset is
+	 * transcoded: every target block that overlaps existing source blocks is
+	 * assembled from the source blocks and encoded again. Only the dataset
+	 * attributes are copied.
+	 *
+	 * @param source the reader of the source dataset
+	 * @param sourcePath the source dataset path
+	 * @param datasetPath the target dataset path
+	 * @param datasetAttributes the attributes of the target dataset
+	 * @param executor the executor that copies the blocks
+	 * @throws N5Exception if a block could not be copied
+	 */
+	default void copyDataset(
+			final N5Reader source,
+			final String sourcePath,
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes,
+			final Executor executor) throws N5Exception {
+
+		DatasetCopy.copy(source, sourcePath, this, datasetPath, datasetAttributes, executor);
+	}
+
 	/**
 	 * Deletes the block at {@code gridPosition}
 	 *
@@ -289,6 +410,29 @@ public interface N5Writer extends N5Reader {
 			final String datasetPath,
 			final long... gridPosition) throws N5Exception;
 
+	/**
+	 * Deletes the block at {@code gridPosition} of a dataset whose attributes
+	 * are known.
+	 * <p>
+	 * The default implementation ignores the attributes and calls
+	 * {@link #deleteBlock(String, long...)}.
+	 *
+	 * @param datasetPath dataset path
+	 * @param datasetAttributes the dataset attributes
+	 * @param gridPosition position of block to be deleted
+	 * @throws N5Exception the exception
+	 *
+	 * @return {@code true} if the block at {@code gridPosition} is "empty"
+	 *         after deletion, see {@link #deleteBlock(String, long...)}
+	 */
+	default boolean deleteBlock(
+			final String datasetPath,
+			final DatasetAttributes datasetAttributes,
+			final long... gridPosition) throws N5Exception {
+
+		return deleteBlock(datasetPath, gridPosition);
+	}
+
 	/**
 	 * Save a {@link Serializable} as an N5 {@link DataBlock} at a given offset.
 	 * The
@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5;
+
+import java.lang.reflect.Array;
+
+/**
+ * Copies the intersection of a block and a region between flat arrays with
+ * the first dimension changing fastest, for
+ * {@link N5Reader#readRegion(String, DatasetAttributes, long[], long[], Object, java.util.concurrent.Executor)}.
+ * <p>
+ * Every run along the first dimension is copied with one
+ * {@link System#arraycopy}. Leading dimensions that the intersection covers
+ * completely in both arrays are merged into a single, longer run.
+ */
+class RegionCopy {
+
+	private RegionCopy() {}
+
+	/**
+	 * Copies the intersection of a block and a region from the block data
+	 * into the region data.
+	 *
+	 * @param src
+	 *            the block data, or {@code null} to fill the intersection
+	 *            with the default value of the region data type
+	 * @param srcMin
+	 *            the position of the block in pixels
+	 * @param srcSize
+	 *            the size of the block
+	 * @param dst
+	 *            the region data
+	 * @param dstMin
+	 *            the position of the region in pixels
+	 * @param dstSize
+	 *            the size of the region
+	 */
+	static void copy(
+			final Object src,
+			final long[] srcMin,
+			final int[] srcSize,
+			final Object dst,
+			final long[] dstMin,
+			final long[] dstSize) {
+
+		final int n = dstMin.length;
+		final long[] lo = new long[n];
+		final long[] hi = new long[n];
+		for (int d = 0; d < n; ++d) {
+			lo[d] = Math.max(srcMin[d], dstMin[d]);
+			hi[d] = Math.min(srcMin[d] + srcSize[d], dstMin[d] + dstSize[d]);
+			if (lo[d] >= hi[d])
+				return;
+		}
+
+		/* merge leading dimensions that are contiguous in both arrays */
+		int k = 0;
+		long run = hi[0] - lo[0];
+		while (k + 1 < n && hi[k] - lo[k] == srcSize[k] && hi[k] - lo[k] == dstSize[k]) {
+			++k;
+			run *= hi[k] - lo[k];
+		}
+
+		final long[] srcStride = new long[n];
+		final long[] dstStride = new long[n];
+		long srcOffset = 0;
+		long dstOffset = 0;
+		for (int d = 0; d < n; ++d) {
+			srcStride[d] = d == 0 ? 1 : srcStride[d - 1] * srcSize[d - 1];
+			dstStride[d] = d == 0 ? 1 : dstStride[d - 1] * dstSize[d - 1];
+			srcOffset += (lo[d] - srcMin[d]) * srcStride[d];
+			dstOffset += (lo[d] - dstMin[d]) * dstStride[d];
+		}
+
+		/* fill from a single run of default values */
+		final Object source;
+		if (src == null) {
+			source = Array.newInstance(dst.getClass().getComponentType(), (int)run);
+			srcOffset = 0;
+			for (int d = 0; d < n; ++d)
+				srcStride[d] = 0;
+		} else
+			source = src;
+
+		final long[] position = lo.clone();
+		while (true) {
+			System.arraycopy(source, (int)srcOffset, dst, (int)dstOffset, (int)run);
+			int d = k + 1;
+			for (; d < n; ++d) {
+				srcOffset += srcStride[d];
+				dstOffset += dstStride[d];
+				if (++position[d] < hi[d])
+					break;
+				srcOffset -= (hi[d] - lo[d]) * srcStride[d];
+				dstOffset -= (hi[d] - lo[d]) * dstStride[d];
+				position[d] = lo[d];
+			}
+			if (d >= n)
+				return;
+		}
+	}
+}
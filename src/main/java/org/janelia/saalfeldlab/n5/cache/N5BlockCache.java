@@ -0,0 +1,402 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.cache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.janelia.saalfeldlab.n5.DataBlock;
+
+/**
+ * A least-recently-used cache of decoded {@link DataBlock DataBlocks}, keyed
+ * by normalized dataset path and grid position and bounded by the decoded
+ * size of the cached blocks in bytes.
+ * <p>
+ * The cache is split into segments by the hash of the key, each segment is
+ * an independently locked LRU cache with an equal share of the maximum
+ * weight, so that parallel readers rarely wait for each other.  Small
+ * caches have a single segment and evict in exact LRU order.
+ * <p>
+ * Cached blocks are shared between all callers that read them and must
+ * not be modified.
+ * <p>
+ * Readers take a {@link #getGeneration(String, long[]) generation} before
+ * they read a block from the backend and pass it to
+ * {@link #put(String, long[], DataBlock, long)}. Blocks read before an
+ * invalidation are then not cached, even if the read and the write that
+ * caused the invalidation overlap.
+ */
+public class N5BlockCache {
+
+	/**
+	 * Approximate per-entry overhead in bytes (key, grid position, map entry,
+	 * block object).
+	 */
+	private static final long ENTRY_OVERHEAD = 128;
+
+	/**
+	 * Maximum number of segments.
+	 */
+	public static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * Minimum weight of a segment, caches are not split into segments that
+	 * cannot hold a few large blocks.
+	 */
+	public static final long MIN_SEGMENT_WEIGHT = 64L << 20;
+
+	private static final class Key {
+
+		private final String normalPath;
+		private final long[] gridPosition;
+		private final int hash;
+
+		Key(final String normalPath, final long[] gridPosition) {
+
+			this.normalPath = normalPath;
+			this.gridPosition = gridPosition;
+			hash = 31 * normalPath.hashCode() + Arrays.hashCode(gridPosition);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			final Key other = (Key)obj;
+			return normalPath.equals(other.normalPath) && Arrays.equals(gridPosition, other.gridPosition);
+		}
+
+		@Override
+		public int hashCode() {
+
+			return hash;
+		}
+	}
+
+	private static final class Entry {
+
+		private final DataBlock<?> block;
+		private final long weight;
+
+		Entry(final DataBlock<?> block, final long weight) {
+
+			this.block = block;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * An LRU cache guarded by its own monitor.
+	 */
+	private static final class Segment {
+
+		private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		private long weight = 0;
+		private long generation = 0;
+	}
+
+	private final long maxWeight;
+
+	private final long maxSegmentWeight;
+
+	private final Segment[] segments;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * Creates a block cache that holds at most {@code maxWeight} bytes of
+	 * decoded block data.  The number of segments is the largest power of
+	 * two up to {@link #MAX_SEGMENTS} whose segments hold at least
+	 * {@link #MIN_SEGMENT_WEIGHT} bytes.
+	 *
+	 * @param maxWeight
+	 *            the maximum total weight of all cached blocks in bytes
+	 */
+	public N5BlockCache(final long maxWeight) {
+
+		this(maxWeight, Integer.highestOneBit((int)Math.max(1, Math.min(MAX_SEGMENTS, maxWeight / MIN_SEGMENT_WEIGHT))));
+	}
+
+	/**
+	 * Creates a block cache that holds at most {@code maxWeight} bytes of
+	 * decoded block data in {@code numSegments} segments.  A block is only
+	 * cached if it fits into a segment.
+	 *
+	 * @param maxWeight
+	 *            the maximum total weight of all cached blocks in bytes
+	 * @param numSegments
+	 *            the number of segments, a power of two
+	 */
+	public N5BlockCache(final long maxWeight, final int numSegments) {
+
+		if (maxWeight < 0)
+			throw new IllegalArgumentException("maxWeight must not be negative: " + maxWeight);
+		if (numSegments <= 0 || Integer.bitCount(numSegments) != 1)
+			throw new IllegalArgumentException("numSegments must be a positive power of two: " + numSegments);
+		this.maxWeight = maxWeight;
+		maxSegmentWeight = maxWeight / numSegments;
+		segments = new Segment[numSegments];
+		for (int i = 0; i < numSegments; ++i)
+			segments[i] = new Segment();
+	}
+
+	private Segment segment(final Key key) {
+
+		final int h = key.hash ^ (key.hash >>> 16);
+		return segments[h & (segments.length - 1)];
+	}
+
+	/**
+	 * Returns the cached block at a grid position of a dataset and records a
+	 * hit or a miss.
+	 *
+	 * @param normalPath
+	 *            normalized dataset path
+	 * @param gridPosition
+	 *            the grid position
+	 * @return the cached block or {@code null} if it is not cached
+	 */
+	public DataBlock<?> get(final String normalPath, final long[] gridPosition) {
+
+		final Key key = new Key(normalPath, gridPosition);
+		final Segment segment = segment(key);
+		final Entry entry;
+		synchronized (segment) {
+			entry = segment.entries.get(key);
+		}
+		if (entry == null) {
+			missCount.increment();
+			return null;
+		}
+		hitCount.increment();
+		return entry.block;
+	}
+
+	/**
+	 * Returns the current generation of the block at a grid position of a
+	 * dataset.  The generation changes with every invalidation of the block.
+	 *
+	 * @param normalPath
+	 *            normalized dataset path
+	 * @param gridPosition
+	 *            the grid position
+	 * @return the generation
+	 */
+	public long getGeneration(final String normalPath, final long[] gridPosition) {
+
+		final Segment segment = segment(new Key(normalPath, gridPosition));
+		synchronized (segment) {
+			return segment.generation;
+		}
+	}
+
+	/**
+	 * Caches a block unless it was invalidated after {@code generation} was
+	 * obtained or the block alone exceeds the maximum weight of a segment.
+	 * Least recently used blocks of the segment are evicted until the
+	 * segment fits into its maximum weight.
+	 *
+	 * @param normalPath
+	 *            normalized dataset path
+	 * @param gridPosition
+	 *            the grid position
+	 * @param block
+	 *            the decoded block
+	 * @param generation
+	 *            the {@link #getGeneration(String, long[]) generation} before
+	 *            the block was read
+	 * @return true if the block was cached
+	 */
+	public boolean put(
+			final String normalPath,
+			final long[] gridPosition,
+			final DataBlock<?> block,
+			final long generation) {
+
+		final long blockWeight = weigh(block);
+		if (blockWeight > maxSegmentWeight)
+			return false;
+
+		final Key key = new Key(normalPath, gridPosition.clone());
+		final Segment segment = segment(key);
+		synchronized (segment) {
+			if (generation != segment.generation)
+				return false;
+
+			final Entry previous = segment.entries.put(key, new Entry(block, blockWeight));
+			if (previous != null)
+				segment.weight -= previous.weight;
+			segment.weight += blockWeight;
+
+			final Iterator<Entry> it = segment.entries.values().iterator();
+			while (segment.weight > maxSegmentWeight) {
+				segment.weight -= it.next().weight;
+				it.remove();
+				evictionCount.increment();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the block at a grid position of a dataset.
+	 *
+	 * @param normalPath
+	 *            normalized dataset path
+	 * @param gridPosition
+	 *            the grid position
+	 */
+	public void invalidate(final String normalPath, final long[] gridPosition) {
+
+		final Key key = new Key(normalPath, gridPosition);
+		final Segment segment = segment(key);
+		synchronized (segment) {
+			++segment.generation;
+			final Entry entry = segment.entries.remove(key);
+			if (entry != null)
+				segment.weight -= entry.weight;
+		}
+	}
+
+	/**
+	 * Removes all blocks of the dataset at {@code normalPath} and of all
+	 * datasets below it.
+	 *
+	 * @param normalPath
+	 *            normalized group or dataset path
+	 */
+	public void invalidate(final String normalPath) {
+
+		final String prefix = normalPath + "/";
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				++segment.generation;
+				if (normalPath.isEmpty()) {
+					segment.entries.clear();
+					segment.weight = 0;
+					continue;
+				}
+
+				final Iterator<Map.Entry<Key, Entry>> it = segment.entries.entrySet().iterator();
+				while (it.hasNext()) {
+					final Map.Entry<Key, Entry> entry = it.next();
+					final String path = entry.getKey().normalPath;
+					if (path.equals(normalPath) || path.startsWith(prefix)) {
+						segment.weight -= entry.getValue().weight;
+						it.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all blocks.
+	 */
+	public void clear() {
+
+		invalidate("");
+	}
+
+	public long getMaxWeight() {
+
+		return maxWeight;
+	}
+
+	public int getNumSegments() {
+
+		return segments.length;
+	}
+
+	public long getWeight() {
+
+		long weight = 0;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				weight += segment.weight;
+			}
+		}
+		return weight;
+	}
+
+	public int size() {
+
+		int size = 0;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.entries.size();
+			}
+		}
+		return size;
+	}
+
+	public long getHitCount() {
+
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+
+		return evictionCount.sum();
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format(
+				"N5BlockCache[blocks=%d, weight=%d/%d, segments=%d, hits=%d, misses=%d, evictions=%d]",
+				size(), getWeight(), maxWeight, segments.length, getHitCount(), getMissCount(), getEvictionCount());
+	}
+
+	/**
+	 * Estimates the memory footprint of a decoded block in bytes.
+	 *
+	 * @param block
+	 *            the block
+	 * @return the weight
+	 */
+	static long weigh(final DataBlock<?> block) {
+
+		return ENTRY_OVERHEAD + DataBlock.numBytes(block);
+	}
+}
@@ -28,19 +28,40 @@
  */
 package org.janelia.saalfeldlab.n5.cache;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
-
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
 import org.janelia.saalfeldlab.n5.N5Exception;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 /*
  * A cache containing JSON attributes and children for groups and
  * datasets stored in N5 containers. Used by {@link CachedGsonKeyValueN5Reader}
  * and {@link CachedGsonKeyValueN5Writer}.
  *
+ * The cache is safe for concurrent use. Lookups of cached paths do not lock.
+ * If several threads miss the same path at the same time, only one of them
+ * loads it from the container and the others wait for its result.
+ *
+ * By default, the cache grows without bounds. {@link #setLimits} bounds the
+ * number of cached paths and their approximate weight in bytes, evicting
+ * approximately least recently used paths, and can expire paths after a time to live so
+ * that they are revalidated against the container.
+ *
  */
 public class N5JsonCache {
 
@@ -50,31 +71,41 @@ public class N5JsonCache {
 
 	protected final N5JsonCacheableContainer container;
 
+	/**
+	 * Placeholder for cached null attributes, {@link ConcurrentHashMap} does
+	 * not accept null values.
+	 */
+	private static final JsonElement nullJson = new EmptyJson();
+
 	/**
 	 * Data object for caching meta data. Elements that are null are not yet
 	 * cached.
+	 * <p>
+	 * {@code children} is a concurrent set that is created once and then
+	 * modified in place, so it can be iterated and updated without locking.
 	 */
 	protected static class N5CacheInfo {
 
-		protected final HashMap<String, JsonElement> attributesCache = new HashMap<>();
-		protected LinkedHashSet<String> children = null;
-		protected boolean isDataset = false;
-		protected boolean isGroup = false;
+		protected final ConcurrentHashMap<String, JsonElement> attributesCache = new ConcurrentHashMap<>();
+		protected volatile Set<String> children = null;
+		protected volatile boolean isDataset = false;
+		protected volatile boolean isGroup = false;
+		protected volatile ParsedDatasetAttributes datasetAttributes = null;
 
 		public JsonElement getCache(final String normalCacheKey) {
 
-			// synchronize the method instead?
-			synchronized (attributesCache) {
-				return attributesCache.get(normalCacheKey);
-			}
+			final JsonElement attributes = attributesCache.get(normalCacheKey);
+			return attributes == nullJson ? null : attributes;
 		}
 
 		public boolean containsKey(final String normalCacheKey) {
 
-			// synchronize the method instead?
-			synchronized (attributesCache) {
-				return attributesCache.containsKey(normalCacheKey);
-			}
+			return attributesCache.containsKey(normalCacheKey);
+		}
+
+		public void putCache(final String normalCacheKey, final JsonElement attributes) {
+
+			attributesCache.put(normalCacheKey, attributes == null ? nullJson : attributes);
 		}
 
 		public boolean isDataset() {
@@ -88,6 +119,28 @@ public class N5JsonCache {
 		}
 	}
 
+	/**
+	 * {@link DatasetAttributes} parsed from the cached JSON they are valid
+	 * for. Cached JSON is replaced, never modified, so the parsed attributes
+	 * are stale as soon as the cache holds a different JSON element.
+	 */
+	protected static final class ParsedDatasetAttributes {
+
+		final String normalCacheKey;
+		final JsonElement source;
+		final DatasetAttributes datasetAttributes;
+
+		ParsedDatasetAttributes(
+				final String normalCacheKey,
+				final JsonElement source,
+				final DatasetAttributes datasetAttributes) {
+
+			this.normalCacheKey = normalCacheKey;
+			this.source = source;
+			this.datasetAttributes = datasetAttributes;
+		}
+	}
+
 	@SuppressWarnings("deprecation")
 	protected static class EmptyJson extends JsonElement {
 
@@ -99,51 +152,143 @@ public class N5JsonCache {
 
 	}
 
-	private final HashMap<String, N5JsonCache.N5CacheInfo> containerPathToCache = new HashMap<>();
+	/**
+	 * A cached path with the bookkeeping for eviction and expiration.
+	 * {@link N5CacheInfo} cannot carry it, because {@link #emptyCacheInfo} is
+	 * shared.
+	 */
+	private static final class CacheEntry {
+
+		final N5CacheInfo cacheInfo;
+		final long loadedAt;
+		volatile long weight;
+		volatile long lastAccess;
+
+		CacheEntry(final N5CacheInfo cacheInfo, final long weight, final long tick) {
+
+			this.cacheInfo = cacheInfo;
+			this.weight = weight;
+			this.loadedAt = System.currentTimeMillis();
+			this.lastAccess = tick;
+		}
+	}
+
+	/* evict down to this fraction of the limits, to evict in batches */
+	private static final double EVICTION_LOW_WATER_MARK = 0.9;
+
+	/* caches with up to this many paths are evicted in exact LRU order, larger caches by a sample */
+	private static final int EVICTION_SAMPLE_SIZE = 1024;
+
+	private final ConcurrentHashMap<String, CacheEntry> containerPathToCache = new ConcurrentHashMap<>();
+
+	private final AtomicLong weight = new AtomicLong();
+	private final AtomicLong accessTick = new AtomicLong();
+	private final Object evictionLock = new Object();
+
+	private volatile long maxEntries = Long.MAX_VALUE;
+	private volatile long maxWeight = Long.MAX_VALUE;
+	private volatile long ttlMillis = Long.MAX_VALUE;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private final LongAdder expirationCount = new LongAdder();
+
+	/* loads in flight, for single-flight loading of missing paths */
+	private final ConcurrentHashMap<String, CompletableFuture<N5CacheInfo>> loading = new ConcurrentHashMap<>();
 
 	public N5JsonCache(final N5JsonCacheableContainer container) {
 
 		this.container = container;
 	}
 
+	/**
+	 * Returns a copy of the cached attributes, loading them from the
+	 * container if necessary.
+	 *
+	 * @param normalPathKey
+	 *            the normalized path key
+	 * @param normalCacheKey
+	 *            the normalized cache key
+	 * @return a copy of the attributes that the caller may modify, or null
+	 */
 	public JsonElement getAttributes(final String normalPathKey, final String normalCacheKey) {
 
-		N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
-		if (cacheInfo == null) {
-			addNewCacheInfo(normalPathKey, normalCacheKey, null);
-			cacheInfo = getCacheInfo(normalPathKey);
-		}
+		final JsonElement output = getCachedAttributes(normalPathKey, normalCacheKey);
+		return output == null ? null : output.deepCopy();
+	}
+
+	/**
+	 * Returns the cached attributes without copying them, loading them from
+	 * the container if necessary. The returned element is shared by all
+	 * readers of the cache and must not be modified.
+	 *
+	 * @param normalPathKey
+	 *            the normalized path key
+	 * @param normalCacheKey
+	 *            the normalized cache key
+	 * @return the cached attributes, or null
+	 */
+	public JsonElement getCachedAttributes(final String normalPathKey, final String normalCacheKey) {
+
+		final N5CacheInfo cacheInfo = getOrLoadCacheInfo(normalPathKey, normalCacheKey);
 		if (cacheInfo == emptyCacheInfo || cacheInfo.getCache(normalCacheKey) == emptyJson) {
 			return null;
 		}
-		synchronized (cacheInfo) {
-			if (!cacheInfo.containsKey(normalCacheKey)) {
-				updateCacheInfo(normalPathKey, normalCacheKey, null);
+		if (!cacheInfo.containsKey(normalCacheKey)) {
+			synchronized (cacheInfo) {
+				if (!cacheInfo.containsKey(normalCacheKey)) {
+					updateCacheInfo(normalPathKey, normalCacheKey, null);
+				}
 			}
 		}
 
-		final JsonElement output = cacheInfo.getCache(normalCacheKey);
-		return output == null ? null : output.deepCopy();
+		return cacheInfo.getCache(normalCacheKey);
+	}
+
+	/**
+	 * Returns the {@link DatasetAttributes} parsed from the cached attributes,
+	 * loading and parsing them only if the cached attributes changed since
+	 * they were last parsed. The returned instance is shared by all readers
+	 * of the cache and must not be modified.
+	 *
+	 * @param normalPathKey
+	 *            the normalized path key
+	 * @param normalCacheKey
+	 *            the normalized cache key
+	 * @param createDatasetAttributes
+	 *            parses dataset attributes from attributes, returns null if
+	 *            they are not dataset attributes
+	 * @return the dataset attributes, or null
+	 */
+	public DatasetAttributes getDatasetAttributes(
+			final String normalPathKey,
+			final String normalCacheKey,
+			final Function<JsonElement, DatasetAttributes> createDatasetAttributes) {
+
+		final JsonElement attributes = getCachedAttributes(normalPathKey, normalCacheKey);
+		if (attributes == null)
+			return null;
+
+		final N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
+		final ParsedDatasetAttributes parsed = cacheInfo == null ? null : cacheInfo.datasetAttributes;
+		if (parsed != null && parsed.source == attributes && Objects.equals(parsed.normalCacheKey, normalCacheKey))
+			return parsed.datasetAttributes;
+
+		final DatasetAttributes datasetAttributes = createDatasetAttributes.apply(attributes);
+		if (cacheInfo != null && cacheInfo != emptyCacheInfo)
+			cacheInfo.datasetAttributes = new ParsedDatasetAttributes(normalCacheKey, attributes, datasetAttributes);
+		return datasetAttributes;
 	}
 
 	public boolean isDataset(final String normalPathKey, final String normalCacheKey) {
 
-		N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
-		if (cacheInfo == null) {
-			addNewCacheInfo(normalPathKey, normalCacheKey, null);
-			cacheInfo = getCacheInfo(normalPathKey);
-		}
-		return cacheInfo.isDataset;
+		return getOrLoadCacheInfo(normalPathKey, normalCacheKey).isDataset;
 	}
 
 	public boolean isGroup(final String normalPathKey, final String cacheKey) {
 
-		N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
-		if (cacheInfo == null) {
-			addNewCacheInfo(normalPathKey, cacheKey, null);
-			cacheInfo = getCacheInfo(normalPathKey);
-		}
-		return cacheInfo.isGroup;
+		return getOrLoadCacheInfo(normalPathKey, cacheKey).isGroup;
 	}
 
 	/**
@@ -157,33 +302,24 @@ public class N5JsonCache {
 	 */
 	public boolean exists(final String normalPathKey, final String normalCacheKey) {
 
-		N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
-		if (cacheInfo == null) {
-			addNewCacheInfo(normalPathKey, normalCacheKey, null);
-			cacheInfo = getCacheInfo(normalPathKey);
-		}
-		return cacheInfo != emptyCacheInfo;
+		return getOrLoadCacheInfo(normalPathKey, normalCacheKey) != emptyCacheInfo;
 	}
 
 	public String[] list(final String normalPathKey) {
 
-		N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
-		if (cacheInfo == null) {
-			addNewCacheInfo(normalPathKey);
-			cacheInfo = getCacheInfo(normalPathKey);
-		}
+		final N5CacheInfo cacheInfo = getOrLoadCacheInfo(normalPathKey, null);
 		if (cacheInfo == emptyCacheInfo)
 			throw new N5Exception.N5IOException(normalPathKey + " is not a valid group");
 
-		if (cacheInfo.children == null)
-			addChild(cacheInfo, normalPathKey);
-
-		final String[] children = new String[cacheInfo.children.size()];
-		int i = 0;
-		for (final String child : cacheInfo.children) {
-			children[i++] = child;
+		Set<String> children = cacheInfo.children;
+		if (children == null) {
+			synchronized (cacheInfo) {
+				if (cacheInfo.children == null)
+					addChild(cacheInfo, normalPathKey);
+				children = cacheInfo.children;
+			}
 		}
-		return children;
+		return children.toArray(new String[0]);
 	}
 
 	public N5CacheInfo addNewCacheInfo(
@@ -197,7 +333,7 @@ public class N5JsonCache {
 		try {
 			attrsFromContainer = container.getAttributesFromContainer(normalPathKey, normalCacheKey);
 			if (attrsFromContainer == null)
-				groupExistsFromContainer = container.existsFromContainer(normalPathKey, null);
+				groupExistsFromContainer = isListedChild(normalPathKey) || container.existsFromContainer(normalPathKey, null);
 			if (groupExistsFromContainer || attrsFromContainer != null)
 				cacheInfo = newCacheInfo();
 			else
@@ -224,18 +360,84 @@ public class N5JsonCache {
 		return cacheInfo;
 	}
 
-	private N5CacheInfo addNewCacheInfo(final String normalPathKey) {
+	/**
+	 * Returns the cache info of a path, loading it from the container if it
+	 * is not cached. Concurrent calls for the same missing path load it only
+	 * once.
+	 *
+	 * @param normalPathKey
+	 *            the normalized path key
+	 * @param normalCacheKey
+	 *            the normalized cache key (may be null)
+	 * @return the cache info
+	 */
+	protected N5CacheInfo getOrLoadCacheInfo(final String normalPathKey, final String normalCacheKey) {
+
+		final N5CacheInfo cacheInfo = getCacheInfo(normalPathKey);
+		if (cacheInfo != null) {
+			hitCount.increment();
+			return cacheInfo;
+		}
+		missCount.increment();
+
+		final CompletableFuture<N5CacheInfo> load = new CompletableFuture<>();
+		final CompletableFuture<N5CacheInfo> inFlight = loading.putIfAbsent(normalPathKey, load);
+		if (inFlight != null) {
+			try {
+				return inFlight.join();
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException)e.getCause();
+				throw e;
+			}
+		}
+
+		try {
+			/* another thread may have finished loading before we registered */
+			N5CacheInfo loaded = getCacheInfo(normalPathKey);
+			if (loaded == null)
+				loaded = addNewCacheInfo(normalPathKey, normalCacheKey, null);
+			load.complete(loaded);
+			return loaded;
+		} catch (final RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(normalPathKey, load);
+		}
+	}
+
+	/**
+	 * Returns true if a path is among the cached children of its parent.
+	 * Children are cached when they are listed or created, so such a path is
+	 * known to exist without asking the container again.
+	 */
+	private boolean isListedChild(final String normalPathKey) {
+
+		if (normalPathKey.isEmpty())
+			return false;
+
+		final int i = normalPathKey.lastIndexOf('/');
+		final N5CacheInfo parentInfo = getCacheInfo(i < 0 ? "" : normalPathKey.substring(0, i));
+		if (parentInfo == null)
+			return false;
 
-		return addNewCacheInfo(normalPathKey, null, null);
+		final Set<String> children = parentInfo.children;
+		return children != null && children.contains(normalPathKey.substring(i + 1));
 	}
 
 	private void addChild(final N5CacheInfo cacheInfo, final String normalPathKey) {
 
-		if (cacheInfo.children == null)
-			cacheInfo.children = new LinkedHashSet<>();
-
-		final String[] children = container.listFromContainer(normalPathKey);
-		Collections.addAll(cacheInfo.children, children);
+		final String[] listed = container.listFromContainer(normalPathKey);
+		synchronized (cacheInfo) {
+			if (cacheInfo.children == null) {
+				/* publish the set only once it is filled */
+				final Set<String> children = ConcurrentHashMap.newKeySet(listed.length);
+				Collections.addAll(children, listed);
+				cacheInfo.children = children;
+			} else
+				Collections.addAll(cacheInfo.children, listed);
+		}
 	}
 
 	protected N5CacheInfo getOrMakeCacheInfo(final String normalPathKey) {
@@ -263,7 +465,7 @@ public class N5JsonCache {
 	public void updateCacheInfo(final String normalPathKey, final String normalCacheKey) {
 
 		final N5CacheInfo cacheInfo = getOrMakeCacheInfo(normalPathKey);
-		final JsonElement attrs = cacheInfo.attributesCache.get(normalCacheKey);
+		final JsonElement attrs = cacheInfo.getCache(normalCacheKey);
 		updateCacheInfo(normalPathKey, normalCacheKey, attrs);
 	}
 
@@ -306,7 +508,7 @@ public class N5JsonCache {
 		if (cacheInfo == null || cacheInfo == emptyCacheInfo) {
 			final N5CacheInfo info = newCacheInfo();
 			if (normalCacheKey != null)
-				info.attributesCache.put(normalCacheKey, emptyJson);
+				info.putCache(normalCacheKey, emptyJson);
 
 			updateCache(normalPathKey, info);
 		}
@@ -346,8 +548,9 @@ public class N5JsonCache {
 		if (cacheInfo == null)
 			return;
 
-		if (cacheInfo.children != null)
-			cacheInfo.children.add(child);
+		final Set<String> children = cacheInfo.children;
+		if (children != null && !children.contains(child))
+			children.add(child);
 	}
 
 	/**
@@ -365,36 +568,61 @@ public class N5JsonCache {
 		if (cacheInfo == null)
 			return;
 
-		if (cacheInfo.children == null)
-			cacheInfo.children = new LinkedHashSet<>();
-
-		cacheInfo.children.add(child);
+		Set<String> children = cacheInfo.children;
+		if (children == null) {
+			synchronized (cacheInfo) {
+				if (cacheInfo.children == null)
+					cacheInfo.children = ConcurrentHashMap.newKeySet();
+				children = cacheInfo.children;
+			}
+		}
+		if (!children.contains(child))
+			children.add(child);
 	}
 
 	public void removeCache(final String normalParentPathKey, final String normalPathKey) {
 
 		// this path and all children should be removed = set to emptyCacheInfo
-		synchronized (containerPathToCache) {
-			containerPathToCache.put(normalPathKey, emptyCacheInfo);
-			containerPathToCache.keySet().stream().filter(x -> {
-				return x.startsWith(normalPathKey + "/");
-			}).forEach(x -> {
-				containerPathToCache.put(x, emptyCacheInfo);
-			});
+		updateCache(normalPathKey, emptyCacheInfo);
+		for (final String x : containerPathToCache.keySet()) {
+			if (x.startsWith(normalPathKey + "/"))
+				updateCache(x, emptyCacheInfo);
 		}
 
 		// update the parent's children, if present (remove the normalPathKey)
-		final N5CacheInfo parentCache = containerPathToCache.get(normalParentPathKey);
-		if (parentCache != null && parentCache.children != null) {
-			parentCache.children.remove(normalPathKey.replaceFirst(normalParentPathKey + "/", ""));
+		final N5CacheInfo parentCache = getCacheInfo(normalParentPathKey);
+		if (parentCache != null) {
+			final Set<String> children = parentCache.children;
+			if (children != null)
+				children.remove(normalPathKey.replaceFirst(normalParentPathKey + "/", ""));
 		}
 	}
 
 	protected N5CacheInfo getCacheInfo(final String pathKey) {
 
-		synchronized (containerPathToCache) {
-			return containerPathToCache.get(pathKey);
+		if (pathKey == null)
+			return null;
+
+		final CacheEntry entry = containerPathToCache.get(pathKey);
+		if (entry == null)
+			return null;
+
+		if (System.currentTimeMillis() - entry.loadedAt >= ttlMillis) {
+			if (containerPathToCache.remove(pathKey, entry)) {
+				weight.addAndGet(-entry.weight);
+				expirationCount.increment();
+			}
+			return null;
 		}
+
+		/*
+		 * Recency is approximate, the tick advances when paths are cached,
+		 * not on hits, so hits only read it and write the entry rarely.
+		 */
+		final long tick = accessTick.get();
+		if (entry.lastAccess != tick)
+			entry.lastAccess = tick;
+		return entry.cacheInfo;
 	}
 
 	protected N5CacheInfo newCacheInfo() {
@@ -404,19 +632,219 @@ public class N5JsonCache {
 
 	protected void updateCache(final String normalPathKey, final N5CacheInfo cacheInfo) {
 
-		synchronized (containerPathToCache) {
-			containerPathToCache.put(normalPathKey, cacheInfo);
+		final CacheEntry entry = new CacheEntry(cacheInfo, weigh(normalPathKey, cacheInfo), accessTick.incrementAndGet());
+		final CacheEntry previous = containerPathToCache.put(normalPathKey, entry);
+		weight.addAndGet(entry.weight - (previous == null ? 0 : previous.weight));
+
+		if (containerPathToCache.size() > maxEntries || weight.get() > maxWeight)
+			evict();
+	}
+
+	/**
+	 * Bounds this cache. Least recently used paths are evicted when the
+	 * cache holds more than {@code maxEntries} paths or more than
+	 * {@code maxWeight} bytes of (approximate) attributes and children.
+	 * Paths are reloaded from the container when they are accessed more than
+	 * {@code ttlMillis} after they were loaded or written.
+	 * <p>
+	 * Pass {@link Long#MAX_VALUE} for no limit.
+	 *
+	 * @param maxEntries
+	 *            maximum number of cached paths
+	 * @param maxWeight
+	 *            maximum approximate weight of cached paths in bytes
+	 * @param ttlMillis
+	 *            time to live of cached paths in milliseconds
+	 */
+	public void setLimits(final long maxEntries, final long maxWeight, final long ttlMillis) {
+
+		if (maxEntries < 0 || maxWeight < 0 || ttlMillis < 0)
+			throw new IllegalArgumentException("Cache limits must not be negative.");
+
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+		this.ttlMillis = ttlMillis;
+		evict();
+	}
+
+	public long getMaxEntries() {
+
+		return maxEntries;
+	}
+
+	public long getMaxWeight() {
+
+		return maxWeight;
+	}
+
+	public long getTtlMillis() {
+
+		return ttlMillis;
+	}
+
+	/**
+	 * @return the number of cached paths
+	 */
+	public int size() {
+
+		return containerPathToCache.size();
+	}
+
+	/**
+	 * @return the approximate weight of all cached paths in bytes
+	 */
+	public long getWeight() {
+
+		return weight.get();
+	}
+
+	/**
+	 * @return how often a path was found in the cache
+	 */
+	public long getHitCount() {
+
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return how often a path had to be loaded from the container
+	 */
+	public long getMissCount() {
+
+		return missCount.sum();
+	}
+
+	/**
+	 * @return how many paths were evicted to stay within the limits
+	 */
+	public long getEvictionCount() {
+
+		return evictionCount.sum();
+	}
+
+	/**
+	 * @return how many paths expired because of the time to live
+	 */
+	public long getExpirationCount() {
+
+		return expirationCount.sum();
+	}
+
+	/**
+	 * Removes all cached paths.
+	 */
+	public void clear() {
+
+		containerPathToCache.clear();
+		weight.set(0);
+	}
+
+	/**
+	 * Evicts least recently used paths until the cache is below the low water
+	 * mark of its limits.  Attributes and children change in place, so the
+	 * weights are recomputed first.
+	 * <p>
+	 * Instead of sorting all paths by their last access, the access tick
+	 * below which the paths to evict lie is estimated from a sample of the
+	 * paths, and paths accessed before it are evicted in a single pass.
+	 */
+	private void evict() {
+
+		synchronized (evictionLock) {
+			final ThreadLocalRandom random = ThreadLocalRandom.current();
+			final long[] sample = new long[EVICTION_SAMPLE_SIZE];
+			while (true) {
+				long numEntries = 0;
+				long totalWeight = 0;
+				for (final Map.Entry<String, CacheEntry> entry : containerPathToCache.entrySet()) {
+					final CacheEntry cacheEntry = entry.getValue();
+					cacheEntry.weight = weigh(entry.getKey(), cacheEntry.cacheInfo);
+					totalWeight += cacheEntry.weight;
+					/* reservoir sample of the last accesses */
+					final long i = numEntries < sample.length ? numEntries : random.nextLong(numEntries + 1);
+					if (i < sample.length)
+						sample[(int)i] = cacheEntry.lastAccess;
+					++numEntries;
+				}
+				weight.set(totalWeight);
+
+				if (numEntries <= maxEntries && totalWeight <= maxWeight)
+					return;
+
+				final long targetEntries = (long)(maxEntries * EVICTION_LOW_WATER_MARK);
+				final long targetWeight = (long)(maxWeight * EVICTION_LOW_WATER_MARK);
+				final double fraction = Math.max(
+						1.0 - (double)targetEntries / numEntries,
+						1.0 - (double)targetWeight / totalWeight);
+				final int sampleSize = (int)Math.min(numEntries, sample.length);
+				Arrays.sort(sample, 0, sampleSize);
+				final long cutoff = sample[Math.max(0, Math.min(sampleSize - 1, (int)Math.ceil(fraction * sampleSize) - 1))];
+
+				boolean evicted = false;
+				for (final Map.Entry<String, CacheEntry> entry : containerPathToCache.entrySet()) {
+					if (numEntries <= targetEntries && totalWeight <= targetWeight)
+						return;
+					final CacheEntry cacheEntry = entry.getValue();
+					if (cacheEntry.lastAccess <= cutoff && containerPathToCache.remove(entry.getKey(), cacheEntry)) {
+						weight.addAndGet(-cacheEntry.weight);
+						evictionCount.increment();
+						--numEntries;
+						totalWeight -= cacheEntry.weight;
+						evicted = true;
+					}
+				}
+				/* the sample underestimated the cutoff, unless all paths were accessed meanwhile */
+				if (!evicted)
+					return;
+			}
 		}
 	}
 
+	/**
+	 * Approximates the memory footprint of a cached path in bytes.
+	 */
+	private static long weigh(final String normalPathKey, final N5CacheInfo cacheInfo) {
+
+		long w = 64 + 2L * normalPathKey.length();
+		if (cacheInfo == emptyCacheInfo)
+			return w;
+
+		for (final Map.Entry<String, JsonElement> entry : cacheInfo.attributesCache.entrySet())
+			w += 2L * entry.getKey().length() + weigh(entry.getValue());
+
+		final Set<String> children = cacheInfo.children;
+		if (children != null) {
+			for (final String child : children)
+				w += 48 + 2L * child.length();
+		}
+		return w;
+	}
+
+	private static long weigh(final JsonElement json) {
+
+		if (json == null || json.isJsonNull() || json instanceof EmptyJson)
+			return 16;
+		if (json.isJsonPrimitive())
+			return 24 + (json.getAsJsonPrimitive().isString() ? 2L * json.getAsString().length() : 8);
+		if (json.isJsonArray()) {
+			long w = 32;
+			for (final JsonElement element : (JsonArray)json)
+				w += 8 + weigh(element);
+			return w;
+		}
+		long w = 48;
+		for (final Map.Entry<String, JsonElement> entry : ((JsonObject)json).entrySet())
+			w += 32 + 2L * entry.getKey().length() + weigh(entry.getValue());
+		return w;
+	}
+
 	protected void updateCacheAttributes(
 			final N5CacheInfo cacheInfo,
 			final String normalCacheKey,
 			final JsonElement attributes) {
 
-		synchronized (cacheInfo.attributesCache) {
-			cacheInfo.attributesCache.put(normalCacheKey, attributes);
-		}
+		cacheInfo.putCache(normalCacheKey, attributes);
+		cacheInfo.datasetAttributes = null;
 	}
 
 	protected void updateCacheIsGroup(final N5CacheInfo cacheInfo, final boolean isGroup) {
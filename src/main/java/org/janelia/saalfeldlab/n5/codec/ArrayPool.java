@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.codec;
+
+import java.lang.reflect.Array;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * A thread-safe {@link DataPool} that keeps up to a fixed number of released
+ * arrays per array length.  Arrays that are released while the pool for their
+ * length is full are left to the garbage collector.
+ * <p>
+ * For example, {@code new ArrayPool<>(int[]::new, 16)} pools {@code int[]}
+ * arrays for decoding {@code INT32} and {@code UINT32} blocks.
+ *
+ * @param <T>
+ * 		type of the data contained in the DataBlock
+ */
+public class ArrayPool<T> implements DataPool<T> {
+
+	private final IntFunction<T> factory;
+	private final int maxPooledPerLength;
+	private final Map<Integer, Queue<T>> pools = new ConcurrentHashMap<>();
+
+	/**
+	 * @param factory
+	 * 		creates new arrays of a given length
+	 * @param maxPooledPerLength
+	 * 		maximum number of released arrays kept per array length
+	 */
+	public ArrayPool(final IntFunction<T> factory, final int maxPooledPerLength) {
+
+		if (maxPooledPerLength <= 0)
+			throw new IllegalArgumentException("maxPooledPerLength must be positive.");
+
+		this.factory = factory;
+		this.maxPooledPerLength = maxPooledPerLength;
+	}
+
+	@Override
+	public T acquire(final int numElements) {
+
+		final Queue<T> pool = pools.get(numElements);
+		final T data = pool == null ? null : pool.poll();
+		return data == null ? factory.apply(numElements) : data;
+	}
+
+	@Override
+	public void release(final T data) {
+
+		if (data != null)
+			pools.computeIfAbsent(Array.getLength(data), k -> new ArrayBlockingQueue<>(maxPooledPerLength)).offer(data);
+	}
+
+	/**
+	 * @return the number of arrays currently held by this pool
+	 */
+	public int size() {
+
+		return pools.values().stream().mapToInt(Queue::size).sum();
+	}
+}
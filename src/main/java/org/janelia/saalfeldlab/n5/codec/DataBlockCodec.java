@@ -43,4 +43,136 @@ public interface DataBlockCodec<T> {
 	ReadData encode(DataBlock<T> dataBlock) throws IOException;
 
 	DataBlock<T> decode(ReadData readData, long[] gridPosition) throws IOException;
+
+	/**
+	 * Decode a {@link DataBlock}, filling an array acquired from {@code pool}
+	 * instead of allocating a new one where possible.
+	 * <p>
+	 * The default implementation ignores the pool.
+	 *
+	 * @param readData
+	 * 		the encoded block
+	 * @param gridPosition
+	 * 		the grid position of the block
+	 * @param pool
+	 * 		source of the array for the decoded data, may be {@code null}
+	 *
+	 * @return the decoded block
+	 *
+	 * @throws IOException
+	 * 		if any I/O error occurs
+	 */
+	default DataBlock<T> decode(final ReadData readData, final long[] gridPosition, final DataPool<T> pool) throws IOException {
+
+		return decode(readData, gridPosition);
+	}
+
+	/**
+	 * Decode a {@link DataBlock} at the grid position of {@code target},
+	 * reusing the data array of {@code target} if the decoded block has the
+	 * same number of elements.  Otherwise, a new array is allocated.
+	 *
+	 * @param readData
+	 * 		the encoded block
+	 * @param target
+	 * 		the block whose data array is reused
+	 *
+	 * @return the decoded block, which shares the data array of {@code target}
+	 * 		if it was reused
+	 *
+	 * @throws IOException
+	 * 		if any I/O error occurs
+	 */
+	default DataBlock<T> decodeInto(final ReadData readData, final DataBlock<T> target) throws IOException {
+
+		return decode(readData, target.getGridPosition(), DataPool.reuse(target.getData()));
+	}
+
+	/**
+	 * Decompress an encoded block into memory without deserializing its
+	 * data.  Together with {@link #deserialize(DecompressedBlock, long[], DataPool)},
+	 * this splits {@link #decode(ReadData, long[], DataPool)} into two steps
+	 * that can run on different threads.
+	 * <p>
+	 * The default implementation does not separate the steps: it buffers the
+	 * encoded block, which is then decoded by
+	 * {@link #deserialize(DecompressedBlock, long[], DataPool)}.
+	 *
+	 * @param readData
+	 * 		the encoded block
+	 *
+	 * @return the decompressed block
+	 *
+	 * @throws IOException
+	 * 		if any I/O error occurs
+	 */
+	default DecompressedBlock decompress(final ReadData readData) throws IOException {
+
+		return new DecompressedBlock(null, -1, readData.materialize());
+	}
+
+	/**
+	 * Deserialize a block that was decompressed by
+	 * {@link #decompress(ReadData)}.
+	 *
+	 * @param decompressedBlock
+	 * 		the decompressed block
+	 * @param gridPosition
+	 * 		the grid position of the block
+	 * @param pool
+	 * 		source of the array for the decoded data, may be {@code null}
+	 *
+	 * @return the decoded block
+	 *
+	 * @throws IOException
+	 * 		if any I/O error occurs
+	 */
+	default DataBlock<T> deserialize(final DecompressedBlock decompressedBlock, final long[] gridPosition, final DataPool<T> pool) throws IOException {
+
+		return decode(decompressedBlock.getData(), gridPosition, pool);
+	}
+
+	/**
+	 * The header and the decompressed, but not yet deserialized, data of a
+	 * block.
+	 */
+	class DecompressedBlock {
+
+		private final int[] blockSize;
+		private final int numElements;
+		private final ReadData data;
+
+		public DecompressedBlock(final int[] blockSize, final int numElements, final ReadData data) {
+
+			this.blockSize = blockSize;
+			this.numElements = numElements;
+			this.data = data;
+		}
+
+		/**
+		 * @return the size of the block, or {@code null} if the block has
+		 * 		no size or the codec does not separate decompression
+		 */
+		public int[] getBlockSize() {
+
+			return blockSize;
+		}
+
+		/**
+		 * @return the number of elements, or {@code -1} if the codec does not
+		 * 		separate decompression
+		 */
+		public int getNumElements() {
+
+			return numElements;
+		}
+
+		/**
+		 * @return the decompressed data, held in memory
+		 */
+		public ReadData getData() {
+
+			return data;
+		}
+	}
 }
@@ -30,9 +30,9 @@ package org.janelia.saalfeldlab.n5.codec;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.IntBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -55,7 +55,29 @@ public abstract class DataCodec<T> {
 
 	public abstract ReadData serialize(T data) throws IOException;
 
-	public abstract T deserialize(ReadData readData, int numElements) throws IOException;
+	public T deserialize(final ReadData readData, final int numElements) throws IOException {
+		return deserialize(readData, numElements, null);
+	}
+
+	/**
+	 * Deserialize {@code numElements} elements into {@code data} if it is an
+	 * array of exactly {@code numElements} elements.  Otherwise, the elements
+	 * are deserialized into a new array.  Variable-length types always
+	 * deserialize into a new array.
+	 *
+	 * @param readData
+	 * 		the serialized data
+	 * @param numElements
+	 * 		number of elements
+	 * @param data
+	 * 		the array to fill, may be {@code null}
+	 *
+	 * @return the deserialized data, {@code data} if it was filled
+	 *
+	 * @throws IOException
+	 * 		if any I/O error occurs
+	 */
+	public abstract T deserialize(ReadData readData, int numElements, T data) throws IOException;
 
 	public int bytesPerElement() {
 		return bytesPerElement;
@@ -116,6 +138,77 @@ public abstract class DataCodec<T> {
 		this.dataFactory = dataFactory;
 	}
 
+	T reuseOrCreateData(final T data, final int numElements) {
+		return data != null && Array.getLength(data) == numElements ? data : createData(numElements);
+	}
+
+	/**
+	 * Base class for fixed-size numeric types.  Serialization is lazy and
+	 * writes the data in chunks through a per-thread scratch buffer.  Buffered
+	 * data is deserialized directly from its {@code ByteBuffer}, streamed data
+	 * in chunks through another per-thread scratch buffer.  Either way, the
+	 * serialized bytes are never held in a temporary array as a whole.
+	 */
+	private abstract static class NumericDataCodec<T> extends DataCodec<T> {
+
+		private static final int SCRATCH_BYTES = 64 * 1024;
+
+		private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_BYTES]);
+
+		private static final ThreadLocal<byte[]> SERIALIZE_SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_BYTES]);
+
+		final ByteOrder order;
+
+		NumericDataCodec(final int bytesPerElement, final IntFunction<T> dataFactory, final ByteOrder order) {
+			super(bytesPerElement, dataFactory);
+			this.order = order;
+		}
+
+		/**
+		 * Convert {@code length} elements from {@code source} into {@code data}
+		 * starting at {@code offset}.
+		 */
+		abstract void get(ByteBuffer source, T data, int offset, int length);
+
+		/**
+		 * Convert {@code length} elements of {@code data} starting at
+		 * {@code offset} into {@code target}.
+		 */
+		abstract void put(T data, int offset, int length, ByteBuffer target);
+
+		@Override
+		public ReadData serialize(final T data) {
+			final int numElements = Array.getLength(data);
+			return ReadData.from(out -> {
+				final byte[] scratch = SERIALIZE_SCRATCH.get();
+				final int chunkElements = scratch.length / bytesPerElement();
+				for (int offset = 0; offset < numElements; offset += chunkElements) {
+					final int length = Math.min(chunkElements, numElements - offset);
+					put(data, offset, length, ByteBuffer.wrap(scratch).order(order));
+					out.write(scratch, 0, length * bytesPerElement());
+				}
+			}, (long) numElements * bytesPerElement());
+		}
+
+		@Override
+		public T deserialize(final ReadData readData, final int numElements, final T data) throws IOException {
+			final T target = reuseOrCreateData(data, numElements);
+			if (readData.length() >= 0) {
+				get(readData.toByteBuffer().order(order), target, 0, numElements);
+			} else {
+				final byte[] scratch = SCRATCH.get();
+				final int chunkElements = scratch.length / bytesPerElement();
+				final DataInputStream in = new DataInputStream(readData.inputStream());
+				for (int offset = 0; offset < numElements; offset += chunkElements) {
+					final int length = Math.min(chunkElements, numElements - offset);
+					in.readFully(scratch, 0, length * bytesPerElement());
+					get(ByteBuffer.wrap(scratch, 0, length * bytesPerElement()).order(order), target, offset, length);
+				}
+			}
+			return target;
+		}
+	}
+
 	private static final class ByteDataCodec extends DataCodec<byte[]> {
 
 		private ByteDataCodec() {
@@ -128,132 +221,95 @@ public abstract class DataCodec<T> {
 		}
 
 		@Override
-		public byte[] deserialize(final ReadData readData, int numElements) throws IOException {
-			final byte[] data = createData(numElements);
-			new DataInputStream(readData.inputStream()).readFully(data);
-			return data;
+		public byte[] deserialize(final ReadData readData, int numElements, final byte[] data) throws IOException {
+			final byte[] target = reuseOrCreateData(data, numElements);
+			new DataInputStream(readData.inputStream()).readFully(target);
+			return target;
 		}
 	}
 
-	private static final class ShortDataCodec extends DataCodec<short[]> {
-
-		private final ByteOrder order;
+	private static final class ShortDataCodec extends NumericDataCodec<short[]> {
 
 		ShortDataCodec(ByteOrder order) {
-			super(Short.BYTES, short[]::new);
-			this.order = order;
+			super(Short.BYTES, short[]::new, order);
 		}
 
 		@Override
-		public ReadData serialize(final short[] data) {
-			final ByteBuffer serialized = ByteBuffer.allocate(Short.BYTES * data.length);
-			serialized.order(order).asShortBuffer().put(data);
-			return ReadData.from(serialized);
+		void get(final ByteBuffer source, final short[] data, final int offset, final int length) {
+			source.asShortBuffer().get(data, offset, length);
 		}
 
 		@Override
-		public short[] deserialize(final ReadData readData, int numElements) throws IOException {
-			final short[] data = createData(numElements);
-			readData.toByteBuffer().order(order).asShortBuffer().get(data);
-			return data;
+		void put(final short[] data, final int offset, final int length, final ByteBuffer target) {
+			target.asShortBuffer().put(data, offset, length);
 		}
 	}
 
-	private static final class IntDataCodec extends DataCodec<int[]> {
-
-		private final ByteOrder order;
+	private static final class IntDataCodec extends NumericDataCodec<int[]> {
 
 		IntDataCodec(ByteOrder order) {
-			super(Integer.BYTES, int[]::new);
-			this.order = order;
+			super(Integer.BYTES, int[]::new, order);
 		}
 
 		@Override
-		public ReadData serialize(final int[] data) {
-			final ByteBuffer serialized = ByteBuffer.allocate(Integer.BYTES * data.length);
-			serialized.order(order).asIntBuffer().put(data);
-			return ReadData.from(serialized);
+		void get(final ByteBuffer source, final int[] data, final int offset, final int length) {
+			source.asIntBuffer().get(data, offset, length);
 		}
 
 		@Override
-		public int[] deserialize(final ReadData readData, int numElements) throws IOException {
-			final int[] data = createData(numElements);
-			final ByteBuffer byteBuffer = readData.toByteBuffer();
-			final IntBuffer intBuffer = byteBuffer.order(order).asIntBuffer();
-			intBuffer.get(data);
-			return data;
+		void put(final int[] data, final int offset, final int length, final ByteBuffer target) {
+			target.asIntBuffer().put(data, offset, length);
 		}
 	}
 
-	private static final class LongDataCodec extends DataCodec<long[]> {
-
-		private final ByteOrder order;
+	private static final class LongDataCodec extends NumericDataCodec<long[]> {
 
 		LongDataCodec(ByteOrder order) {
-			super(Long.BYTES, long[]::new);
-			this.order = order;
+			super(Long.BYTES, long[]::new, order);
 		}
 
 		@Override
-		public ReadData serialize(final long[] data) {
-			final ByteBuffer serialized = ByteBuffer.allocate(Long.BYTES * data.length);
-			serialized.order(order).asLongBuffer().put(data);
-			return ReadData.from(serialized);
+		void get(final ByteBuffer source, final long[] data, final int offset, final int length) {
+			source.asLongBuffer().get(data, offset, length);
 		}
 
 		@Override
-		public long[] deserialize(final ReadData readData, int numElements) throws IOException {
-			final long[] data = createData(numElements);
-			readData.toByteBuffer().order(order).asLongBuffer().get(data);
-			return data;
+		void put(final long[] data, final int offset, final int length, final ByteBuffer target) {
+			target.asLongBuffer().put(data, offset, length);
 		}
 	}
 
-	private static final class FloatDataCodec extends DataCodec<float[]> {
-
-		private final ByteOrder order;
+	private static final class FloatDataCodec extends NumericDataCodec<float[]> {
 
 		FloatDataCodec(ByteOrder order) {
-			super(Float.BYTES, float[]::new);
-			this.order = order;
+			super(Float.BYTES, float[]::new, order);
 		}
 
 		@Override
-		public ReadData serialize(final float[] data) {
-			final ByteBuffer serialized = ByteBuffer.allocate(Float.BYTES * data.length);
-			serialized.order(order).asFloatBuffer().put(data);
-			return ReadData.from(serialized);
+		void get(final ByteBuffer source, final float[] data, final int offset, final int length) {
+			source.asFloatBuffer().get(data, offset, length);
 		}
 
 		@Override
-		public float[] deserialize(final ReadData readData, int numElements) throws IOException {
-			final float[] data = createData(numElements);
-			readData.toByteBuffer().order(order).asFloatBuffer().get(data);
-			return data;
+		void put(final float[] data, final int offset, final int length, final ByteBuffer target) {
+			target.asFloatBuffer().put(data, offset, length);
 		}
 	}
 
-	private static final class DoubleDataCodec extends DataCodec<double[]> {
-
-		private final ByteOrder order;
+	private static final class DoubleDataCodec extends NumericDataCodec<double[]> {
 
 		DoubleDataCodec(ByteOrder order) {
-			super(Double.BYTES, double[]::new);
-			this.order = order;
+			super(Double.BYTES, double[]::new, order);
 		}
 
 		@Override
-		public ReadData serialize(final double[] data) {
-			final ByteBuffer serialized = ByteBuffer.allocate(Double.BYTES * data.length);
-			serialized.order(order).asDoubleBuffer().put(data);
-			return ReadData.from(serialized);
+		void get(final ByteBuffer source, final double[] data, final int offset, final int length) {
+			source.asDoubleBuffer().get(data, offset, length);
 		}
 
 		@Override
-		public double[] deserialize(final ReadData readData, int numElements) throws IOException {
-			final double[] data = createData(numElements);
-			readData.toByteBuffer().order(order).asDoubleBuffer().get(data);
-			return data;
+		void put(final double[] data, final int offset, final int length, final ByteBuffer target) {
+			target.asDoubleBuffer().put(data, offset, length);
 		}
 	}
 
@@ -273,7 +329,7 @@ public abstract class DataCodec<T> {
 		}
 
 		@Override
-		public String[] deserialize(ReadData readData, int numElements) throws IOException {
+		public String[] deserialize(ReadData readData, int numElements, String[] data) throws IOException {
 			final byte[] serializedData = readData.allBytes();
 			final String rawChars = new String(serializedData, ENCODING);
 			return rawChars.split(NULLCHAR);
@@ -305,7 +361,7 @@ public abstract class DataCodec<T> {
 		}
 
 		@Override
-		public String[] deserialize(ReadData readData, int numElements) throws IOException {
+		public String[] deserialize(ReadData readData, int numElements, String[] data) throws IOException {
 			final ByteBuffer serialized = readData.toByteBuffer();
 			serialized.order(ByteOrder.LITTLE_ENDIAN);
 
@@ -340,10 +396,10 @@ public abstract class DataCodec<T> {
 		}
 
 		@Override
-		public byte[] deserialize(ReadData readData, int numElements) throws IOException {
-			final byte[] data = createData(numElements);
-			new DataInputStream(readData.inputStream()).readFully(data);
-			return data;
+		public byte[] deserialize(ReadData readData, int numElements, byte[] data) throws IOException {
+			final byte[] target = reuseOrCreateData(data, numElements);
+			new DataInputStream(readData.inputStream()).readFully(target);
+			return target;
 		}
 	}
 }
@@ -0,0 +1,91 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.codec;
+
+import java.lang.reflect.Array;
+
+/**
+ * A source of arrays that {@link DataBlockCodec#decode(org.janelia.saalfeldlab.n5.readdata.ReadData, long[], DataPool)
+ * decoding} can fill instead of allocating new ones.
+ * <p>
+ * Arrays acquired from the pool, i.e. the data of decoded blocks, should be
+ * {@link #release(Object) released} when they are no longer used.
+ *
+ * @param <T>
+ * 		type of the data contained in the DataBlock
+ */
+public interface DataPool<T> {
+
+	/**
+	 * Get an array with {@code numElements} elements.  The contents of the
+	 * array are undefined.
+	 *
+	 * @param numElements
+	 * 		number of elements
+	 *
+	 * @return an array with {@code numElements} elements, or {@code null} if
+	 * 		the pool cannot provide one, in which case a new array is allocated
+	 */
+	T acquire(int numElements);
+
+	/**
+	 * Return an array to the pool.  The array must not be used by the caller
+	 * afterwards.
+	 *
+	 * @param data
+	 * 		an array
+	 */
+	void release(T data);
+
+	/**
+	 * Create a {@code DataPool} that provides the given array whenever an
+	 * array of its length is requested.  Released arrays are ignored.
+	 *
+	 * @param data
+	 * 		the array to reuse, may be {@code null}
+	 * @param <T>
+	 * 		type of the data contained in the DataBlock
+	 *
+	 * @return a pool that provides {@code data}
+	 */
+	static <T> DataPool<T> reuse(final T data) {
+
+		return new DataPool<T>() {
+
+			@Override
+			public T acquire(final int numElements) {
+
+				return data != null && Array.getLength(data) == numElements ? data : null;
+			}
+
+			@Override
+			public void release(final T released) {}
+		};
+	}
+}
@@ -154,19 +154,66 @@ public class N5Codecs {
 		@Override
 		public DataBlock<T> decode(final ReadData readData, final long[] gridPosition) throws IOException {
 
+			return decode(readData, gridPosition, null);
+		}
+
+		@Override
+		public DataBlock<T> decode(final ReadData readData, final long[] gridPosition, final DataPool<T> pool) throws IOException {
+
+			if (readData.length() >= 0) {
+				// the data is (or can be) held in a buffer: read the header
+				// and decode the remaining bytes in place
+				final ReadData bufferedData = readData.materialize();
+				final BlockHeader header;
+				try (final InputStream in = bufferedData.inputStream()) {
+					header = decodeBlockHeader(in);
+				}
+				return decode(header, bufferedData.slice(header.size(), -1), gridPosition, pool);
+			}
+
 			try(final InputStream in = readData.inputStream()) {
 				final BlockHeader header = decodeBlockHeader(in);
+				return decode(header, ReadData.from(in), gridPosition, pool);
+			}
+		}
 
-				final int bytesPerElement
-						= dataCodec.bytesPerElement() == -1
-						? VAR_OBJ_BYTES_PER_ELEMENT
-						: dataCodec.bytesPerElement();
+		@Override
+		public DecompressedBlock decompress(final ReadData readData) throws IOException {
 
-				final int numElements = header.numElements();
-				final ReadData decodeData = compression.decode(ReadData.from(in));
-				final T data = dataCodec.deserialize(decodeData, numElements);
-				return dataBlockFactory.createDataBlock(header.blockSize(), gridPosition, data);
+			final ReadData bufferedData = readData.materialize();
+			final BlockHeader header;
+			try (final InputStream in = bufferedData.inputStream()) {
+				header = decodeBlockHeader(in);
 			}
+			final ReadData decodedData = compression.decode(bufferedData.slice(header.size(), -1)).materialize();
+			return new DecompressedBlock(header.blockSize(), header.numElements(), decodedData);
+		}
+
+		@Override
+		public DataBlock<T> deserialize(final DecompressedBlock decompressedBlock, final long[] gridPosition, final DataPool<T> pool) throws IOException {
+
+			final int numElements = decompressedBlock.getNumElements();
+			final T target = pool == null ? null : pool.acquire(numElements);
+			final T data = dataCodec.deserialize(decompressedBlock.getData(), numElements, target);
+			return dataBlockFactory.createDataBlock(decompressedBlock.getBlockSize(), gridPosition, data);
+		}
+
+		private DataBlock<T> decode(
+				final BlockHeader header,
+				final ReadData encodedData,
+				final long[] gridPosition,
+				final DataPool<T> pool) throws IOException {
+
+			final int bytesPerElement
+					= dataCodec.bytesPerElement() == -1
+					? VAR_OBJ_BYTES_PER_ELEMENT
+					: dataCodec.bytesPerElement();
+
+			final int numElements = header.numElements();
+			final ReadData decodeData = compression.decode(encodedData);
+			final T target = pool == null ? null : pool.acquire(numElements);
+			final T data = dataCodec.deserialize(decodeData, numElements, target);
+			return dataBlockFactory.createDataBlock(header.blockSize(), gridPosition, data);
 		}
 	}
 
@@ -282,6 +329,21 @@ public class N5Codecs {
 			return numElements;
 		}
 
+		/**
+		 * @return the number of bytes of the serialized header
+		 */
+		public int size() {
+
+			switch (mode) {
+			case MODE_DEFAULT:
+				return 4 + 4 * blockSize.length;
+			case MODE_VARLENGTH:
+				return 8 + 4 * blockSize.length;
+			default:
+				return 6;
+			}
+		}
+
 		private static int[] readBlockSize(final DataInputStream dis) throws IOException {
 
 			final int nDim = dis.readShort();
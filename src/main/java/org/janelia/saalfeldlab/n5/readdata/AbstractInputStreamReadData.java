@@ -30,6 +30,7 @@ package org.janelia.saalfeldlab.n5.readdata;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import org.apache.commons.io.IOUtils;
 
 // not thread-safe
@@ -42,11 +43,13 @@ abstract class AbstractInputStreamReadData implements ReadData {
 		if (bytes == null) {
 			final byte[] data;
 			final int length = (int) length();
-			if (length >= 0) {
-				data = new byte[length];
-				new DataInputStream(inputStream()).readFully(data);
-			} else {
-				data = IOUtils.toByteArray(inputStream());
+			try (final InputStream in = inputStream()) {
+				if (length >= 0) {
+					data = new byte[length];
+					new DataInputStream(in).readFully(data);
+				} else {
+					data = IOUtils.toByteArray(in);
+				}
 			}
 			bytes = new ByteArraySplittableReadData(data);
 		}
@@ -31,6 +31,8 @@ package org.janelia.saalfeldlab.n5.readdata;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 class ByteArraySplittableReadData implements ReadData {
@@ -68,8 +70,26 @@ class ByteArraySplittableReadData implements ReadData {
 		}
 	}
 
+	@Override
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(data, offset, length).slice();
+	}
+
 	@Override
 	public ReadData materialize() throws IOException {
 		return this;
 	}
+
+	@Override
+	public ReadData slice(final long offset, final long length) {
+		final long sliceLength = length < 0 ? this.length - offset : length;
+		if (offset < 0 || sliceLength < 0 || offset + sliceLength > this.length)
+			throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + sliceLength) + ") out of bounds [0, " + this.length + ")");
+		return new ByteArraySplittableReadData(data, this.offset + (int)offset, (int)sliceLength);
+	}
+
+	@Override
+	public void writeTo(final OutputStream outputStream) throws IOException {
+		outputStream.write(data, offset, length);
+	}
 }
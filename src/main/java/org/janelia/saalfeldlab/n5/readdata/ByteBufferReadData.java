@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.readdata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@code ReadData} backed by a {@code ByteBuffer}, typically a direct or
+ * memory mapped buffer. The data is never copied unless requested through
+ * {@link #allBytes()}.
+ */
+class ByteBufferReadData implements ReadData {
+
+	private final ByteBuffer data;
+
+	/**
+	 * Wraps the bytes between position and limit of {@code data}. Later
+	 * changes of position and limit of {@code data} do not affect this
+	 * {@code ReadData}.
+	 */
+	ByteBufferReadData(final ByteBuffer data) {
+		this.data = data.slice();
+	}
+
+	@Override
+	public long length() {
+		return data.limit();
+	}
+
+	@Override
+	public InputStream inputStream() {
+		return new ByteBufferInputStream(data.duplicate());
+	}
+
+	@Override
+	public byte[] allBytes() {
+		final byte[] bytes = new byte[data.limit()];
+		data.duplicate().get(bytes);
+		return bytes;
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		return data.duplicate().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	@Override
+	public ReadData materialize() {
+		return this;
+	}
+
+	@Override
+	public ReadData slice(final long offset, final long length) {
+		final long sliceLength = length < 0 ? data.limit() - offset : length;
+		if (offset < 0 || sliceLength < 0 || offset + sliceLength > data.limit())
+			throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + sliceLength) + ") out of bounds [0, " + data.limit() + ")");
+		final ByteBuffer slice = data.duplicate();
+		slice.position((int)offset);
+		slice.limit((int)(offset + sliceLength));
+		return new ByteBufferReadData(slice);
+	}
+
+	@Override
+	public void writeTo(final OutputStream outputStream) throws IOException {
+		final ByteBuffer buffer = data.duplicate();
+		final WritableByteChannel channel = Channels.newChannel(outputStream);
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0)
+				return 0;
+			if (!buffer.hasRemaining())
+				return -1;
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) {
+			final int skipped = (int)Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
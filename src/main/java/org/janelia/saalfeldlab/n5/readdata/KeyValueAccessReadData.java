@@ -30,6 +30,7 @@ package org.janelia.saalfeldlab.n5.readdata;
 
 import java.io.IOException;
 import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.ProxyInputStream;
 import org.janelia.saalfeldlab.n5.KeyValueAccess;
 import org.janelia.saalfeldlab.n5.LockedChannel;
@@ -38,10 +39,20 @@ class KeyValueAccessReadData extends AbstractInputStreamReadData {
 
 	private final KeyValueAccess keyValueAccess;
 	private final String normalPath;
+	private final long offset;
+	private final long length;
 
-	KeyValueAccessReadData(final KeyValueAccess keyValueAccess, final String normalPath) {
+	/**
+	 * @param offset
+	 * 		first byte to read
+	 * @param length
+	 * 		number of bytes to read, or -1 to read up to the end
+	 */
+	KeyValueAccessReadData(final KeyValueAccess keyValueAccess, final String normalPath, final long offset, final long length) {
 		this.keyValueAccess = keyValueAccess;
 		this.normalPath = normalPath;
+		this.offset = offset;
+		this.length = length;
 	}
 
 	/**
@@ -58,7 +69,9 @@ class KeyValueAccessReadData extends AbstractInputStreamReadData {
 	 */
 	@Override
 	public InputStream inputStream() throws IOException {
-		final LockedChannel channel = keyValueAccess.lockForReading(normalPath);
+		final LockedChannel channel = offset == 0 && length < 0
+				? keyValueAccess.lockForReading(normalPath)
+				: keyValueAccess.lockForReading(normalPath, offset, length);
 		return new ProxyInputStream(channel.newInputStream()) {
 
 			@Override
@@ -68,4 +81,45 @@ class KeyValueAccessReadData extends AbstractInputStreamReadData {
 			}
 		};
 	}
+
+	private ReadData bytes;
+
+	/**
+	 * The length of the byte range, or -1 if this data reads up to the end
+	 * of the key. The size of the key is not queried, a range that extends
+	 * past the end of the key has the length of the bytes actually read once
+	 * it is {@link #materialize() materialized}.
+	 */
+	@Override
+	public long length() throws IOException {
+		return bytes == null ? length : bytes.length();
+	}
+
+	/**
+	 * Reads the byte range, the stream of the range ends at its length or
+	 * at the end of the key, whichever comes first.
+	 */
+	@Override
+	public ReadData materialize() throws IOException {
+		if (bytes == null) {
+			try (final InputStream in = inputStream()) {
+				bytes = new ByteArraySplittableReadData(IOUtils.toByteArray(in));
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns a lazy {@code ReadData} that reads only the requested byte range
+	 * from the {@code KeyValueAccess}. The range is checked against the
+	 * length of this data if it is known, but never against the size of the
+	 * key.
+	 */
+	@Override
+	public ReadData slice(final long offset, final long length) {
+		if (offset < 0 || (this.length >= 0 && (offset > this.length || offset + length > this.length)))
+			throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + length) + ") out of bounds [0, " + this.length + ")");
+		final long sliceLength = length < 0 && this.length >= 0 ? this.length - offset : length;
+		return new KeyValueAccessReadData(keyValueAccess, normalPath, this.offset + offset, sliceLength);
+	}
 }
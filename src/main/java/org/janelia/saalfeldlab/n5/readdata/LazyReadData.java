@@ -37,7 +37,18 @@ import org.apache.commons.io.output.ProxyOutputStream;
 class LazyReadData implements ReadData {
 
 	LazyReadData(final OutputStreamWriter writer) {
+		this(writer, -1);
+	}
+
+	/**
+	 * @param writer
+	 * 		generates the data
+	 * @param length
+	 * 		number of bytes that {@code writer} generates, or -1 if unknown
+	 */
+	LazyReadData(final OutputStreamWriter writer, final long length) {
 		this.writer = writer;
+		this.length = length;
 	}
 
 	/**
@@ -59,21 +70,32 @@ class LazyReadData implements ReadData {
 
 	private final OutputStreamWriter writer;
 
+	private final long length;
+
 	private ByteArraySplittableReadData bytes;
 
+	/**
+	 * Generates the data into a {@code byte[]} array.  If the length is known,
+	 * the array is allocated with the exact size.  Otherwise, the array of the
+	 * growing buffer is used directly instead of copying it.
+	 */
 	@Override
 	public ReadData materialize() throws IOException {
 		if (bytes == null) {
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
-			writeTo(baos);
-			bytes = new ByteArraySplittableReadData(baos.toByteArray());
+			final ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream(length >= 0 ? (int) length : 8192);
+			writer.writeTo(out);
+			bytes = out.toReadData();
 		}
 		return bytes;
 	}
 
+	/**
+	 * Returns the number of bytes of this data.  If the length was not given
+	 * at construction, the data is {@link #materialize() materialized}.
+	 */
 	@Override
 	public long length() throws IOException {
-		return materialize().length();
+		return length >= 0 && bytes == null ? length : materialize().length();
 	}
 
 	@Override
@@ -89,12 +111,23 @@ class LazyReadData implements ReadData {
 	@Override
 	public void writeTo(final OutputStream outputStream) throws IOException, IllegalStateException {
 		if (bytes != null) {
-			outputStream.write(bytes.allBytes());
+			bytes.writeTo(outputStream);
 		} else {
 			writer.writeTo(outputStream);
 		}
 	}
 
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+		ExposedByteArrayOutputStream(final int size) {
+			super(size);
+		}
+
+		ByteArraySplittableReadData toReadData() {
+			return new ByteArraySplittableReadData(buf, 0, count);
+		}
+	}
+
 	/**
 	 * {@code UnaryOperator} that wraps {@code OutputStream} to intercept {@code
 	 * close()} and call {@code flush()} instead
@@ -135,6 +135,31 @@ public interface ReadData {
 	 */
 	ReadData materialize() throws IOException;
 
+	/**
+	 * Returns a {@code ReadData} on the bytes {@code [offset, offset + length)}
+	 * of this data.
+	 * <p>
+	 * The default implementation {@link #materialize() materializes} this
+	 * data and slices the result. Implementations backed by a
+	 * {@code KeyValueAccess} return a lazy {@code ReadData} that reads only the
+	 * requested range.
+	 *
+	 * @param offset
+	 * 		offset of the first byte of the slice
+	 * @param length
+	 * 		number of bytes of the slice, or -1 for all bytes up to the end
+	 *
+	 * @return a ReadData on the requested bytes
+	 *
+	 * @throws IOException
+	 * 		if any I/O error occurs
+	 * @throws IndexOutOfBoundsException
+	 * 		if the requested range exceeds the known length of this data
+	 */
+	default ReadData slice(final long offset, final long length) throws IOException {
+		return materialize().slice(offset, length);
+	}
+
 	/**
 	 * Write the contained data into an {@code OutputStream}.
 	 * <p>
@@ -220,7 +245,8 @@ public interface ReadData {
 	/**
 	 * Create a new {@code ReadData} that loads lazily from {@code normalPath}
 	 * in {@code keyValueAccess}. The returned ReadData reports {@link #length()
-	 * length() == -1} (i.e., unknown length).
+	 * length() == -1} (i.e., unknown length). {@link #slice(long, long) Slices}
+	 * of the returned ReadData read only the requested byte range.
 	 *
 	 * @param keyValueAccess
 	 * 		KeyValueAccess to read from
@@ -230,7 +256,7 @@ public interface ReadData {
 	 * @return a new ReadData
 	 */
 	static ReadData from(final KeyValueAccess keyValueAccess, final String normalPath) {
-		return new KeyValueAccessReadData(keyValueAccess, normalPath);
+		return new KeyValueAccessReadData(keyValueAccess, normalPath, 0, -1);
 	}
 
 	/**
@@ -263,7 +289,11 @@ public interface ReadData {
 	}
 
 	/**
-	 * Create a new {@code ReadData} that wraps the given {@code ByteBuffer}.
+	 * Create a new {@code ReadData} that wraps the remaining bytes (between
+	 * position and limit) of the given {@code ByteBuffer}.
+	 * <p>
+	 * Heap buffers are wrapped as {@code byte[]} arrays. Direct and memory
+	 * mapped buffers are wrapped without copying.
 	 *
 	 * @param data
 	 * 		buffer containing the data
@@ -272,9 +302,9 @@ public interface ReadData {
 	 */
 	static ReadData from(final ByteBuffer data) {
 		if (data.hasArray()) {
-			return from(data.array(), 0, data.limit());
+			return from(data.array(), data.arrayOffset() + data.position(), data.remaining());
 		} else {
-			throw new UnsupportedOperationException("TODO. Direct ByteBuffer not supported yet.");
+			return new ByteBufferReadData(data);
 		}
 	}
 
@@ -294,4 +324,23 @@ public interface ReadData {
 	static ReadData from(OutputStreamWriter generator) {
 		return new LazyReadData(generator);
 	}
+
+	/**
+	 * Create a new {@code ReadData} that is lazily generated by the given
+	 * {@link OutputStreamWriter} and {@link #length() reports} the given
+	 * {@code length} without generating the data.
+	 * <p>
+	 * No effort is made to ensure that the {@code generator} in fact writes
+	 * exactly {@code length} bytes.
+	 *
+	 * @param generator
+	 * 		generates the data
+	 * @param length
+	 * 		number of bytes written by {@code generator}
+	 *
+	 * @return a new ReadData
+	 */
+	static ReadData from(OutputStreamWriter generator, long length) {
+		return new LazyReadData(generator, length);
+	}
 }
@@ -0,0 +1,283 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.shard;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.LockedChannel;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * Static methods to access the encoded blocks stored in a shard.
+ * <p>
+ * A shard starts with its {@link ShardIndex} followed by the encoded blocks.
+ * Each block is encoded exactly as it would be stored under an individual
+ * key.  Blocks are appended to the shard and the index is rewritten, so a
+ * shard may contain replaced blocks that are no longer referenced by its
+ * index until it is compacted.
+ * <p>
+ * A key that is shorter than the index but not empty holds a shard that has
+ * been removed.  It is written before the key of an emptied shard is
+ * deleted under the same lock, so that writers that waited for the lock of
+ * the deleted key do not add blocks to it but open the key again.
+ */
+public interface Shard {
+
+	/**
+	 * How often a writer opens a removed shard again before it considers it
+	 * left behind by an interrupted removal and reuses the key.
+	 */
+	int MAX_REMOVED_SHARD_ATTEMPTS = 50;
+
+	/**
+	 * Milliseconds to wait before a removed shard is opened again.
+	 */
+	long REMOVED_SHARD_WAIT = 10;
+
+	/**
+	 * Get the encoded data of a block from a shard.
+	 * <p>
+	 * Only the index and the requested block are read if {@code shard}
+	 * supports lazy {@link ReadData#slice(long, long) slices}.
+	 *
+	 * @param shard
+	 *            the shard
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @return the encoded block, or {@code null} if the block does not exist
+	 * @throws IOException
+	 *             if the shard cannot be read
+	 */
+	static ReadData readBlock(
+			final ReadData shard,
+			final DatasetAttributes datasetAttributes,
+			final long... gridPosition) throws IOException {
+
+		final int numBlocks = datasetAttributes.getNumBlocksPerShard();
+		final long shardLength = shard.length();
+		if (shardLength >= 0 && shardLength < ShardIndex.numBytes(numBlocks))
+			/* a new or a removed shard */
+			return null;
+
+		final ReadData indexData = shard.slice(0, ShardIndex.numBytes(numBlocks)).materialize();
+		if (indexData.length() < ShardIndex.numBytes(numBlocks))
+			/* a removed shard of unknown length */
+			return null;
+
+		final ShardIndex index = ShardIndex.read(indexData, numBlocks);
+		final int i = datasetAttributes.getBlockIndexInShard(gridPosition);
+		if (!index.exists(i))
+			return null;
+
+		final long offset = index.getOffset(i);
+		final long length = index.getLength(i);
+		if (offset < ShardIndex.numBytes(numBlocks) || length < 0 || (shardLength >= 0 && offset + length > shardLength))
+			throw new IOException("Invalid shard index entry for block " + Arrays.toString(gridPosition) + ": offset " + offset + ", length " + length);
+
+		return shard.slice(offset, length);
+	}
+
+	/**
+	 * Create a shard in which a block is replaced or removed.  The existing
+	 * blocks are not re-encoded.
+	 *
+	 * @param shard
+	 *            the existing shard, must have a known length, a shard
+	 *            shorter than its index stands for a shard without blocks
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @param block
+	 *            the encoded block, or {@code null} to remove the block
+	 * @return the new shard, or {@code null} if the new shard contains no
+	 *         blocks
+	 * @throws IOException
+	 *             if the existing shard cannot be read
+	 */
+	static ReadData writeBlock(
+			final ReadData shard,
+			final DatasetAttributes datasetAttributes,
+			final long[] gridPosition,
+			final ReadData block) throws IOException {
+
+		final int numBlocks = datasetAttributes.getNumBlocksPerShard();
+		final ReadData[] blocks = new ReadData[numBlocks];
+		if (shard.length() >= ShardIndex.numBytes(numBlocks)) {
+			final ShardIndex index = ShardIndex.read(shard.slice(0, ShardIndex.numBytes(numBlocks)), numBlocks);
+			for (int i = 0; i < numBlocks; ++i)
+				if (index.exists(i))
+					blocks[i] = shard.slice(index.getOffset(i), index.getLength(i));
+		}
+		blocks[datasetAttributes.getBlockIndexInShard(gridPosition)] = block == null ? null : block.materialize();
+
+		final ShardIndex index = new ShardIndex(numBlocks);
+		long offset = ShardIndex.numBytes(numBlocks);
+		for (int i = 0; i < numBlocks; ++i) {
+			if (blocks[i] != null) {
+				final long length = blocks[i].length();
+				index.set(i, offset, length);
+				offset += length;
+			}
+		}
+		if (index.isEmpty())
+			return null;
+
+		return ReadData.from(out -> {
+			index.writeTo(out);
+			for (final ReadData b : blocks)
+				if (b != null)
+					b.writeTo(out);
+		});
+	}
+
+	/**
+	 * Read the index of the shard held by a channel that is locked for
+	 * writing.  Only the index is read.
+	 *
+	 * @param channel
+	 *            the locked channel
+	 * @param numBlocks
+	 *            number of blocks in the shard
+	 * @return the index, an empty index if the channel is empty, or
+	 *         {@code null} if the channel holds a removed shard
+	 * @throws IOException
+	 *             if the index cannot be read
+	 */
+	static ShardIndex readIndex(final LockedChannel channel, final int numBlocks) throws IOException {
+
+		final byte[] bytes = new byte[ShardIndex.numBytes(numBlocks)];
+		final int n = IOUtils.read(channel.newInputStream(), bytes);
+		if (n == 0)
+			return new ShardIndex(numBlocks);
+		if (n < bytes.length)
+			return null;
+		return ShardIndex.read(ReadData.from(bytes), numBlocks);
+	}
+
+	/**
+	 * Replace or remove a block in the shard held by a channel that is locked
+	 * for writing.
+	 * <p>
+	 * A new block is appended to the shard and only the index is rewritten,
+	 * the other blocks are neither read nor written.  If more than half of
+	 * the shard would be taken by replaced blocks, the shard is compacted
+	 * instead, i.e. rewritten with only the blocks referenced by its index.
+	 *
+	 * @param channel
+	 *            the locked channel
+	 * @param index
+	 *            the index of the shard as read by
+	 *            {@link #readIndex(LockedChannel, int)}, is updated
+	 * @param datasetAttributes
+	 *            the dataset attributes
+	 * @param gridPosition
+	 *            the position of the block in the block grid
+	 * @param block
+	 *            the encoded block, or {@code null} to remove the block
+	 * @return {@code false} if the shard contains no blocks, in this case
+	 *         the channel is not written and the shard should be removed
+	 * @throws IOException
+	 *             if the shard cannot be read or written
+	 */
+	static boolean writeBlock(
+			final LockedChannel channel,
+			final ShardIndex index,
+			final DatasetAttributes datasetAttributes,
+			final long[] gridPosition,
+			final ReadData block) throws IOException {
+
+		final int i = datasetAttributes.getBlockIndexInShard(gridPosition);
+		if (block == null) {
+			if (!index.exists(i))
+				return !index.isEmpty();
+			index.clear(i);
+			if (index.isEmpty())
+				return false;
+			channel.write(0, ReadData.from(index::writeTo));
+			return true;
+		}
+
+		final ReadData blockData = block.materialize();
+		final long length = blockData.length();
+		final long indexLength = ShardIndex.numBytes(index.getNumBlocks());
+		long end = indexLength;
+		long referenced = length;
+		for (int j = 0; j < index.getNumBlocks(); ++j) {
+			if (index.exists(j)) {
+				end = Math.max(end, index.getOffset(j) + index.getLength(j));
+				if (j != i)
+					referenced += index.getLength(j);
+			}
+		}
+
+		if (end + length - indexLength > 2 * referenced) {
+			/* the shard is copied to the heap because it is truncated while it is rewritten */
+			final ReadData shard = ReadData.from(channel.newReadData().allBytes());
+			final ReadData compacted = writeBlock(shard, datasetAttributes, gridPosition, blockData);
+			try (final OutputStream out = channel.newOutputStream()) {
+				compacted.writeTo(out);
+			}
+			return true;
+		}
+
+		/* the index is written last, a failure before leaves the previous shard intact */
+		channel.write(end, blockData);
+		index.set(i, end, length);
+		channel.write(0, ReadData.from(index::writeTo));
+		return true;
+	}
+
+	/**
+	 * Remove the shard held by a channel that is locked for writing, before
+	 * the lock is released.  The shard is marked as removed and its key is
+	 * deleted with {@link LockedChannel#delete()}.  If the channel cannot
+	 * delete its key, the key is left empty, which stands for a shard without
+	 * blocks.
+	 *
+	 * @param channel
+	 *            the locked channel
+	 * @throws IOException
+	 *             if the channel cannot be written or deleted
+	 */
+	static void remove(final LockedChannel channel) throws IOException {
+
+		try (final OutputStream out = channel.newOutputStream()) {
+			out.write(0);
+		}
+		if (!channel.delete())
+			channel.newOutputStream().close();
+	}
+}
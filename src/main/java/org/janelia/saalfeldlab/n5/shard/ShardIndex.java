@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.shard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+
+/**
+ * The index of a shard.
+ * <p>
+ * The index is stored at the start of the shard and holds one
+ * {@code (offset, length)} pair of big-endian {@code int64} values for each
+ * block in the shard.  Offsets are relative to the start of the shard.
+ * Blocks that do not exist are marked by an offset and length of {@code -1}.
+ * Blocks are enumerated in the order of the block grid with the first
+ * dimension changing fastest.
+ */
+public class ShardIndex {
+
+	public static final long EMPTY = -1;
+
+	private final long[] offsets;
+	private final long[] lengths;
+
+	/**
+	 * Create an index for {@code numBlocks} blocks, none of which exist.
+	 *
+	 * @param numBlocks
+	 *            number of blocks in the shard
+	 */
+	public ShardIndex(final int numBlocks) {
+
+		offsets = new long[numBlocks];
+		lengths = new long[numBlocks];
+		Arrays.fill(offsets, EMPTY);
+		Arrays.fill(lengths, EMPTY);
+	}
+
+	/**
+	 * @param numBlocks
+	 *            number of blocks in the shard
+	 * @return the size of the serialized index in bytes
+	 */
+	public static int numBytes(final int numBlocks) {
+
+		return 16 * numBlocks;
+	}
+
+	public int getNumBlocks() {
+
+		return offsets.length;
+	}
+
+	public boolean exists(final int index) {
+
+		return offsets[index] != EMPTY;
+	}
+
+	/**
+	 * @return {@code true} if no block of the shard exists
+	 */
+	public boolean isEmpty() {
+
+		for (final long offset : offsets)
+			if (offset != EMPTY)
+				return false;
+		return true;
+	}
+
+	public long getOffset(final int index) {
+
+		return offsets[index];
+	}
+
+	public long getLength(final int index) {
+
+		return lengths[index];
+	}
+
+	public void set(final int index, final long offset, final long length) {
+
+		offsets[index] = offset;
+		lengths[index] = length;
+	}
+
+	public void clear(final int index) {
+
+		set(index, EMPTY, EMPTY);
+	}
+
+	/**
+	 * Read a serialized index.
+	 *
+	 * @param readData
+	 *            the serialized index
+	 * @param numBlocks
+	 *            number of blocks in the shard
+	 * @return the index
+	 * @throws IOException
+	 *             if the index cannot be read
+	 */
+	public static ShardIndex read(final ReadData readData, final int numBlocks) throws IOException {
+
+		final ShardIndex index = new ShardIndex(numBlocks);
+		try (final InputStream in = readData.inputStream()) {
+			final DataInputStream dis = new DataInputStream(in);
+			for (int i = 0; i < numBlocks; ++i)
+				index.set(i, dis.readLong(), dis.readLong());
+		}
+		return index;
+	}
+
+	/**
+	 * Write this index.
+	 *
+	 * @param out
+	 *            the output stream, will not be closed
+	 * @throws IOException
+	 *             if the index cannot be written
+	 */
+	public void writeTo(final OutputStream out) throws IOException {
+
+		final DataOutputStream dos = new DataOutputStream(out);
+		for (int i = 0; i < offsets.length; ++i) {
+			dos.writeLong(offsets[i]);
+			dos.writeLong(lengths[i]);
+		}
+		dos.flush();
+	}
+}
@@ -57,13 +57,18 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -72,14 +77,22 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.janelia.saalfeldlab.n5.N5Exception.N5ClassCastException;
 import org.janelia.saalfeldlab.n5.N5Reader.Version;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 import org.janelia.saalfeldlab.n5.url.UriAttributeTest;
 import org.junit.After;
 import org.junit.Before;
@@ -480,6 +493,494 @@ public abstract class AbstractN5Test {
 		}
 	}
 
+	@Test
+	public void testReadBlocksAsync() throws InterruptedException, ExecutionException {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, dimensions, blockSize, DataType.INT16, new RawCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+
+			final List<long[]> gridPositions = new ArrayList<>();
+			for (int i = 0; i < 3; ++i) {
+				for (int j = 0; j < 2; ++j) {
+					final long[] gridPosition = new long[]{i, j, 0};
+					final short[] data = shortBlock.clone();
+					data[0] = (short)(10 * i + j);
+					n5.writeBlock(datasetName, attributes, new ShortArrayDataBlock(blockSize, gridPosition, data));
+					gridPositions.add(gridPosition);
+				}
+			}
+			gridPositions.add(new long[]{3, 3, 3});
+
+			final List<CompletableFuture<DataBlock<?>>> futures = n5.readBlocksAsync(datasetName, attributes, gridPositions, executor);
+			assertEquals(gridPositions.size(), futures.size());
+			for (int k = 0; k < gridPositions.size() - 1; ++k) {
+				final DataBlock<?> block = futures.get(k).get();
+				final long[] gridPosition = gridPositions.get(k);
+				assertArrayEquals(gridPosition, block.getGridPosition());
+				assertEquals(10 * gridPosition[0] + gridPosition[1], ((short[])block.getData())[0]);
+			}
+			assertNull("missing block", futures.get(gridPositions.size() - 1).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testWriteBlocks() throws InterruptedException {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, dimensions, blockSize, DataType.INT32, new GzipCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+
+			final List<DataBlock<int[]>> dataBlocks = new ArrayList<>();
+			for (int i = 0; i < 3; ++i) {
+				for (int j = 0; j < 3; ++j) {
+					final int[] data = intBlock.clone();
+					data[0] = 10 * i + j;
+					dataBlocks.add(new IntArrayDataBlock(blockSize, new long[]{i, j, 1}, data));
+				}
+			}
+
+			/* budget for two blocks */
+			n5.writeBlocks(datasetName, attributes, dataBlocks, executor, 8L * blockNumElements);
+			for (final DataBlock<int[]> dataBlock : dataBlocks) {
+				final DataBlock<?> loadedDataBlock = n5.readBlock(datasetName, attributes, dataBlock.getGridPosition());
+				assertArrayEquals(dataBlock.getData(), (int[])loadedDataBlock.getData());
+			}
+
+			/* failures are rethrown */
+			final DatasetAttributes stringAttributes = new DatasetAttributes(dimensions, blockSize, DataType.STRING, new RawCompression());
+			final BlockWriteQueue<int[]> queue = new BlockWriteQueue<>(n5, datasetName, stringAttributes, executor, 1);
+			queue.put(dataBlocks.get(0));
+			assertThrows(N5Exception.class, queue::flush);
+			assertThrows(N5Exception.class, () -> queue.put(dataBlocks.get(0)));
+			queue.close();
+
+			/* the failure is thrown once by writeBlocks, not suppressed by closing the queue */
+			for (final long maxBytesInFlight : new long[]{1, Long.MAX_VALUE})
+				assertThrows(N5Exception.class, () -> n5.writeBlocks(datasetName, stringAttributes, dataBlocks, executor, maxBytesInFlight));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReadBlockReuse() {
+
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, dimensions, blockSize, DataType.INT32, new GzipCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+
+			final int[] data = intBlock.clone();
+			n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, new long[]{0, 0, 0}, intBlock));
+			data[0] = 42;
+			n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, new long[]{1, 0, 0}, data));
+
+			final DataBlock<?> first = n5.readBlock(datasetName, attributes, 0, 0, 0);
+			final DataBlock<?> second = n5.readBlock(datasetName, attributes, first, 1, 0, 0);
+			assertSame(first.getData(), second.getData());
+			assertArrayEquals(new long[]{1, 0, 0}, second.getGridPosition());
+			assertArrayEquals(data, (int[])second.getData());
+
+			/* the end block is smaller, a new array is allocated */
+			final long[] end = {dimensions[0] / blockSize[0], 0, 0};
+			n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(new int[]{(int)(dimensions[0] % blockSize[0]), blockSize[1], blockSize[2]}, end, new int[(int)(dimensions[0] % blockSize[0]) * blockSize[1] * blockSize[2]]));
+			final DataBlock<?> endBlock = n5.readBlock(datasetName, attributes, second, end);
+			assertNotSame(second.getData(), endBlock.getData());
+			assertNull(n5.readBlock(datasetName, attributes, second, 2, 2, 2));
+		}
+	}
+
+	@Test
+	public void testShardedBlocks() {
+
+		final int[] shardSize = new int[]{2 * blockSize[0], 2 * blockSize[1], blockSize[2]};
+		for (final Compression compression : getCompressions()) {
+			try (final N5Writer n5 = createTempN5Writer()) {
+				n5.createDataset(datasetName, new DatasetAttributes(dimensions, blockSize, DataType.INT32, compression, shardSize));
+				final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+				assertTrue(attributes.isSharded());
+				assertArrayEquals(shardSize, attributes.getShardSize());
+				assertEquals(4, attributes.getNumBlocksPerShard());
+
+				final long[][] gridPositions = {{0, 0, 0}, {1, 0, 0}, {1, 1, 0}, {2, 1, 1}};
+				for (int i = 0; i < gridPositions.length; ++i) {
+					final int[] data = intBlock.clone();
+					data[0] = i;
+					n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, gridPositions[i], data));
+				}
+				for (int i = 0; i < gridPositions.length; ++i) {
+					final DataBlock<?> loadedDataBlock = n5.readBlock(datasetName, attributes, gridPositions[i]);
+					assertArrayEquals(gridPositions[i], loadedDataBlock.getGridPosition());
+					assertEquals(i, ((int[])loadedDataBlock.getData())[0]);
+				}
+				assertNull(n5.readBlock(datasetName, attributes, 0, 1, 0));
+				assertNull(n5.readBlock(datasetName, attributes, 3, 3, 3));
+
+				/* overwrite a block, the others in its shard remain */
+				final int[] data = intBlock.clone();
+				data[0] = 42;
+				n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, gridPositions[1], data));
+				assertArrayEquals(data, (int[])n5.readBlock(datasetName, attributes, gridPositions[1]).getData());
+				assertEquals(0, ((int[])n5.readBlock(datasetName, attributes, gridPositions[0]).getData())[0]);
+				assertEquals(2, ((int[])n5.readBlock(datasetName, attributes, gridPositions[2]).getData())[0]);
+
+				/* replaced blocks are compacted away */
+				if (n5 instanceof GsonKeyValueN5Writer) {
+					final GsonKeyValueN5Writer kvn5 = (GsonKeyValueN5Writer)n5;
+					final String shardPath = kvn5.absoluteDataBlockPath(N5URI.normalizeGroupPath(datasetName), 0, 0, 0);
+					final long shardLength = shardLength(kvn5.getKeyValueAccess(), shardPath);
+					for (int i = 0; i < 10; ++i)
+						n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, gridPositions[1], data));
+					assertTrue(shardLength(kvn5.getKeyValueAccess(), shardPath) <= 3 * shardLength);
+					assertArrayEquals(data, (int[])n5.readBlock(datasetName, attributes, gridPositions[1]).getData());
+					assertEquals(0, ((int[])n5.readBlock(datasetName, attributes, gridPositions[0]).getData())[0]);
+				}
+
+				/* delete blocks, emptied shards are deleted */
+				assertTrue(n5.deleteBlock(datasetName, gridPositions[3]));
+				assertNull(n5.readBlock(datasetName, attributes, gridPositions[3]));
+				if (n5 instanceof GsonKeyValueN5Writer) {
+					final GsonKeyValueN5Writer kvn5 = (GsonKeyValueN5Writer)n5;
+					assertFalse(kvn5.getKeyValueAccess().exists(kvn5.absoluteDataBlockPath(N5URI.normalizeGroupPath(datasetName), 1, 0, 1)));
+				}
+				assertTrue(n5.deleteBlock(datasetName, attributes, gridPositions[3]));
+				assertTrue(n5.deleteBlock(datasetName, gridPositions[0]));
+				assertNull(n5.readBlock(datasetName, attributes, gridPositions[0]));
+				assertArrayEquals(data, (int[])n5.readBlock(datasetName, attributes, gridPositions[1]).getData());
+				assertEquals(
+						gridPositionSet(gridPositions[1], gridPositions[2]),
+						gridPositionSet(n5.listBlockGridPositions(datasetName)));
+
+				/* blocks can be written into an emptied shard */
+				n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, gridPositions[3], intBlock.clone()));
+				assertArrayEquals(intBlock, (int[])n5.readBlock(datasetName, attributes, gridPositions[3]).getData());
+			}
+		}
+	}
+
+	private static long shardLength(final KeyValueAccess keyValueAccess, final String shardPath) {
+
+		try (final LockedChannel channel = keyValueAccess.lockForReading(shardPath)) {
+			return channel.newReadData().materialize().length();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Test
+	public void testListBlockGridPositions() {
+
+		final int[] shardSize = new int[]{2 * blockSize[0], 2 * blockSize[1], blockSize[2]};
+		final long[][] gridPositions = {{0, 0, 0}, {1, 0, 0}, {1, 1, 0}, {2, 1, 1}};
+		for (final int[] shards : new int[][]{null, shardSize}) {
+			try (final N5Writer n5 = createTempN5Writer()) {
+				n5.createDataset(datasetName, new DatasetAttributes(dimensions, blockSize, DataType.INT32, new RawCompression(), shards));
+				final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+				for (final long[] gridPosition : gridPositions)
+					n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, gridPosition, intBlock));
+
+				assertEquals(gridPositionSet(gridPositions), gridPositionSet(n5.listBlockGridPositions(datasetName)));
+				n5.deleteBlock(datasetName, gridPositions[3]);
+				assertEquals(
+						gridPositionSet(Arrays.copyOf(gridPositions, 3)),
+						gridPositionSet(n5.listBlockGridPositions(datasetName)));
+
+				if (!(n5 instanceof GsonKeyValueN5Writer))
+					continue;
+
+				/* with a block index, writers keep track of the blocks */
+				((GsonKeyValueN5Writer)n5).createBlockIndex(datasetName);
+				assertTrue(n5.getDatasetAttributes(datasetName).hasBlockIndex());
+				assertEquals(
+						gridPositionSet(Arrays.copyOf(gridPositions, 3)),
+						gridPositionSet(n5.listBlockGridPositions(datasetName)));
+
+				/* also writers that pass attributes without the index */
+				assertFalse(attributes.hasBlockIndex());
+				n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(blockSize, gridPositions[3], intBlock));
+				n5.deleteBlock(datasetName, attributes, gridPositions[0]);
+				assertEquals(
+						gridPositionSet(Arrays.copyOfRange(gridPositions, 1, 4)),
+						gridPositionSet(n5.listBlockGridPositions(datasetName)));
+
+				/* datasets created with the index */
+				final String indexedName = datasetName + "-indexed";
+				n5.createDataset(indexedName, attributes.withBlockIndex(true));
+				n5.writeBlock(indexedName, attributes, new IntArrayDataBlock(blockSize, gridPositions[2], intBlock));
+				assertEquals(
+						gridPositionSet(Arrays.copyOfRange(gridPositions, 2, 3)),
+						gridPositionSet(n5.listBlockGridPositions(indexedName)));
+			}
+		}
+
+		try (final N5Writer n5 = createTempN5Writer()) {
+			assertThrows(N5Exception.class, () -> n5.listBlockGridPositions("not-a-dataset"));
+		}
+	}
+
+	@Test
+	public void testReadRegion() {
+
+		final long[] regionDimensions = {10, 7, 5};
+		final int[] regionBlockSize = {3, 2, 4};
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, regionDimensions, regionBlockSize, DataType.INT32, new GzipCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+
+			/* pixel values are their index + 1, block (1, 1, 0) is missing */
+			for (long z = 0; z < 2; ++z)
+				for (long y = 0; y < 4; ++y)
+					for (long x = 0; x < 4; ++x) {
+						if (x == 1 && y == 1 && z == 0)
+							continue;
+						final long[] gridPosition = {x, y, z};
+						final int[] size = new int[3];
+						for (int d = 0; d < 3; ++d)
+							size[d] = (int)Math.min(regionBlockSize[d], regionDimensions[d] - gridPosition[d] * regionBlockSize[d]);
+						final int[] data = new int[DataBlock.getNumElements(size)];
+						for (int i = 0; i < data.length; ++i) {
+							final long px = x * regionBlockSize[0] + i % size[0];
+							final long py = y * regionBlockSize[1] + i / size[0] % size[1];
+							final long pz = z * regionBlockSize[2] + i / size[0] / size[1];
+							data[i] = (int)(px + regionDimensions[0] * (py + regionDimensions[1] * pz)) + 1;
+						}
+						n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(size, gridPosition, data));
+					}
+
+			final long[][][] intervals = {
+					{{0, 0, 0}, regionDimensions},
+					{{2, 1, 3}, {5, 4, 2}},
+					{{3, 2, 0}, {3, 2, 4}},
+					{{4, 0, 0}, {1, 7, 5}},
+					{{9, 6, 4}, {1, 1, 1}}};
+			final ExecutorService executor = Executors.newFixedThreadPool(3);
+			try {
+				for (final long[][] interval : intervals) {
+					final long[] min = interval[0];
+					final long[] size = interval[1];
+					final int[] expected = new int[(int)(size[0] * size[1] * size[2])];
+					for (int i = 0; i < expected.length; ++i) {
+						final long px = min[0] + i % size[0];
+						final long py = min[1] + i / size[0] % size[1];
+						final long pz = min[2] + i / size[0] / size[1];
+						final boolean missing = px / 3 == 1 && py / 2 == 1 && pz / 4 == 0;
+						expected[i] = missing ? 0 : (int)(px + regionDimensions[0] * (py + regionDimensions[1] * pz)) + 1;
+					}
+					final String msg = Arrays.toString(min) + " " + Arrays.toString(size);
+					assertArrayEquals(msg, expected, n5.readRegion(datasetName, min, size));
+					assertArrayEquals(msg, expected, n5.readRegion(datasetName, min, size, executor));
+
+					/* missing blocks overwrite the caller's buffer */
+					final int[] target = new int[expected.length];
+					Arrays.fill(target, -1);
+					n5.readRegion(datasetName, attributes, min, size, target, executor);
+					assertArrayEquals(msg, expected, target);
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testBlockReadPipeline() {
+
+		final int[] pipelineBlockSize = {4, 3};
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, new long[]{16, 12}, pipelineBlockSize, DataType.INT32, new GzipCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+			final List<long[]> gridPositions = new ArrayList<>();
+			for (long y = 0; y < 4; ++y)
+				for (long x = 0; x < 4; ++x) {
+					gridPositions.add(new long[]{x, y});
+					/* block (2, 2) is missing */
+					if (x == 2 && y == 2)
+						continue;
+					final int[] data = new int[12];
+					Arrays.fill(data, (int)(x + 4 * y));
+					n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(pipelineBlockSize, new long[]{x, y}, data));
+				}
+
+			final BlockReadPipeline pipeline = new BlockReadPipeline(2, 2, 1, 2, 2);
+			final Map<List<Long>, int[]> consumed = new ConcurrentHashMap<>();
+			pipeline.<int[]>read(n5, datasetName, gridPositions, block ->
+					consumed.put(Arrays.asList(block.getGridPosition()[0], block.getGridPosition()[1]), block.getData()));
+
+			assertEquals(15, consumed.size());
+			assertFalse(consumed.containsKey(Arrays.asList(2L, 2L)));
+			for (final Map.Entry<List<Long>, int[]> entry : consumed.entrySet()) {
+				final int[] expected = new int[12];
+				Arrays.fill(expected, (int)(entry.getKey().get(0) + 4 * entry.getKey().get(1)));
+				assertArrayEquals(expected, entry.getValue());
+			}
+
+			/* a failing consumer fails the read */
+			assertThrows(N5Exception.class, () -> pipeline.<int[]>read(n5, datasetName, gridPositions, block -> {
+				throw new IOException("consumer failed");
+			}));
+		}
+	}
+
+	@Test
+	public void testCopyDataset() throws IOException {
+
+		final long[] copyDimensions = {11, 7};
+		final int[] copyBlockSize = {4, 3};
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, copyDimensions, copyBlockSize, DataType.INT16, new GzipCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+
+			/* pixel values are their index + 1, only the blocks of the first row exist */
+			for (long x = 0; x < 3; ++x) {
+				final int[] size = {(int)Math.min(4, 11 - 4 * x), 3};
+				final short[] data = new short[size[0] * size[1]];
+				for (int i = 0; i < data.length; ++i)
+					data[i] = (short)(4 * x + i % size[0] + 11 * (i / size[0]) + 1);
+				n5.writeBlock(datasetName, attributes, new ShortArrayDataBlock(size, new long[]{x, 0}, data));
+			}
+			final short[] expected = n5.readRegion(datasetName, new long[]{0, 0}, copyDimensions);
+			assertNull(n5.readRawBlock(datasetName, attributes, 0, 1));
+
+			final ExecutorService executor = Executors.newFixedThreadPool(2);
+			try {
+				/* same encoding, the stored bytes are copied */
+				final String rawCopy = datasetName + "-raw";
+				n5.copyDataset(n5, datasetName, rawCopy, executor);
+				for (long x = 0; x < 3; ++x)
+					assertArrayEquals(
+							n5.readRawBlock(datasetName, attributes, x, 0).allBytes(),
+							n5.readRawBlock(rawCopy, n5.getDatasetAttributes(rawCopy), x, 0).allBytes());
+				assertEquals(3, n5.listBlockGridPositions(rawCopy).size());
+				assertArrayEquals(expected, n5.<short[]>readRegion(rawCopy, new long[]{0, 0}, copyDimensions));
+
+				/* different block size and compression, the blocks are transcoded */
+				final String transcoded = datasetName + "-transcoded";
+				n5.copyDataset(n5, datasetName, transcoded,
+						new DatasetAttributes(copyDimensions, new int[]{5, 2}, DataType.INT16, new RawCompression()),
+						executor);
+				assertEquals(
+						gridPositionSet(new long[]{0, 0}, new long[]{1, 0}, new long[]{2, 0}, new long[]{0, 1}, new long[]{1, 1}, new long[]{2, 1}),
+						gridPositionSet(n5.listBlockGridPositions(transcoded)));
+				assertArrayEquals(expected, n5.<short[]>readRegion(transcoded, new long[]{0, 0}, copyDimensions));
+
+				assertThrows(N5Exception.class, () -> n5.copyDataset(n5, datasetName, datasetName + "-invalid",
+						new DatasetAttributes(copyDimensions, copyBlockSize, DataType.INT32, new GzipCompression()),
+						executor));
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testReadRawBlockAfterOverwrite() throws IOException {
+
+		/* large enough to be memory mapped by the file system backend */
+		final int[] rawBlockSize = {128, 128};
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, new long[]{128, 128}, rawBlockSize, DataType.INT32, new RawCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+			final int[] data = new int[128 * 128];
+			Arrays.fill(data, 7);
+			n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(rawBlockSize, new long[]{0, 0}, data));
+
+			final ReadData raw = n5.readRawBlock(datasetName, attributes, 0, 0);
+			final byte[] expected = raw.allBytes();
+
+			/* the raw bytes do not change when the stored block is rewritten */
+			n5.writeBlock(datasetName, attributes, new IntArrayDataBlock(new int[]{1, 1}, new long[]{0, 0}, new int[]{1}));
+			assertArrayEquals(expected, raw.allBytes());
+		}
+	}
+
+	@Test
+	public void testDatasetTranscoder() throws IOException {
+
+		final long[] transcodeDimensions = {10, 6};
+		final int[] transcodeBlockSize = {4, 3};
+		final Path checkpoint = Files.createTempFile("n5-transcode-", ".idx");
+		try (final N5Writer n5 = createTempN5Writer()) {
+			n5.createDataset(datasetName, transcodeDimensions, transcodeBlockSize, DataType.INT16, new GzipCompression());
+			final DatasetAttributes attributes = n5.getDatasetAttributes(datasetName);
+			/* block (2, 1) is missing */
+			final long[][] gridPositions = {{0, 0}, {1, 0}, {2, 0}, {0, 1}, {1, 1}};
+			for (final long[] gridPosition : gridPositions) {
+				final int[] size = {gridPosition[0] == 2 ? 2 : 4, 3};
+				final short[] data = new short[size[0] * size[1]];
+				Arrays.fill(data, (short)(gridPosition[0] + 3 * gridPosition[1] + 1));
+				n5.writeBlock(datasetName, attributes, new ShortArrayDataBlock(size, gridPosition, data));
+			}
+			final short[] expected = n5.readRegion(datasetName, new long[]{0, 0}, transcodeDimensions);
+
+			final ExecutorService executor = Executors.newFixedThreadPool(2);
+			try {
+				final String transcoded = datasetName + "-raw";
+				final DatasetTranscoder transcoder = new DatasetTranscoder(n5, datasetName, n5, transcoded, new RawCompression());
+				transcoder.setMaxBlocksInFlight(2);
+				Files.delete(checkpoint);
+				transcoder.setCheckpoint(checkpoint, 0);
+				final List<DatasetTranscoder.Progress> reports = new ArrayList<>();
+				transcoder.setProgressListener(progress -> {
+					synchronized (reports) {
+						reports.add(progress);
+					}
+				}, 0);
+
+				final DatasetTranscoder.Progress progress = transcoder.run(executor);
+				assertTrue(progress.isFinished());
+				/* only the existing blocks are transcoded */
+				assertEquals(5, progress.getProcessedBlocks());
+				assertEquals(5, progress.getTotalBlocks());
+				assertTrue(progress.getBytesRead() > 0 && progress.getBytesWritten() > 0);
+				assertFalse(reports.isEmpty());
+				assertFalse(Files.exists(checkpoint));
+
+				assertTrue(n5.getDatasetAttributes(transcoded).getCompression() instanceof RawCompression);
+				assertEquals(gridPositionSet(gridPositions), gridPositionSet(n5.listBlockGridPositions(transcoded)));
+				assertArrayEquals(expected, n5.<short[]>readRegion(transcoded, new long[]{0, 0}, transcodeDimensions));
+
+				/* resume from a checkpoint in which block (0, 0) is done */
+				final BlockIndex done = new BlockIndex(new long[]{3, 2});
+				done.set(0, 0);
+				try (final OutputStream out = Files.newOutputStream(checkpoint)) {
+					done.writeTo(out);
+				}
+				final String resumed = datasetName + "-resumed";
+				final DatasetTranscoder resumingTranscoder = new DatasetTranscoder(n5, datasetName, n5, resumed, new RawCompression());
+				resumingTranscoder.setCheckpoint(checkpoint, 0);
+				assertEquals(5, resumingTranscoder.run(executor).getProcessedBlocks());
+				assertEquals(
+						gridPositionSet(Arrays.copyOfRange(gridPositions, 1, gridPositions.length)),
+						gridPositionSet(n5.listBlockGridPositions(resumed)));
+
+				/* an existing target with another compression is not overwritten */
+				assertThrows(N5Exception.class, () -> new DatasetTranscoder(n5, datasetName, n5, resumed, new GzipCompression()).run(executor));
+				assertTrue(n5.getDatasetAttributes(resumed).getCompression() instanceof RawCompression);
+			} finally {
+				executor.shutdown();
+			}
+		} finally {
+			Files.deleteIfExists(checkpoint);
+		}
+	}
+
+	private static Set<List<Long>> gridPositionSet(final List<long[]> gridPositions) {
+
+		return gridPositionSet(gridPositions.toArray(new long[0][]));
+	}
+
+	private static Set<List<Long>> gridPositionSet(final long[]... gridPositions) {
+
+		final Set<List<Long>> set = new HashSet<>();
+		for (final long[] gridPosition : gridPositions)
+			set.add(Arrays.stream(gridPosition).boxed().collect(Collectors.toList()));
+		return set;
+	}
+
 	@Test
 	public void testAttributeParsingPrimitive()  {
 
@@ -1008,6 +1509,62 @@ public abstract class AbstractN5Test {
 		}
 	}
 
+	@Test
+	public void testDeepListStream() {
+
+		try (final N5Writer n5 = createTempN5Writer()) {
+
+			n5.createGroup(groupName);
+			for (final String subGroup : subGroupNames)
+				n5.createGroup(groupName + "/" + subGroup);
+			n5.createDataset(datasetName, dimensions, blockSize, DataType.UINT64, new RawCompression());
+			n5.writeBlock(
+					datasetName,
+					n5.getDatasetAttributes(datasetName),
+					new LongArrayDataBlock(blockSize, new long[]{0, 0, 0}, new long[blockNumElements]));
+
+			for (final String prefix : new String[]{"", "/", "/test"}) {
+				final Set<String> expected = new HashSet<>(Arrays.asList(n5.deepList(prefix)));
+				try (final Stream<String> stream = n5.deepListStream(prefix, a -> true, 2)) {
+					assertEquals(expected, stream.collect(Collectors.toSet()));
+				}
+
+				final Set<String> expectedDatasets = new HashSet<>(Arrays.asList(n5.deepListDatasets(prefix)));
+				try (final Stream<String> stream = n5.deepListDatasetsStream(prefix, a -> true, 2)) {
+					assertEquals(expectedDatasets, stream.collect(Collectors.toSet()));
+				}
+
+				final Set<String> visited = ConcurrentHashMap.newKeySet();
+				final Set<String> visitedDatasets = ConcurrentHashMap.newKeySet();
+				n5.deepListVisit(prefix, 2, (path, isDataset) -> {
+					visited.add(path);
+					if (isDataset)
+						visitedDatasets.add(path);
+					return true;
+				});
+				assertEquals(expected, visited);
+				assertEquals(expectedDatasets, visitedDatasets);
+			}
+
+			final Predicate<String> isBorC = d -> d.matches(".*/[bc]$");
+			try (final Stream<String> stream = n5.deepListStream("/test", isBorC, 2)) {
+				assertEquals(
+						new HashSet<>(Arrays.asList(n5.deepList("/test", isBorC))),
+						stream.collect(Collectors.toSet()));
+			}
+
+			/* early termination */
+			try (final Stream<String> stream = n5.deepListStream("", a -> true, 2)) {
+				assertEquals(1, stream.limit(1).count());
+			}
+			final AtomicInteger numVisited = new AtomicInteger();
+			n5.deepListVisit("", 1, (path, isDataset) -> numVisited.incrementAndGet() < 2);
+			assertEquals(2, numVisited.get());
+
+			assertThrows(N5Exception.class, () -> n5.deepListVisit("this-group-does-not-exist", 2, (path, isDataset) -> true));
+		}
+	}
+
 	@Test
 	public void testExists()  {
 
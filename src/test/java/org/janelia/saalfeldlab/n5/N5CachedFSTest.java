@@ -32,7 +32,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
@@ -49,10 +51,12 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.janelia.saalfeldlab.n5.cache.N5BlockCache;
 import org.junit.Test;
 
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 public class N5CachedFSTest extends N5FSTest {
 
@@ -169,6 +173,109 @@ public class N5CachedFSTest extends N5FSTest {
 		}
 	}
 
+	@Test
+	public void cachedAttributesAreNotExposedTest() throws IOException, URISyntaxException {
+
+		try (final N5KeyValueWriter n5 = (N5KeyValueWriter)createN5Writer()) {
+			final String group = "attributes";
+			n5.createGroup(group);
+			final JsonObject nested = new JsonObject();
+			nested.addProperty("name", "value");
+			n5.setAttribute(group, "nested", nested);
+
+			/* hot reads share the cached JSON */
+			final String cacheKey = N5KeyValueReader.ATTRIBUTES_JSON;
+			assertSame(n5.getCache().getCachedAttributes(group, cacheKey), n5.getCache().getCachedAttributes(group, cacheKey));
+
+			/* modifying what was written or read does not change the cache */
+			nested.addProperty("name", "written");
+			n5.getAttribute(group, "nested", JsonObject.class).addProperty("name", "read");
+			n5.getAttributes(group).getAsJsonObject().remove("nested");
+			assertEquals("value", n5.getAttribute(group, "nested/name", String.class));
+		}
+	}
+
+	@Test
+	public void datasetAttributesCacheTest() throws IOException, URISyntaxException {
+
+		try (final N5Writer n5 = createN5Writer()) {
+			final String dataset = "parsed";
+			n5.createDataset(dataset, new long[]{10, 10}, new int[]{5, 5}, DataType.UINT8, new RawCompression());
+
+			/* parsed once, including the codec */
+			final DatasetAttributes attributes = n5.getDatasetAttributes(dataset);
+			assertSame(attributes, n5.getDatasetAttributes(dataset));
+			assertSame(attributes.getDataBlockCodec(), n5.getDatasetAttributes(dataset).getDataBlockCodec());
+
+			/* the shared instance cannot be changed through its getters */
+			attributes.getDimensions()[0] = 100;
+			attributes.getBlockSize()[0] = 1;
+			assertArrayEquals(new long[]{10, 10}, n5.getDatasetAttributes(dataset).getDimensions());
+			assertArrayEquals(new int[]{5, 5}, n5.getDatasetAttributes(dataset).getBlockSize());
+
+			/* any change of the attributes invalidates them */
+			n5.setAttribute(dataset, "other", "value");
+			final DatasetAttributes afterSet = n5.getDatasetAttributes(dataset);
+			assertNotSame(attributes, afterSet);
+			assertArrayEquals(attributes.getDimensions(), afterSet.getDimensions());
+
+			n5.setAttribute(dataset, DatasetAttributes.DIMENSIONS_KEY, new long[]{20, 10});
+			assertArrayEquals(new long[]{20, 10}, n5.getDatasetAttributes(dataset).getDimensions());
+
+			n5.remove(dataset);
+			assertNull(n5.getDatasetAttributes(dataset));
+		}
+	}
+
+	@Test
+	public void blockCacheTest() throws IOException, URISyntaxException {
+
+		final N5BlockCache blockCache = new N5BlockCache(1 << 20);
+		try (final N5KeyValueWriter n5 = new N5KeyValueWriter(
+				new FileSystemKeyValueAccess(FileSystems.getDefault()),
+				tempN5Location(),
+				new GsonBuilder(),
+				true,
+				blockCache)) {
+
+			final String dataset = "cachedBlocks";
+			final DatasetAttributes attributes = new DatasetAttributes(new long[]{8, 8}, new int[]{4, 4}, DataType.INT32, new RawCompression());
+			n5.createDataset(dataset, attributes);
+			final int[] data = new int[16];
+			Arrays.fill(data, 1);
+			n5.writeBlock(dataset, attributes, new IntArrayDataBlock(new int[]{4, 4}, new long[]{1, 0}, data));
+
+			/* the second read is served from the cache, never decoded into reuse */
+			final IntArrayDataBlock reuse = new IntArrayDataBlock(new int[]{4, 4}, new long[]{1, 0}, new int[16]);
+			final DataBlock<?> first = n5.readBlock(dataset, attributes, reuse, 1, 0);
+			assertNotSame(reuse, first);
+			assertArrayEquals(data, (int[])first.getData());
+			assertSame(first, n5.readBlock(dataset, attributes, 1, 0));
+			assertEquals(1, blockCache.getHitCount());
+			assertEquals(1, blockCache.getMissCount());
+
+			/* missing blocks are not cached */
+			assertNull(n5.readBlock(dataset, attributes, 0, 0));
+			assertEquals(1, blockCache.size());
+
+			/* writes and deletes invalidate */
+			Arrays.fill(data, 2);
+			n5.writeBlock(dataset, attributes, new IntArrayDataBlock(new int[]{4, 4}, new long[]{1, 0}, data));
+			assertEquals(0, blockCache.size());
+			assertArrayEquals(data, (int[])n5.readBlock(dataset, attributes, 1, 0).getData());
+			n5.deleteBlock(dataset, 1, 0);
+			assertNull(n5.readBlock(dataset, attributes, 1, 0));
+
+			/* removing the dataset invalidates all its blocks */
+			n5.writeBlock(dataset, attributes, new IntArrayDataBlock(new int[]{4, 4}, new long[]{1, 1}, data));
+			assertNotNull(n5.readBlock(dataset, attributes, 1, 1));
+			assertEquals(1, blockCache.size());
+			n5.remove(dataset);
+			assertEquals(0, blockCache.size());
+			n5.remove();
+		}
+	}
+
 	@Test
 	public void cacheBehaviorTest() throws IOException, URISyntaxException {
 
@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.FileSystemKeyValueAccess;
+import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.HttpKeyValueAccess;
+import org.janelia.saalfeldlab.n5.N5KeyValueReader;
+import org.janelia.saalfeldlab.n5.N5KeyValueWriter;
+import org.janelia.saalfeldlab.n5.N5Reader;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Attribute access with and without the meta data cache.  Attributes are
+ * read from the file system or from HTTP served by an in-process
+ * {@link BenchmarkHttpServer}, and written to the file system.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AttributesBenchmark {
+
+	static final String GROUP = "group";
+	static final String DATASET = "group/dataset";
+
+	@Param({"fs", "http"})
+	public String backend;
+
+	@Param({"true", "false"})
+	public boolean cached;
+
+	private Path directory;
+	private BenchmarkHttpServer server;
+	private N5Writer writer;
+	private N5Reader n5;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		directory = BenchmarkUtils.createTempDirectory();
+		writer = new N5KeyValueWriter(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), cached);
+		writer.createDataset(DATASET, new long[]{1024, 1024, 1024}, new int[]{64, 64, 64}, DataType.UINT16, new GzipCompression());
+		writer.setAttribute(GROUP, "resolution", new double[]{4, 4, 40});
+		writer.setAttribute(GROUP, "nested/name", "value");
+
+		if (backend.equals("http")) {
+			server = new BenchmarkHttpServer(directory);
+			n5 = new N5KeyValueReader(new HttpKeyValueAccess(), server.getURI().toString(), new GsonBuilder(), cached);
+		} else
+			n5 = new N5KeyValueReader(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), cached);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+
+		n5.close();
+		writer.close();
+		if (server != null)
+			server.close();
+		BenchmarkUtils.delete(directory);
+	}
+
+	@Benchmark
+	public double[] getAttribute() {
+
+		return n5.getAttribute(GROUP, "resolution", double[].class);
+	}
+
+	@Benchmark
+	public String getNestedAttribute() {
+
+		return n5.getAttribute(GROUP, "nested/name", String.class);
+	}
+
+	@Benchmark
+	public DatasetAttributes getDatasetAttributes() {
+
+		return n5.getDatasetAttributes(DATASET);
+	}
+
+	@Benchmark
+	public boolean exists() {
+
+		return n5.exists(DATASET);
+	}
+
+	/**
+	 * Writes go to the file system regardless of {@code backend}.
+	 */
+	@Benchmark
+	public void setAttribute() {
+
+		writer.setAttribute(GROUP, "counter", System.nanoTime());
+	}
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal in-process static file server to benchmark
+ * {@link org.janelia.saalfeldlab.n5.HttpKeyValueAccess} without an external
+ * process.  Supports {@code HEAD} and {@code GET} requests including single
+ * byte ranges.
+ */
+class BenchmarkHttpServer implements AutoCloseable {
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+	private final Path root;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		final Thread thread = new Thread(r);
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	BenchmarkHttpServer(final Path root) throws IOException {
+
+		this.root = root;
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	URI getURI() {
+
+		return URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+
+		try {
+			final Path path = root.resolve(exchange.getRequestURI().getPath().substring(1)).normalize();
+			final boolean head = "HEAD".equals(exchange.getRequestMethod());
+			if (!path.startsWith(root) || !Files.exists(path)) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			if (Files.isDirectory(path)) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+
+			final long size = Files.size(path);
+			long start = 0;
+			long length = size;
+			int code = 200;
+			final String range = exchange.getRequestHeaders().getFirst("Range");
+			if (range != null) {
+				final Matcher matcher = RANGE.matcher(range);
+				if (matcher.matches()) {
+					start = Long.parseLong(matcher.group(1));
+					if (start >= size) {
+						exchange.sendResponseHeaders(416, -1);
+						return;
+					}
+					final long end = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+					length = end - start + 1;
+					code = 206;
+					exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+				}
+			}
+
+			exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+			if (head) {
+				exchange.sendResponseHeaders(code, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(code, length == 0 ? -1 : length);
+			try (
+					final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+					final InputStream in = Channels.newInputStream(channel.position(start));
+					final OutputStream out = exchange.getResponseBody()) {
+				final byte[] buffer = new byte[64 * 1024];
+				long remaining = length;
+				while (remaining > 0) {
+					final int n = in.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+					if (n < 0)
+						break;
+					out.write(buffer, 0, n);
+					remaining -= n;
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public void close() {
+
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
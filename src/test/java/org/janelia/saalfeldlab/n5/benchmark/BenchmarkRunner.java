@@ -0,0 +1,74 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite single-threaded and with one thread per core,
+ * with the GC profiler to report allocation rates.  Command line arguments
+ * are passed to JMH, e.g.
+ *
+ * <pre>
+ * BenchmarkRunner CodecBenchmark -p compression=raw,gzip -p dataType=INT16
+ * </pre>
+ *
+ * runs only the codec benchmarks for two compressions and one data type.
+ */
+public class BenchmarkRunner {
+
+	public static void main(final String... args) throws RunnerException, CommandLineOptionException {
+
+		final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		final int[] threadCounts = commandLineOptions.getThreads().hasValue()
+				? new int[]{commandLineOptions.getThreads().get()}
+				: new int[]{1, Runtime.getRuntime().availableProcessors()};
+
+		for (final int threads : threadCounts) {
+			final ChainedOptionsBuilder options = new OptionsBuilder()
+					.parent(commandLineOptions)
+					.addProfiler(GCProfiler.class)
+					.threads(threads);
+			if (commandLineOptions.getIncludes().isEmpty())
+				options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+
+			final Collection<RunResult> results = new Runner(options.build()).run();
+			System.out.println(results.size() + " benchmarks run with " + threads + " thread(s)");
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.janelia.saalfeldlab.n5.Bzip2Compression;
+import org.janelia.saalfeldlab.n5.Compression;
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.Lz4Compression;
+import org.janelia.saalfeldlab.n5.RawCompression;
+import org.janelia.saalfeldlab.n5.XzCompression;
+
+/**
+ * Parameters and test data shared by the benchmarks.
+ */
+class BenchmarkUtils {
+
+	private BenchmarkUtils() {}
+
+	/**
+	 * @param name
+	 *            one of raw, gzip, zlib, lz4, bzip2, xz
+	 * @return the compression
+	 */
+	static Compression compression(final String name) {
+
+		switch (name) {
+		case "raw":
+			return new RawCompression();
+		case "gzip":
+			return new GzipCompression();
+		case "zlib":
+			return new GzipCompression(-1, true);
+		case "lz4":
+			return new Lz4Compression();
+		case "bzip2":
+			return new Bzip2Compression();
+		case "xz":
+			return new XzCompression();
+		default:
+			throw new IllegalArgumentException("Unknown compression " + name);
+		}
+	}
+
+	/**
+	 * @param size
+	 *            edge length of the cubic block
+	 * @return the block size of a 3D block
+	 */
+	static int[] blockSize(final int size) {
+
+		return new int[]{size, size, size};
+	}
+
+	/**
+	 * Create a block with moderately compressible content, a ramp with some
+	 * noise.
+	 */
+	static DataBlock<?> createDataBlock(final DataType dataType, final int[] blockSize, final long[] gridPosition, final Random rnd) {
+
+		final DataBlock<?> dataBlock = dataType.createDataBlock(blockSize, gridPosition);
+		final Object data = dataBlock.getData();
+		final int n = dataBlock.getNumElements();
+		for (int i = 0; i < n; ++i) {
+			final int value = (i >> 6) % 128 + rnd.nextInt(16);
+			if (data instanceof byte[])
+				((byte[])data)[i] = (byte)value;
+			else if (data instanceof short[])
+				((short[])data)[i] = (short)value;
+			else if (data instanceof int[])
+				((int[])data)[i] = value;
+			else if (data instanceof long[])
+				((long[])data)[i] = value;
+			else if (data instanceof float[])
+				((float[])data)[i] = value * 0.5f;
+			else if (data instanceof double[])
+				((double[])data)[i] = value * 0.5;
+		}
+		return dataBlock;
+	}
+
+	/**
+	 * @return the number of bytes of the uncompressed data of a block
+	 */
+	static long numBytes(final DataType dataType, final int[] blockSize) {
+
+		final int n = DataBlock.getNumElements(blockSize);
+		switch (dataType) {
+		case UINT8:
+		case INT8:
+			return n;
+		case UINT16:
+		case INT16:
+			return 2L * n;
+		case UINT32:
+		case INT32:
+		case FLOAT32:
+			return 4L * n;
+		default:
+			return 8L * n;
+		}
+	}
+
+	static Path createTempDirectory() throws IOException {
+
+		return Files.createTempDirectory("n5-benchmark-");
+	}
+
+	static void delete(final Path directory) throws IOException {
+
+		if (directory == null || !Files.exists(directory))
+			return;
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.codec.DataBlockCodec;
+import org.janelia.saalfeldlab.n5.codec.N5Codecs;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of blocks in memory, without any I/O.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodecBenchmark {
+
+	@Param({"INT8", "INT16", "INT32", "INT64", "FLOAT32", "FLOAT64"})
+	public String dataType;
+
+	@Param({"raw", "gzip", "zlib", "lz4", "bzip2", "xz"})
+	public String compression;
+
+	@Param({"32", "64", "128"})
+	public int blockSize;
+
+	private DataBlockCodec<Object> codec;
+	private DataBlock<Object> dataBlock;
+	private byte[] encoded;
+	private long numBytes;
+
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		final DataType type = DataType.valueOf(dataType);
+		final int[] size = BenchmarkUtils.blockSize(blockSize);
+		codec = N5Codecs.createDataBlockCodec(type, BenchmarkUtils.compression(compression));
+		dataBlock = (DataBlock<Object>)BenchmarkUtils.createDataBlock(type, size, new long[]{0, 0, 0}, new Random(1));
+		encoded = codec.encode(dataBlock).allBytes();
+		numBytes = BenchmarkUtils.numBytes(type, size);
+	}
+
+	@Benchmark
+	public byte[] encode(final BytesCounter counter) throws IOException {
+
+		counter.bytes += numBytes;
+		return codec.encode(dataBlock).allBytes();
+	}
+
+	@Benchmark
+	public DataBlock<Object> decode(final BytesCounter counter) throws IOException {
+
+		counter.bytes += numBytes;
+		return codec.decode(ReadData.from(encoded), dataBlock.getGridPosition());
+	}
+}
@@ -0,0 +1,125 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.FileSystemKeyValueAccess;
+import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.N5KeyValueReader;
+import org.janelia.saalfeldlab.n5.N5KeyValueWriter;
+import org.janelia.saalfeldlab.n5.N5Reader;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Contention on the meta data cache: all benchmark threads share one cached
+ * reader and look up attributes, existence, and children of random groups.
+ * Run with several threads, e.g. through {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonCacheBenchmark {
+
+	@Param({"256"})
+	public int numGroups;
+
+	private Path directory;
+	private N5Reader n5;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		directory = BenchmarkUtils.createTempDirectory();
+		try (final N5Writer writer = new N5KeyValueWriter(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), false)) {
+			for (int i = 0; i < numGroups; ++i) {
+				writer.createDataset(group(i) + "/s0", new long[]{1024, 1024}, new int[]{64, 64}, DataType.UINT8, new GzipCompression());
+				writer.setAttribute(group(i), "resolution", new double[]{4, 4, 40});
+			}
+		}
+		n5 = new N5KeyValueReader(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+
+		n5.close();
+		BenchmarkUtils.delete(directory);
+	}
+
+	private static String group(final int i) {
+
+		return "group" + i;
+	}
+
+	private String randomGroup() {
+
+		return group(ThreadLocalRandom.current().nextInt(numGroups));
+	}
+
+	@Benchmark
+	public double[] getAttribute() {
+
+		return n5.getAttribute(randomGroup(), "resolution", double[].class);
+	}
+
+	@Benchmark
+	public boolean datasetExists() {
+
+		return n5.datasetExists(randomGroup() + "/s0");
+	}
+
+	@Benchmark
+	public String[] list() {
+
+		return n5.list(randomGroup());
+	}
+}
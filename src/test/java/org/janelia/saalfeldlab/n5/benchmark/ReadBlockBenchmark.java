@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.FileSystemKeyValueAccess;
+import org.janelia.saalfeldlab.n5.HttpKeyValueAccess;
+import org.janelia.saalfeldlab.n5.N5KeyValueReader;
+import org.janelia.saalfeldlab.n5.N5KeyValueWriter;
+import org.janelia.saalfeldlab.n5.N5Reader;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Reading blocks through {@link N5Reader#readBlock} from the file system or
+ * from HTTP served by an in-process {@link BenchmarkHttpServer}.  Run with
+ * multiple threads ({@code -t}) to measure concurrent reads from a shared
+ * reader.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReadBlockBenchmark {
+
+	static final String DATASET = "dataset";
+	static final int NUM_BLOCKS = 16;
+
+	@Param({"fs", "http"})
+	public String backend;
+
+	@Param({"INT8", "INT16", "INT32", "INT64", "FLOAT32", "FLOAT64"})
+	public String dataType;
+
+	@Param({"raw", "gzip", "zlib", "lz4", "bzip2", "xz"})
+	public String compression;
+
+	@Param({"32", "64", "128"})
+	public int blockSize;
+
+	private Path directory;
+	private BenchmarkHttpServer server;
+	private N5Reader n5;
+	private DatasetAttributes attributes;
+	private long numBytes;
+
+	@State(Scope.Thread)
+	public static class Position {
+
+		private static final Random rnd = new Random(1);
+
+		long i = rnd.nextInt(NUM_BLOCKS);
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		final DataType type = DataType.valueOf(dataType);
+		final int[] size = BenchmarkUtils.blockSize(blockSize);
+		numBytes = BenchmarkUtils.numBytes(type, size);
+
+		directory = BenchmarkUtils.createTempDirectory();
+		try (final N5Writer writer = new N5KeyValueWriter(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), false)) {
+			writer.createDataset(DATASET, new long[]{NUM_BLOCKS * size[0], size[1], size[2]}, size, type, BenchmarkUtils.compression(compression));
+			final DatasetAttributes datasetAttributes = writer.getDatasetAttributes(DATASET);
+			final Random rnd = new Random(1);
+			for (int i = 0; i < NUM_BLOCKS; ++i)
+				writer.writeBlock(DATASET, datasetAttributes, BenchmarkUtils.createDataBlock(type, size, new long[]{i, 0, 0}, rnd));
+		}
+
+		if (backend.equals("http")) {
+			server = new BenchmarkHttpServer(directory);
+			n5 = new N5KeyValueReader(new HttpKeyValueAccess(), server.getURI().toString(), new GsonBuilder(), false);
+		} else
+			n5 = new N5KeyValueReader(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), false);
+		attributes = n5.getDatasetAttributes(DATASET);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+
+		n5.close();
+		if (server != null)
+			server.close();
+		BenchmarkUtils.delete(directory);
+	}
+
+	@Benchmark
+	public DataBlock<?> readBlock(final Position position, final BytesCounter counter) {
+
+		counter.bytes += numBytes;
+		return n5.readBlock(DATASET, attributes, position.i++ % NUM_BLOCKS, 0, 0);
+	}
+}
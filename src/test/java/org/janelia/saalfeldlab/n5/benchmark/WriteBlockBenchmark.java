@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.FileSystemKeyValueAccess;
+import org.janelia.saalfeldlab.n5.N5KeyValueWriter;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Writing blocks through {@link N5Writer#writeBlock} to the file system.
+ * Run with multiple threads ({@code -t}) to measure concurrent writes through
+ * a shared writer.  Each thread writes its own row of blocks.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WriteBlockBenchmark {
+
+	static final String DATASET = "dataset";
+	static final int NUM_BLOCKS = 16;
+	static final int MAX_THREADS = 256;
+
+	@Param({"INT8", "INT16", "INT32", "INT64", "FLOAT32", "FLOAT64"})
+	public String dataType;
+
+	@Param({"raw", "gzip", "zlib", "lz4", "bzip2", "xz"})
+	public String compression;
+
+	@Param({"32", "64", "128"})
+	public int blockSize;
+
+	private Path directory;
+	private N5Writer n5;
+	private DatasetAttributes attributes;
+	private long numBytes;
+
+	private final AtomicInteger threadIndices = new AtomicInteger();
+
+	@State(Scope.Thread)
+	public static class Blocks {
+
+		DataBlock<?>[] dataBlocks;
+		int i;
+
+		@Setup(Level.Trial)
+		public void setup(final WriteBlockBenchmark benchmark) {
+
+			final int row = benchmark.threadIndices.getAndIncrement();
+			final DataType type = benchmark.attributes.getDataType();
+			final int[] size = benchmark.attributes.getBlockSize();
+			final Random rnd = new Random(row);
+			dataBlocks = new DataBlock<?>[NUM_BLOCKS];
+			for (int j = 0; j < NUM_BLOCKS; ++j)
+				dataBlocks[j] = BenchmarkUtils.createDataBlock(type, size, new long[]{j, row, 0}, rnd);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		final DataType type = DataType.valueOf(dataType);
+		final int[] size = BenchmarkUtils.blockSize(blockSize);
+		numBytes = BenchmarkUtils.numBytes(type, size);
+
+		directory = BenchmarkUtils.createTempDirectory();
+		n5 = new N5KeyValueWriter(new FileSystemKeyValueAccess(directory.getFileSystem()), directory.toString(), new GsonBuilder(), false);
+		n5.createDataset(
+				DATASET,
+				new long[]{NUM_BLOCKS * size[0], MAX_THREADS * size[1], size[2]},
+				size,
+				type,
+				BenchmarkUtils.compression(compression));
+		attributes = n5.getDatasetAttributes(DATASET);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+
+		n5.close();
+		BenchmarkUtils.delete(directory);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	@Benchmark
+	public void writeBlock(final Blocks blocks, final BytesCounter counter) {
+
+		counter.bytes += numBytes;
+		n5.writeBlock(DATASET, attributes, (DataBlock)blocks.dataBlocks[blocks.i++ % NUM_BLOCKS]);
+	}
+}
@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.janelia.saalfeldlab.n5.ByteArrayDataBlock;
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.junit.Test;
+
+public class N5BlockCacheTest {
+
+	private static DataBlock<?> block(final long x, final int numBytes) {
+
+		return new ByteArrayDataBlock(new int[]{numBytes}, new long[]{x}, new byte[numBytes]);
+	}
+
+	@Test
+	public void testLruEviction() {
+
+		final long blockWeight = N5BlockCache.weigh(block(0, 1000));
+		final N5BlockCache cache = new N5BlockCache(3 * blockWeight);
+
+		for (long x = 0; x < 3; ++x)
+			assertTrue(cache.put("a", new long[]{x}, block(x, 1000), cache.getGeneration("a", new long[]{x})));
+		assertEquals(3 * blockWeight, cache.getWeight());
+
+		/* touch 0, so 1 is least recently used */
+		final DataBlock<?> zero = cache.get("a", new long[]{0});
+		cache.put("a", new long[]{3}, block(3, 1000), cache.getGeneration("a", new long[]{3}));
+
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(zero, cache.get("a", new long[]{0}));
+		assertNull(cache.get("a", new long[]{1}));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		/* blocks heavier than the cache are not cached */
+		assertFalse(cache.put("a", new long[]{4}, block(4, 10000), cache.getGeneration("a", new long[]{4})));
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void testInvalidation() {
+
+		final N5BlockCache cache = new N5BlockCache(1 << 20);
+		final long generation = cache.getGeneration("a", new long[]{0});
+		cache.put("a", new long[]{0}, block(0, 10), generation);
+		cache.put("a/b", new long[]{0}, block(0, 10), generation);
+		cache.put("ab", new long[]{0}, block(0, 10), generation);
+
+		cache.invalidate("a", new long[]{1});
+		assertEquals(3, cache.size());
+
+		/* blocks read before an invalidation are not cached */
+		assertFalse(cache.put("c", new long[]{0}, block(0, 10), generation));
+
+		cache.invalidate("a");
+		assertEquals(1, cache.size());
+		assertEquals(N5BlockCache.weigh(block(0, 10)), cache.getWeight());
+		assertTrue(cache.get("ab", new long[]{0}) != null);
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void testSegments() {
+
+		final long blockWeight = N5BlockCache.weigh(block(0, 1000));
+		final N5BlockCache cache = new N5BlockCache(64 * blockWeight, 4);
+		assertEquals(4, cache.getNumSegments());
+
+		for (long x = 0; x < 16; ++x)
+			assertTrue(cache.put("a", new long[]{x}, block(x, 1000), cache.getGeneration("a", new long[]{x})));
+		assertEquals(16, cache.size());
+		assertEquals(16 * blockWeight, cache.getWeight());
+		for (long x = 0; x < 16; ++x)
+			assertEquals(x, cache.get("a", new long[]{x}).getGridPosition()[0]);
+
+		/* prefix invalidation reaches all segments */
+		cache.invalidate("a");
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+
+		/* small caches are not segmented */
+		assertEquals(1, new N5BlockCache(3 * blockWeight).getNumSegments());
+		assertEquals(N5BlockCache.MAX_SEGMENTS, new N5BlockCache(Long.MAX_VALUE).getNumSegments());
+	}
+}
@@ -29,6 +29,15 @@
 package org.janelia.saalfeldlab.n5.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -126,6 +135,130 @@ public class N5CacheTest {
 
 	}
 
+	@Test
+	public void listedChildrenExistTest() {
+
+		final DummyBackingStorage backingStorage = new DummyBackingStorage() {
+
+			@Override
+			public JsonElement getAttributesFromContainer(final String key, final String cacheKey) {
+
+				attrCallCount++;
+				return null;
+			}
+		};
+		final N5JsonCache cache = new N5JsonCache(backingStorage);
+
+		/* without attributes, existence is checked with the container */
+		assertTrue(cache.exists("a", "attributes.json"));
+		assertEquals(1, backingStorage.existsCallCount);
+
+		/* children that were listed are known to exist */
+		cache.list("a");
+		assertTrue(cache.exists("a/list", "attributes.json"));
+		assertEquals(1, backingStorage.existsCallCount);
+
+		assertTrue(cache.exists("a/other", "attributes.json"));
+		assertEquals(2, backingStorage.existsCallCount);
+	}
+
+	@Test
+	public void concurrentLoadTest() throws Exception {
+
+		final AtomicInteger attrLoads = new AtomicInteger();
+		final AtomicInteger listLoads = new AtomicInteger();
+		final DummyBackingStorage slowStorage = new DummyBackingStorage() {
+
+			@Override
+			public JsonElement getAttributesFromContainer(final String key, final String cacheKey) {
+
+				attrLoads.incrementAndGet();
+				sleep();
+				return super.getAttributesFromContainer(key, cacheKey);
+			}
+
+			@Override
+			public String[] listFromContainer(final String key) {
+
+				listLoads.incrementAndGet();
+				sleep();
+				return new String[]{"child"};
+			}
+		};
+		final N5JsonCache cache = new N5JsonCache(slowStorage);
+
+		final int numThreads = 32;
+		final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<String[]>> futures = new ArrayList<>();
+			for (int i = 0; i < numThreads; ++i) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					assertEquals("value", cache.getAttributes("a", "attributes.json").getAsJsonObject().get("key").getAsString());
+					return cache.list("a");
+				}));
+			}
+			start.countDown();
+			for (final Future<String[]> future : futures)
+				assertEquals("child", future.get()[0]);
+		} finally {
+			executor.shutdown();
+		}
+
+		/* every missing entry is loaded from the container exactly once */
+		assertEquals(1, attrLoads.get());
+		assertEquals(1, listLoads.get());
+	}
+
+	@Test
+	public void boundedCacheTest() {
+
+		final DummyBackingStorage backingStorage = new DummyBackingStorage();
+		final N5JsonCache cache = new N5JsonCache(backingStorage);
+		cache.setLimits(10, Long.MAX_VALUE, Long.MAX_VALUE);
+
+		/* the recently used path "a" survives while others are evicted */
+		for (int i = 0; i < 100; ++i) {
+			cache.getAttributes("a", "attributes.json");
+			cache.getAttributes("path" + i, "attributes.json");
+		}
+		assertTrue(cache.size() <= 10);
+		assertEquals(101, backingStorage.attrCallCount);
+		assertEquals(91, cache.getEvictionCount(), 10);
+		assertEquals(99, cache.getHitCount());
+		assertEquals(101, cache.getMissCount());
+
+		/* evicted paths are reloaded */
+		cache.getAttributes("path0", "attributes.json");
+		assertEquals(102, backingStorage.attrCallCount);
+
+		/* weight */
+		cache.setLimits(Long.MAX_VALUE, 2000, Long.MAX_VALUE);
+		assertTrue(cache.getWeight() <= 2000);
+		for (int i = 0; i < 100; ++i)
+			cache.getAttributes("weight" + i, "attributes.json");
+		assertTrue(cache.getWeight() <= 2000);
+		assertTrue(cache.size() < 10);
+
+		/* time to live */
+		cache.setLimits(Long.MAX_VALUE, Long.MAX_VALUE, 0);
+		final int attrCallCount = backingStorage.attrCallCount;
+		cache.getAttributes("ttl", "attributes.json");
+		cache.getAttributes("ttl", "attributes.json");
+		assertEquals(attrCallCount + 2, backingStorage.attrCallCount);
+		assertTrue(cache.getExpirationCount() > 0);
+	}
+
+	private static void sleep() {
+
+		try {
+			Thread.sleep(50);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	protected static class DummyBackingStorage implements N5JsonCacheableContainer {
 
 		int attrCallCount = 0;
@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.janelia.saalfeldlab.n5.Compression;
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DoubleArrayDataBlock;
+import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.RawCompression;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class N5CodecsTest {
+
+	/* larger than the scratch buffer for streamed deserialization */
+	private static final int[] blockSize = {64, 64, 5};
+
+	private static double[] data(final int seed) {
+
+		final double[] data = new double[DataBlock.getNumElements(blockSize)];
+		for (int i = 0; i < data.length; ++i)
+			data[i] = seed + i * 0.5;
+		return data;
+	}
+
+	@Test
+	public void testDecodeWithPool() throws IOException {
+
+		for (final Compression compression : new Compression[]{new RawCompression(), new GzipCompression()}) {
+			final DataBlockCodec<double[]> codec = N5Codecs.createDataBlockCodec(DataType.FLOAT64, compression);
+			final ArrayPool<double[]> pool = new ArrayPool<>(double[]::new, 2);
+
+			final byte[] first = codec.encode(new DoubleArrayDataBlock(blockSize, new long[]{0, 0, 0}, data(1))).allBytes();
+			final DataBlock<double[]> decoded = codec.decode(ReadData.from(first), new long[]{0, 0, 0}, pool);
+			assertArrayEquals(data(1), decoded.getData(), 0);
+
+			pool.release(decoded.getData());
+			assertEquals(1, pool.size());
+
+			/* decode from a stream into the released array */
+			final byte[] second = codec.encode(new DoubleArrayDataBlock(blockSize, new long[]{1, 0, 0}, data(2))).allBytes();
+			final DataBlock<double[]> reused = codec.decode(ReadData.from(new ByteArrayInputStream(second)), new long[]{1, 0, 0}, pool);
+			assertSame(decoded.getData(), reused.getData());
+			assertArrayEquals(data(2), reused.getData(), 0);
+			assertEquals(0, pool.size());
+		}
+	}
+
+	@Test
+	public void testDecodeInto() throws IOException {
+
+		final DataBlockCodec<double[]> codec = N5Codecs.createDataBlockCodec(DataType.FLOAT64, new GzipCompression());
+		final DataBlock<double[]> target = new DoubleArrayDataBlock(blockSize, new long[]{3, 2, 1}, new double[DataBlock.getNumElements(blockSize)]);
+		final ReadData encoded = codec.encode(new DoubleArrayDataBlock(blockSize, new long[]{0, 0, 0}, data(3))).materialize();
+
+		final DataBlock<double[]> decoded = codec.decodeInto(encoded, target);
+		assertSame(target.getData(), decoded.getData());
+		assertArrayEquals(target.getGridPosition(), decoded.getGridPosition());
+		assertArrayEquals(data(3), target.getData(), 0);
+
+		final DataBlock<double[]> small = new DoubleArrayDataBlock(new int[]{1, 1, 1}, new long[]{0, 0, 0}, new double[1]);
+		assertNotSame(small.getData(), codec.decodeInto(encoded, small).getData());
+	}
+
+	@Test
+	public void testDecompressDeserialize() throws IOException {
+
+		for (final Compression compression : new Compression[]{new RawCompression(), new GzipCompression()}) {
+			final DataBlockCodec<double[]> codec = N5Codecs.createDataBlockCodec(DataType.FLOAT64, compression);
+			final ReadData encoded = codec.encode(new DoubleArrayDataBlock(blockSize, new long[]{0, 0, 0}, data(4))).materialize();
+
+			final DataBlockCodec.DecompressedBlock decompressed = codec.decompress(encoded);
+			assertArrayEquals(blockSize, decompressed.getBlockSize());
+			assertEquals(DataBlock.getNumElements(blockSize), decompressed.getNumElements());
+			assertEquals(8L * decompressed.getNumElements(), decompressed.getData().length());
+
+			final DataBlock<double[]> decoded = codec.deserialize(decompressed, new long[]{1, 2, 3}, null);
+			assertArrayEquals(new long[]{1, 2, 3}, decoded.getGridPosition());
+			assertArrayEquals(data(4), decoded.getData(), 0);
+		}
+	}
+
+	/**
+	 * Bytes allocated by the current thread while running {@code task}, or -1
+	 * if the JVM cannot measure it.
+	 */
+	private static long allocatedBytes(final IORunnable task) throws IOException {
+
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)bean;
+		if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled())
+			return -1;
+		final long id = Thread.currentThread().getId();
+		final long before = threadBean.getThreadAllocatedBytes(id);
+		task.run();
+		return threadBean.getThreadAllocatedBytes(id) - before;
+	}
+
+	private interface IORunnable {
+
+		void run() throws IOException;
+	}
+
+	@Test
+	public void testStreamingAllocation() throws IOException {
+
+		final int[] largeBlockSize = {256, 256, 16};
+		final double[] data = new double[DataBlock.getNumElements(largeBlockSize)];
+		for (int i = 0; i < data.length; ++i)
+			data[i] = i % 1000;
+		final long dataBytes = 8L * data.length;
+		final OutputStream nullOutputStream = new OutputStream() {
+
+			@Override
+			public void write(final int b) {}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) {}
+		};
+
+		for (final Compression compression : new Compression[]{new RawCompression(), new GzipCompression()}) {
+			final DataBlockCodec<double[]> codec = N5Codecs.createDataBlockCodec(DataType.FLOAT64, compression);
+			final DataBlock<double[]> dataBlock = new DoubleArrayDataBlock(largeBlockSize, new long[]{0, 0, 0}, data);
+			final byte[] encoded = codec.encode(dataBlock).allBytes();
+			final DataPool<double[]> pool = DataPool.reuse(new double[data.length]);
+
+			/* warm up */
+			codec.encode(dataBlock).writeTo(nullOutputStream);
+			codec.decode(ReadData.from(encoded), new long[]{0, 0, 0}, pool);
+
+			final long encodeBytes = allocatedBytes(() -> codec.encode(dataBlock).writeTo(nullOutputStream));
+			final long decodeBytes = allocatedBytes(() -> codec.decode(ReadData.from(encoded), new long[]{0, 0, 0}, pool));
+			Assume.assumeTrue("allocation tracking not supported", encodeBytes >= 0);
+
+			/* streaming encode and pooled decode never hold a full-size copy of the data */
+			assertTrue("encode allocated " + encodeBytes + " bytes", encodeBytes < dataBytes / 8);
+			assertTrue("decode allocated " + decodeBytes + " bytes", decodeBytes < dataBytes / 8);
+		}
+	}
+
+	@Test
+	public void testDeserializeInto() throws IOException {
+
+		final int[] data = {1, 2, 3, 4};
+		final ReadData serialized = DataCodec.INT_BIG_ENDIAN.serialize(data).materialize();
+
+		final int[] target = new int[4];
+		assertSame(target, DataCodec.INT_BIG_ENDIAN.deserialize(serialized, 4, target));
+		assertArrayEquals(data, target);
+
+		/* arrays of the wrong length are not used */
+		final int[] wrongLength = new int[3];
+		final int[] deserialized = DataCodec.INT_BIG_ENDIAN.deserialize(serialized, 4, wrongLength);
+		assertNotSame(wrongLength, deserialized);
+		assertArrayEquals(data, deserialized);
+	}
+}
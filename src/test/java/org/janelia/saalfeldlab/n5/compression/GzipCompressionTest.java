@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
+import org.junit.Test;
+
+public class GzipCompressionTest {
+
+	private static byte[] data(final int n) {
+
+		final Random random = new Random(42);
+		final byte[] data = new byte[n];
+		for (int i = 0; i < n; ++i)
+			data[i] = (byte)((i >> 6) + random.nextInt(8));
+		return data;
+	}
+
+	private static byte[] gzip(final byte[] data) throws IOException {
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	private static ReadData direct(final byte[] bytes) {
+
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+		return ReadData.from(buffer);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+
+		final byte[] data = data(300_000);
+		for (final boolean useZlib : new boolean[]{false, true}) {
+			final GzipCompression compression = new GzipCompression(6, useZlib);
+			final byte[] encoded = compression.encode(ReadData.from(data)).allBytes();
+
+			/* buffered, direct and streamed input decode to the same bytes */
+			assertArrayEquals(data, compression.decode(ReadData.from(encoded)).allBytes());
+			assertArrayEquals(data, compression.decode(direct(encoded)).allBytes());
+			assertArrayEquals(data, compression.decode(ReadData.from(new ByteArrayInputStream(encoded))).allBytes());
+		}
+	}
+
+	@Test
+	public void testGzipFraming() throws IOException {
+
+		final GzipCompression compression = new GzipCompression();
+		final byte[] first = data(1000);
+		final byte[] second = data(5000);
+
+		/* concatenated members */
+		final ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+		concatenated.write(gzip(first));
+		concatenated.write(gzip(second));
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(first);
+		expected.write(second);
+		assertArrayEquals(expected.toByteArray(), compression.decode(ReadData.from(concatenated.toByteArray())).allBytes());
+
+		/* optional header fields */
+		final GzipParameters parameters = new GzipParameters();
+		parameters.setFilename("block");
+		parameters.setComment("comment");
+		final ByteArrayOutputStream named = new ByteArrayOutputStream();
+		try (final GzipCompressorOutputStream gz = new GzipCompressorOutputStream(named, parameters)) {
+			gz.write(second);
+		}
+		assertArrayEquals(second, compression.decode(ReadData.from(named.toByteArray())).allBytes());
+	}
+
+	@Test
+	public void testCorruptGzip() throws IOException {
+
+		final GzipCompression compression = new GzipCompression();
+		final byte[] encoded = gzip(data(1000));
+
+		final byte[] corruptCrc = encoded.clone();
+		corruptCrc[corruptCrc.length - 8] ^= 1;
+		assertThrows(IOException.class, () -> compression.decode(ReadData.from(corruptCrc)).allBytes());
+
+		final byte[] truncated = new byte[encoded.length - 4];
+		System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+		assertThrows(IOException.class, () -> compression.decode(ReadData.from(truncated)).allBytes());
+
+		final byte[] trailingGarbage = new byte[encoded.length + 3];
+		System.arraycopy(encoded, 0, trailingGarbage, 0, encoded.length);
+		assertThrows(IOException.class, () -> compression.decode(ReadData.from(trailingGarbage)).allBytes());
+	}
+}
@@ -38,6 +38,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
@@ -73,6 +80,77 @@ public class HttpKeyValueAccessTest {
 		}
 	}
 
+	@Test
+	public void testLazyExistence() throws IOException {
+
+		final HttpKeyValueAccess kva = new HttpKeyValueAccess();
+		kva.setMaxConcurrentRequests(1);
+		assumeTrue(kva.exists(kva.compose(baseUrl, "attributes.json")));
+
+		/* missing keys are only detected when reading */
+		final String missing = kva.compose(baseUrl, "doesNotExist.json");
+		try (LockedChannel ch = kva.lockForReading(missing)) {
+			assertThrows(N5Exception.N5NoSuchKeyException.class, ch::newInputStream);
+		}
+
+		/* the permit of the failed request was released */
+		try (LockedChannel ch = kva.lockForReading(kva.compose(baseUrl, "attributes.json"));
+				InputStream is = ch.newInputStream()) {
+			assertEquals(expectedAttributes, IOUtils.toString(is, Charset.defaultCharset()));
+		}
+	}
+
+	@Test
+	public void testSharedRequests() throws Exception {
+
+		final HttpKeyValueAccess kva = new HttpKeyValueAccess();
+		final String absolutePath = kva.compose(baseUrl, "attributes.json");
+		assumeTrue(kva.exists(absolutePath));
+
+		final ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			final ArrayList<Future<byte[]>> reads = new ArrayList<>();
+			for (int i = 0; i < 8; ++i) {
+				reads.add(exec.submit(() -> {
+					try (LockedChannel ch = kva.lockForReading(absolutePath)) {
+						return ch.newReadData().allBytes();
+					}
+				}));
+			}
+			for (final Future<byte[]> read : reads)
+				assertEquals(expectedAttributes, new String(read.get(), StandardCharsets.UTF_8));
+		} finally {
+			exec.shutdown();
+		}
+	}
+
+	@Test
+	public void testPrefetchAlongAccessDirection() {
+
+		final HttpKeyValueAccess.PrefetchPolicy policy = HttpKeyValueAccess.PrefetchPolicy.alongAccessDirection(2);
+		final String dataset = "http://localhost/data.n5/ds";
+
+		assertEquals(Collections.emptyList(), policy.prefetch(dataset + "/0/4"));
+		assertEquals(Arrays.asList(dataset + "/2/4", dataset + "/3/4"), policy.prefetch(dataset + "/1/4"));
+
+		/* jumps are not followed */
+		assertEquals(Collections.emptyList(), policy.prefetch(dataset + "/7/4"));
+		assertEquals(Arrays.asList(dataset + "/5/4", dataset + "/4/4"), policy.prefetch(dataset + "/6/4"));
+		assertEquals(Arrays.asList(dataset + "/6/2", dataset + "/6/1"), policy.prefetch(dataset + "/6/3"));
+
+		/* nothing is prefetched before the grid origin */
+		assertEquals(Collections.emptyList(), policy.prefetch(dataset + "/1/1"));
+		assertEquals(Collections.emptyList(), policy.prefetch(dataset + "/0/0"));
+
+		assertEquals(Collections.emptyList(), policy.prefetch(dataset + "/attributes.json"));
+
+		/* only the last reads of recently read datasets are remembered */
+		for (int i = 0; i < 1000; ++i)
+			policy.prefetch(dataset + i + "/0/0");
+		assertEquals(Collections.emptyList(), policy.prefetch(dataset + "/0/1"));
+		assertEquals(Arrays.asList(dataset + "999/0/2", dataset + "999/0/3"), policy.prefetch(dataset + "999/0/1"));
+	}
+
 	@Test
 	public void testUnsupportedOperations() {
 
@@ -264,6 +264,11 @@ public class HttpReaderFsWriter implements GsonKeyValueN5Writer {
 		writer.writeBlock(datasetPath, datasetAttributes, dataBlock);
 	}
 
+	@Override public boolean isBlockIndexed(String datasetPath, DatasetAttributes datasetAttributes) {
+
+		return writer.isBlockIndexed(datasetPath, datasetAttributes);
+	}
+
 	@Override public boolean deleteBlock(String datasetPath, long... gridPosition) throws N5Exception {
 
 		return writer.deleteBlock(datasetPath, gridPosition);
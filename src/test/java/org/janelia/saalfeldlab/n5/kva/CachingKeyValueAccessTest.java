@@ -0,0 +1,330 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.kva;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.janelia.saalfeldlab.n5.CachingKeyValueAccess;
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.FileSystemKeyValueAccess;
+import org.janelia.saalfeldlab.n5.IntArrayDataBlock;
+import org.janelia.saalfeldlab.n5.LockedChannel;
+import org.janelia.saalfeldlab.n5.N5Exception;
+import org.janelia.saalfeldlab.n5.N5FSWriter;
+import org.janelia.saalfeldlab.n5.N5KeyValueReader;
+import org.janelia.saalfeldlab.n5.N5Reader;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.janelia.saalfeldlab.n5.RawCompression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.GsonBuilder;
+
+public class CachingKeyValueAccessTest {
+
+	/**
+	 * Counts reads and validates by modification time and size.
+	 */
+	private static class CountingKeyValueAccess extends FileSystemKeyValueAccess implements CachingKeyValueAccess.Validator {
+
+		int readCount = 0;
+
+		int rangeReadCount = 0;
+
+		/* runs before each read, e.g. to simulate a concurrent write */
+		Runnable beforeRead = null;
+
+		CountingKeyValueAccess() {
+
+			super(FileSystems.getDefault());
+		}
+
+		@Override
+		public LockedFileChannel lockForReading(final String normalPath) throws IOException {
+
+			++readCount;
+			if (beforeRead != null)
+				beforeRead.run();
+			return super.lockForReading(normalPath);
+		}
+
+		@Override
+		public LockedFileChannel lockForReading(final String normalPath, final long startByte, final long size) throws IOException {
+
+			++rangeReadCount;
+			return super.lockForReading(normalPath, startByte, size);
+		}
+
+		@Override
+		public String getValidator(final String normalPath) throws IOException {
+
+			final Path path = Paths.get(normalPath);
+			if (!Files.exists(path))
+				throw new N5Exception.N5NoSuchKeyException("No such key: " + normalPath);
+			return Files.getLastModifiedTime(path).toMillis() + ":" + Files.size(path);
+		}
+	}
+
+	private Path tmp;
+	private CountingKeyValueAccess kva;
+
+	@Before
+	public void setUp() throws IOException {
+
+		tmp = Files.createTempDirectory("n5-caching-kva-");
+		kva = new CountingKeyValueAccess();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		kva.delete(tmp.toString());
+	}
+
+	private String key(final String name) {
+
+		return tmp.resolve(name).toString();
+	}
+
+	private static byte[] read(final LockedChannel channel) throws IOException {
+
+		try (final LockedChannel c = channel) {
+			return c.newReadData().allBytes();
+		}
+	}
+
+	private static void write(final LockedChannel channel, final byte[] data) throws IOException {
+
+		try (final LockedChannel c = channel; final OutputStream out = c.newOutputStream()) {
+			out.write(data);
+		}
+	}
+
+	private static byte[] bytes(final String s) {
+
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testMemoryAndDiskTiers() throws IOException {
+
+		final CachingKeyValueAccess cache = new CachingKeyValueAccess(kva, 10, tmp.resolve("spill"), 100, Long.MAX_VALUE);
+		write(cache.lockForWriting(key("a")), bytes("aaaaaaaa"));
+		write(cache.lockForWriting(key("b")), bytes("bbbbbbbb"));
+
+		assertArrayEquals(bytes("aaaaaaaa"), read(cache.lockForReading(key("a"))));
+		assertArrayEquals(bytes("aaaaaaaa"), read(cache.lockForReading(key("a"))));
+		assertEquals(1, kva.readCount);
+		assertEquals(1, cache.getMemoryHitCount());
+
+		/* b pushes a to disk */
+		assertArrayEquals(bytes("bbbbbbbb"), read(cache.lockForReading(key("b"))));
+		assertEquals(8, cache.getMemoryBytes());
+		assertEquals(8, cache.getDiskBytes());
+
+		/* a comes back from disk */
+		assertArrayEquals(bytes("aaaaaaaa"), read(cache.lockForReading(key("a"))));
+		assertArrayEquals(bytes("aaa"), read(cache.lockForReading(key("a"), 5, 10)));
+		assertEquals(2, kva.readCount);
+		assertEquals(1, cache.getDiskHitCount());
+
+		cache.clear();
+		assertEquals(0, cache.getDiskBytes());
+		try (final Stream<Path> spilled = Files.list(tmp.resolve("spill"))) {
+			assertEquals(0, spilled.count());
+		}
+	}
+
+	@Test
+	public void testSpillFailure() throws IOException {
+
+		final Path spill = tmp.resolve("spill");
+		final CachingKeyValueAccess cache = new CachingKeyValueAccess(kva, 10, spill, 100, Long.MAX_VALUE);
+		write(cache.lockForWriting(key("a")), bytes("aaaaaaaa"));
+		write(cache.lockForWriting(key("b")), bytes("bbbbbbbb"));
+		assertArrayEquals(bytes("aaaaaaaa"), read(cache.lockForReading(key("a"))));
+
+		/* a cannot be spilled, it is dropped and the read of b succeeds */
+		Files.delete(spill);
+		assertArrayEquals(bytes("bbbbbbbb"), read(cache.lockForReading(key("b"))));
+		assertEquals(0, cache.getDiskBytes());
+		assertEquals(1, cache.getEvictionCount());
+
+		assertArrayEquals(bytes("aaaaaaaa"), read(cache.lockForReading(key("a"))));
+		assertEquals(3, kva.readCount);
+	}
+
+	@Test
+	public void testInvalidation() throws IOException {
+
+		final CachingKeyValueAccess cache = new CachingKeyValueAccess(kva, 1000);
+		write(cache.lockForWriting(key("dir/a")), bytes("first"));
+		assertArrayEquals(bytes("first"), read(cache.lockForReading(key("dir/a"))));
+		assertTrue(cache.isFile(key("dir/a")));
+
+		write(cache.lockForWriting(key("dir/a")), bytes("second"));
+		assertArrayEquals(bytes("second"), read(cache.lockForReading(key("dir/a"))));
+		assertEquals(2, kva.readCount);
+
+		cache.delete(key("dir"));
+		assertFalse(cache.exists(key("dir/a")));
+		assertEquals(0, cache.getMemoryBytes());
+	}
+
+	@Test
+	public void testRevalidation() throws IOException {
+
+		final CachingKeyValueAccess cache = new CachingKeyValueAccess(kva, 1000, null, 0, 0);
+		write(kva.lockForWriting(key("a")), bytes("first"));
+		Files.setLastModifiedTime(Paths.get(key("a")), FileTime.fromMillis(1000));
+
+		assertArrayEquals(bytes("first"), read(cache.lockForReading(key("a"))));
+		assertArrayEquals(bytes("first"), read(cache.lockForReading(key("a"))));
+		assertEquals(1, kva.readCount);
+
+		/* changed behind the cache's back */
+		write(kva.lockForWriting(key("a")), bytes("changed"));
+		assertArrayEquals(bytes("changed"), read(cache.lockForReading(key("a"))));
+		assertEquals(2, kva.readCount);
+
+		/* deleted behind the cache's back */
+		kva.delete(key("a"));
+		try {
+			read(cache.lockForReading(key("a")));
+			fail("Deleted key was served from the cache.");
+		} catch (final N5Exception.N5NoSuchKeyException e) {}
+		assertEquals(0, cache.getMemoryBytes());
+	}
+
+	@Test
+	public void testConcurrentWriteOfOtherKey() throws IOException {
+
+		final CachingKeyValueAccess cache = new CachingKeyValueAccess(kva, 1000);
+		write(cache.lockForWriting(key("a")), bytes("a"));
+
+		/* a write of b while a is read does not prevent caching a */
+		kva.beforeRead = () -> {
+			try {
+				write(cache.lockForWriting(key("b")), bytes("b"));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+		assertArrayEquals(bytes("a"), read(cache.lockForReading(key("a"))));
+		kva.beforeRead = null;
+		assertArrayEquals(bytes("a"), read(cache.lockForReading(key("a"))));
+		assertEquals(1, kva.readCount);
+		assertEquals(1, cache.getMemoryHitCount());
+
+		/* a write of a while a is read does */
+		cache.invalidate(key("a"));
+		kva.beforeRead = () -> {
+			try {
+				write(cache.lockForWriting(key("a")), bytes("A"));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+		read(cache.lockForReading(key("a")));
+		kva.beforeRead = null;
+		assertArrayEquals(bytes("A"), read(cache.lockForReading(key("a"))));
+		assertEquals(3, kva.readCount);
+	}
+
+	@Test
+	public void testShardedDataset() throws IOException {
+
+		final String basePath = key("sharded.n5");
+		final int[] blockSize = {4, 4};
+		final DatasetAttributes attributes = new DatasetAttributes(
+				new long[]{16, 8},
+				blockSize,
+				DataType.INT32,
+				new RawCompression(),
+				new int[]{8, 8});
+		try (final N5Writer n5 = new N5FSWriter(basePath)) {
+			n5.createDataset("data", attributes);
+			for (int x = 0; x < 4; ++x) {
+				for (int y = 0; y < 2; ++y) {
+					final int[] data = new int[16];
+					Arrays.fill(data, 10 * x + y);
+					n5.writeBlock("data", attributes, new IntArrayDataBlock(blockSize, new long[]{x, y}, data));
+				}
+			}
+		}
+
+		/* larger and smaller than a shard of about 400 bytes */
+		for (final long maxMemoryBytes : new long[]{4000, 100}) {
+			final CachingKeyValueAccess cache = new CachingKeyValueAccess(kva, maxMemoryBytes);
+			try (final N5Reader n5 = new N5KeyValueReader(cache, basePath, new GsonBuilder(), true)) {
+				final DatasetAttributes cachedAttributes = n5.getDatasetAttributes("data");
+				final int readCount = kva.readCount;
+				final int[] rangeReadCounts = new int[2];
+				for (int pass = 0; pass < 2; ++pass) {
+					for (int x = 0; x < 4; ++x) {
+						for (int y = 0; y < 2; ++y) {
+							final DataBlock<?> block = n5.readBlock("data", cachedAttributes, x, y);
+							final int[] expected = new int[16];
+							Arrays.fill(expected, 10 * x + y);
+							assertArrayEquals(expected, (int[])block.getData());
+						}
+					}
+					rangeReadCounts[pass] = kva.rangeReadCount;
+				}
+
+				/* only the indices and the blocks are read, never whole shards */
+				assertEquals(readCount, kva.readCount);
+				if (maxMemoryBytes > 1000)
+					assertEquals(rangeReadCounts[0], rangeReadCounts[1]);
+
+				assertNull(n5.readBlock("data", cachedAttributes, 3, 3));
+			}
+		}
+	}
+}
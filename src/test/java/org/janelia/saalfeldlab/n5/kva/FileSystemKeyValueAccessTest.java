@@ -33,19 +33,27 @@ package org.janelia.saalfeldlab.n5.kva;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
+import org.apache.commons.io.IOUtils;
 import org.janelia.saalfeldlab.n5.FileSystemKeyValueAccess;
 import org.janelia.saalfeldlab.n5.KeyValueAccess;
+import org.janelia.saalfeldlab.n5.LockedChannel;
 import org.janelia.saalfeldlab.n5.N5URI;
+import org.janelia.saalfeldlab.n5.readdata.ReadData;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -211,4 +219,62 @@ public class FileSystemKeyValueAccessTest extends AbstractKeyValueAccessTest {
 		 * Because of that, there is no valid file URI with an empty path (it's just an empty string, which is invalid, or `file://` which is invalid. */
 		super.testComposeWithPathEmpty();
 	}
+
+	@Test
+	public void testReadRange() throws IOException {
+
+		final byte[] data = new byte[1 << 17];
+		for (int i = 0; i < data.length; ++i)
+			data[i] = (byte)(i * 31);
+
+		final String path = fileSystemKva.compose(tempUri(), "range");
+		try (final LockedChannel channel = fileSystemKva.lockForWriting(path);
+				final OutputStream out = channel.newOutputStream()) {
+			out.write(data);
+		}
+
+		final long[][] ranges = {{0, 10}, {1000, 100}, {7, data.length - 7}, {50, -1}, {data.length - 5, 100}, {data.length + 5, 10}};
+		for (final long[] range : ranges) {
+			final int start = (int)Math.min(range[0], data.length);
+			final int end = range[1] < 0 ? data.length : (int)Math.min(range[0] + range[1], data.length);
+			final byte[] expected = Arrays.copyOfRange(data, start, end);
+			final String msg = Arrays.toString(range);
+
+			try (final LockedChannel channel = fileSystemKva.lockForReading(path, range[0], range[1])) {
+				assertArrayEquals(msg, expected, channel.newReadData().allBytes());
+				assertArrayEquals(msg, expected, IOUtils.toByteArray(channel.newInputStream()));
+			}
+
+			assertArrayEquals(msg, expected, ReadData.from(fileSystemKva, path).slice(range[0], range[1]).allBytes());
+		}
+
+		/* the length of a slice is known without reading it */
+		assertEquals(100, ReadData.from(fileSystemKva, path).slice(1000, 100).length());
+		assertEquals(-1, ReadData.from(fileSystemKva, path).slice(1000, -1).length());
+
+		fileSystemKva.delete(path);
+	}
+
+	@Test
+	public void testListEntries() throws IOException {
+
+		final String base = fileSystemKva.compose(tempUri(), "entries");
+		fileSystemKva.createDirectories(fileSystemKva.compose(base, "group"));
+		try (final LockedChannel channel = fileSystemKva.lockForWriting(fileSystemKva.compose(base, "attributes.json"))) {
+			channel.newOutputStream().close();
+		}
+
+		final KeyValueAccess.ListEntry[] entries = fileSystemKva.listEntries(base);
+		Arrays.sort(entries, (a, b) -> a.getName().compareTo(b.getName()));
+		assertEquals(2, entries.length);
+		assertEquals("attributes.json", entries[0].getName());
+		assertFalse(entries[0].isDirectory());
+		assertEquals("group", entries[1].getName());
+		assertTrue(entries[1].isDirectory());
+
+		assertArrayEquals(new String[]{"group"}, fileSystemKva.listDirectories(base));
+		assertThrows(IOException.class, () -> fileSystemKva.listEntries(fileSystemKva.compose(base, "missing")));
+
+		fileSystemKva.delete(base);
+	}
 }
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Not HDF5
+ * %%
+ * Copyright (C) 2017 - 2025 Stephan Saalfeld
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.janelia.saalfeldlab.n5.readdata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.IntArrayDataBlock;
+import org.janelia.saalfeldlab.n5.RawCompression;
+import org.janelia.saalfeldlab.n5.codec.DataBlockCodec;
+import org.janelia.saalfeldlab.n5.codec.N5Codecs;
+import org.junit.Test;
+
+public class ReadDataTest {
+
+	private static byte[] bytes(final int n) {
+
+		final byte[] bytes = new byte[n];
+		for (int i = 0; i < n; ++i)
+			bytes[i] = (byte)i;
+		return bytes;
+	}
+
+	private static void assertContent(final byte[] expected, final ReadData readData) throws IOException {
+
+		assertEquals(expected.length, readData.length());
+		assertArrayEquals(expected, readData.allBytes());
+
+		final byte[] streamed = new byte[expected.length];
+		try (final InputStream in = readData.inputStream()) {
+			new DataInputStream(in).readFully(streamed);
+			assertEquals(-1, in.read());
+		}
+		assertArrayEquals(expected, streamed);
+
+		final ByteBuffer buffer = readData.toByteBuffer();
+		assertEquals(expected.length, buffer.remaining());
+		final byte[] buffered = new byte[expected.length];
+		buffer.get(buffered);
+		assertArrayEquals(expected, buffered);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		readData.writeTo(out);
+		assertArrayEquals(expected, out.toByteArray());
+	}
+
+	@Test
+	public void testFromByteBuffer() throws IOException {
+
+		final byte[] data = bytes(100);
+
+		final ByteBuffer heap = ByteBuffer.wrap(data);
+		heap.position(10);
+		assertContent(Arrays.copyOfRange(data, 10, 100), ReadData.from(heap));
+
+		final ByteBuffer direct = ByteBuffer.allocateDirect(100);
+		direct.put(data);
+		direct.position(20);
+		direct.limit(90);
+		final ReadData directReadData = ReadData.from(direct);
+		direct.clear();
+		assertContent(Arrays.copyOfRange(data, 20, 90), directReadData);
+		assertEquals(directReadData, directReadData.materialize());
+	}
+
+	@Test
+	public void testSlice() throws IOException {
+
+		final byte[] data = bytes(100);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(100);
+		direct.put(data);
+		direct.flip();
+		final ReadData lazy = ReadData.from(out -> out.write(data));
+
+		final ReadData[] readDatas = {ReadData.from(data), ReadData.from(data, 5, 90), ReadData.from(direct), lazy};
+		final int[] offsets = {0, 5, 0, 0};
+		for (int i = 0; i < readDatas.length; ++i) {
+			final ReadData readData = readDatas[i];
+			final int offset = offsets[i];
+			assertContent(Arrays.copyOfRange(data, offset + 10, offset + 30), readData.slice(10, 20));
+			assertContent(Arrays.copyOfRange(data, offset + 10, offset + (int)readData.length()), readData.slice(10, -1));
+			assertContent(Arrays.copyOfRange(data, offset + 12, offset + 15), readData.slice(10, 20).slice(2, 3));
+			assertContent(new byte[0], readData.slice(readData.length(), 0));
+			assertThrows(IndexOutOfBoundsException.class, () -> readData.slice(50, 100));
+		}
+	}
+
+	@Test
+	public void testDecodeDirectBuffer() throws IOException {
+
+		final int[] blockSize = {3, 4, 5};
+		final int[] data = new int[DataBlock.getNumElements(blockSize)];
+		for (int i = 0; i < data.length; ++i)
+			data[i] = i * 7;
+
+		for (final boolean compress : new boolean[]{false, true}) {
+			final DataBlockCodec<int[]> codec = N5Codecs.createDataBlockCodec(DataType.INT32, compress ? new GzipCompression() : new RawCompression());
+			final byte[] encoded = codec.encode(new IntArrayDataBlock(blockSize, new long[]{1, 2, 3}, data)).allBytes();
+			final ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+			direct.put(encoded);
+			direct.flip();
+
+			final DataBlock<int[]> decoded = codec.decode(ReadData.from(direct), new long[]{1, 2, 3});
+			assertArrayEquals(blockSize, decoded.getSize());
+			assertArrayEquals(new long[]{1, 2, 3}, decoded.getGridPosition());
+			assertArrayEquals(data, decoded.getData());
+		}
+	}
+}